@@ -1,32 +1,17 @@
-import java.io.BufferedReader;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import org.apache.lucene.document.Document;
 
 import ue_inforet_bool.ParseUtils;
+import ue_inforet_bool.PlotParser;
 
 /**
  * Created by lrebscher on 28.01.17.
  */
 public class CoOccurrences {
 
-    private static final Pattern MV_PATTERN = Pattern.compile("MV: ", Pattern.LITERAL);
-
-    private static final Pattern PLOT_PATTERN = Pattern.compile("PL: ", Pattern.LITERAL);
-
-    private static final Pattern SUSPENDED_PATTERN = Pattern.compile(ParseUtils.SUSPENDED, Pattern.LITERAL);
-
-
     private final Map<String, Integer> occurrences;
 
     private final Map<CoOccurrence<String>, Integer> coOccurrences;
@@ -50,74 +35,19 @@ public class CoOccurrences {
         System.out.println("Parsing start... ");
 
         try {
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(plotFile), StandardCharsets.ISO_8859_1));
-            String line;
-
-            Document actualDocument = null;
-            String tmpPlot = "";
-
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("MV: ")) {
-                    //head of document
-                    actualDocument = new Document();
-
-                    if (line.contains(ParseUtils.SUSPENDED)) {
-                        line = SUSPENDED_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-                    }
-
-                    String shortenedLine = MV_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-
-                    if (shortenedLine.startsWith("\"")) {
-
-                        if (shortenedLine.contains("{")) {
-                            //episode
-                            final String episodeTitle = shortenedLine.substring(shortenedLine.lastIndexOf('{') + 1, shortenedLine.lastIndexOf('}'));
-                            shortenedLine = shortenedLine.replace('{' + episodeTitle + '}', "");
-                        } else {
-                            //series
-                        }
+            new PlotParser(new PlotParser.Handler() {
 
-                        final String year = ParseUtils.getYear(shortenedLine);
-                        shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-
-                        final String title = shortenedLine.substring(shortenedLine.indexOf('\"') + 1, shortenedLine.lastIndexOf('\"'));
-
-                        final List<String> tokens = ParseUtils.tokenize(title);
-                        addTokens(tokens);
-
-                    } else {
-                        shortenedLine = ParseUtils.handleTypeSubString(actualDocument, shortenedLine);
-
-                        //year
-                        final String year = ParseUtils.getYear(shortenedLine);
-
-                        shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-
-                        final String title = shortenedLine.trim();
-
-                        final List<String> tokens = ParseUtils.tokenize(title);
-                        addTokens(tokens);
-                    }
-                } else if (line.startsWith("------")) {
-                    //end of document
-                    if (actualDocument != null) {
-
-                        final List<String> tokens = ParseUtils.tokenize(tmpPlot);
-                        addTokens(tokens);
-
-                        //reset tmpPlot
-                        tmpPlot = "";
-                    }
-                } else if (line.startsWith("PL:")) {
-                    //plot inside document
-                    //collect all plot lines
-                    final String plot = PLOT_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-                    tmpPlot = tmpPlot.concat(" " + plot);
+                @Override
+                public void startRecord(final String titleLine, final String type, final String title, final String year,
+                                        final String episodeTitle) {
+                    addTokens(ParseUtils.tokenize(title));
                 }
-            }
 
-            //close reader
-            reader.close();
+                @Override
+                public void endRecord(final CharSequence plot) {
+                    addTokens(ParseUtils.tokenize(plot.toString()));
+                }
+            }).parse(plotFile);
 
             final Collection<CoOccurrence<String>> results = new ArrayList<>();
 
@@ -7,26 +7,15 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class BooleanQuery {
 
-    private static final Pattern MV_PATTERN = Pattern.compile("MV: ", Pattern.LITERAL);
-
-    private static final Pattern PLOT_PATTERN = Pattern.compile("PL: ", Pattern.LITERAL);
-
-    private static final Pattern SUSPENDED_PATTERN = Pattern.compile(ParseUtils.SUSPENDED, Pattern.LITERAL);
-
     static boolean DEBUG = false;
 
     private final Indexer indexer = new Indexer();
@@ -51,110 +40,53 @@ public class BooleanQuery {
      */
     public void buildIndices(final String plotFile) {
         /**
-         – movie: MV: <title> (<year>)
-         – series: MV: "<title>" (<year>)
-         – episode: MV: "<title>" (<year>) {<episodeTitle>}
-         – television: MV: <title> (<year>) (TV)
-         – video: MV: <title> (<year>) (V)
-         – videogame: MV: <title> (<year>) (VG)
-
-         an entry starts with “MV: ” and ends with horizontal lines
-         (“--------------------------------------------”) or at the end of the corpus
-
-         again, every document has up to five searchable fields:
-         title, plot, type, year, episodeTitle
+         every document has up to five searchable fields:
+         title, plot, type, year, episodeTitle, see PlotParser for the format of the file
 
+         every document has a type, also movies, television, videos and videogames, whose
+         markers (TV), (V) and (VG) are not part of their title
          */
 
         final long parseStart = System.currentTimeMillis();
         System.out.print("Parsing start... ");
 
         try {
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(plotFile), StandardCharsets.ISO_8859_1));
+            final List<Document> documents = new ArrayList<>();
 
-            String line;
-            final Collection<Document> documents = new ArrayList<>();
+            new PlotParser(new PlotParser.Handler() {
 
-            Document actualDocument = null;
-            String tmpPlot = "";
+                private Document actualDocument;
 
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("MV: ")) {
-                    //head of document
+                @Override
+                public void startRecord(final String titleLine, final String type, final String title, final String year,
+                                        final String episodeTitle) {
                     actualDocument = new Document();
-                    actualDocument.titleId = line;
-
-                    if (line.contains(ParseUtils.SUSPENDED)) {
-                        line = SUSPENDED_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
+                    actualDocument.titleId = titleLine;
+                    actualDocument.type = type;
+                    actualDocument.title = ParseUtils.tokenize(title);
+                    actualDocument.year = year;
+                    if (episodeTitle != null) {
+                        actualDocument.episodeTitle = ParseUtils.tokenize(episodeTitle);
                     }
 
-                    String shortenedLine = MV_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-
-                    if (shortenedLine.startsWith("\"")) {
-
-                        if (shortenedLine.contains("{")) {
-                            //episode
-                            actualDocument.type = "episode";
-                            final String episodeTitle = shortenedLine.substring(shortenedLine.lastIndexOf('{') + 1, shortenedLine.lastIndexOf('}'));
-                            actualDocument.episodeTitle = ParseUtils.tokenize(episodeTitle);
-
-                            shortenedLine = shortenedLine.replace('{' + episodeTitle + '}', "");
-                        } else {
-                            //series
-                            actualDocument.type = "series";
-                        }
-
-                        final String year = ParseUtils.getYear(shortenedLine);
-                        actualDocument.year = year;
-                        shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-
-                        final String title = shortenedLine.substring(shortenedLine.indexOf('\"') + 1, shortenedLine.lastIndexOf('\"'));
-
-                        if (DEBUG) {
-                            System.out.println("Title: " + title + " - Year: " + year);
-                        }
-
-                        actualDocument.title = ParseUtils.tokenize(title);
-                    } else {
-                        //shortenedLine = ParseUtils.handleTypeSubString(actualDocument, shortenedLine);
-
-                        //year
-                        final String year = ParseUtils.getYear(shortenedLine);
-                        actualDocument.year = year;
-
-                        shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-
-                        final String title = shortenedLine.trim();
-                        actualDocument.title = ParseUtils.tokenize(title);
-
-                        if (DEBUG) System.out.println("Title: " + title + " - Year: " + year);
-                    }
-                } else if (line.startsWith("------")) {
-                    //end of document
-                    if (actualDocument != null) {
-                        //tokenize plot
-                        actualDocument.plot = ParseUtils.tokenize(tmpPlot);
-
-                        //reset tmpPlot
-                        tmpPlot = "";
-                        documents.add(actualDocument);
+                    if (DEBUG) {
+                        System.out.println("Title: " + title + " - Year: " + year);
                     }
-                } else if (line.startsWith("PL:")) {
-                    //plot inside document
-                    //collect all plot lines
-                    final String plot = PLOT_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-                    tmpPlot = tmpPlot.concat(" " + plot);
                 }
-            }
 
-            //close reader
-            reader.close();
+                @Override
+                public void endRecord(final CharSequence plot) {
+                    actualDocument.plot = ParseUtils.tokenize(plot.toString());
+                    documents.add(actualDocument);
+                }
+            }).parse(plotFile);
 
             final long parseDuration = System.currentTimeMillis() - parseStart;
             System.out.println("Duration for parsing: " + parseDuration / 1000 + " s");
 
             //build index
             indexer.buildIndexes(documents);
+            System.out.println("Indexed " + indexer.size() + " documents, postings: " + indexer.postingsBytes() / 1024 + " KB");
         } catch (final IOException e) {
             e.printStackTrace();
         }
@@ -202,7 +134,6 @@ public class BooleanQuery {
      * lines (starting with "MV: ") of the documents matching the query
      */
     public Set<String> booleanQuery(final String queryString) {
-        final Set<Set<String>> results = new LinkedHashSet<>();
         final String[] searchParts = queryString.split("AND");
 
         if (indexer.doneBuilding()) {
@@ -212,93 +143,106 @@ public class BooleanQuery {
             System.exit(1);
         }
 
+        //postings of every term, a phrase needs all of its terms and is checked on the result
+        final List<Postings> terms = new ArrayList<>();
+        final List<Postings[]> phrases = new ArrayList<>();
         for (final String part : searchParts) {
             final String lowerCasePart = part.toLowerCase().trim();
             final String term = lowerCasePart.substring(lowerCasePart.indexOf(':') + 1);
+            final SearchField searchField = searchField(lowerCasePart);
+            if (searchField == null) {
+                continue;
+            }
 
-            if (lowerCasePart.startsWith("title:")) {
-                final Map<String, Collection<String>> titleIndex = indexer.getTitleIndex();
-                results.add(handleSearchPart(term, titleIndex, SearchField.TITLE));
-
-            } else if (lowerCasePart.startsWith("plot:")) {
-                final Map<String, Collection<String>> plotIndex = indexer.getPlotIndex();
-                results.add(handleSearchPart(term, plotIndex, SearchField.PLOT));
-
-            } else if (lowerCasePart.startsWith("type:")) {
-                final Map<String, Collection<String>> typeIndex = indexer.getTypeIndex();
-                results.add(handleSearchPart(term, typeIndex, SearchField.TYPE));
-
-            } else if (lowerCasePart.startsWith("episodetitle:")) {
-                final Map<String, Collection<String>> episodeIndex = indexer.getEpisodeIndex();
-                results.add(handleSearchPart(term, episodeIndex, SearchField.EPISODE_TITLE));
-
-            } else if (lowerCasePart.startsWith("year:")) {
-                final Map<String, Collection<String>> yearIndex = indexer.getYearIndex();
-                results.add(handleSearchPart(term, yearIndex, SearchField.YEAR));
+            final boolean phrase = term.startsWith("\"") && term.endsWith("\"");
+            final List<String> tokens = phrase ? ParseUtils.tokenize(term.substring(term.indexOf("\"") + 1, term.lastIndexOf("\"")))
+                : Collections.singletonList(term);
+            final Postings[] tokenPostings = new Postings[tokens.size()];
+            for (int i = 0; i < tokenPostings.length; i++) {
+                tokenPostings[i] = indexer.postings(searchField, tokens.get(i));
+                if (tokenPostings[i] == null) {
+                    //no document has the term
+                    return new HashSet<>();
+                }
+                terms.add(tokenPostings[i]);
+            }
+            if (phrase && tokenPostings.length > 1) {
+                phrases.add(tokenPostings);
             }
         }
-
-        final Optional<Set<String>> finalSetOptional = results.stream()
-                                                              .reduce((setA, setB) -> {
-                                                                  setA.retainAll(setB);
-                                                                  return setA;
-                                                              });
-
-        if (finalSetOptional.isPresent()) {
-            return finalSetOptional.get();
-        } else {
+        if (terms.isEmpty()) {
             return new HashSet<>();
         }
-    }
 
-    private Set<String> handleSearchPart(final String term, final Map<String, Collection<String>> index, final SearchField searchField) {
-        if (term.startsWith("\"") && term.endsWith("\"")) {
-            //phrase search
-            final String phrase = term.substring(term.indexOf("\"") + 1, term.lastIndexOf("\""));
-            final List<String> phraseTokens = ParseUtils.tokenize(phrase);
-            if (index.containsKey(phraseTokens.get(0))) {
-                return searchPhrase(index.get(phraseTokens.get(0)), phraseTokens, searchField);
-            }
-        } else {
-            if (index.containsKey(term)) {
-                return new HashSet<>(index.get(term));
-            }
+        //rarest term first, every intersection is at most as long as the shortest list so far
+        terms.sort(Comparator.comparingInt(Postings::size));
+        int[] docIds = terms.get(0).toArray();
+        for (int i = 1; i < terms.size() && docIds.length > 0; i++) {
+            docIds = terms.get(i).intersect(docIds);
+        }
+        for (int i = 0; i < phrases.size() && docIds.length > 0; i++) {
+            docIds = searchPhrase(docIds, phrases.get(i));
         }
 
-        return new HashSet<>();
+        final Set<String> titles = new HashSet<>(2 * docIds.length);
+        for (final int docId : docIds) {
+            titles.add(indexer.title(docId));
+        }
+        return titles;
     }
 
-    private Set<String> searchPhrase(final Iterable<String> documents, final List<String> phraseTokens, final SearchField searchField) {
-        final Set<String> results = new HashSet<>();
-        documents.forEach(documentId -> {
-                final Document document = indexer.getDocumentMap().get(documentId);
-
-                final List<String> tokens;
-                if (searchField == SearchField.EPISODE_TITLE) {
-                    tokens = document.episodeTitle;
-
-                } else if (searchField == SearchField.PLOT) {
-                    tokens = document.plot;
-
-                } else if (searchField == SearchField.TITLE) {
-                    tokens = document.title;
-
-                } else if (searchField == SearchField.TYPE) {
-                    //will never happen... hopefully
-                    tokens = Collections.singletonList(document.type);
+    /**
+     * @return field of a lowercase search part like "plot:wall", null if unknown
+     */
+    private static SearchField searchField(final String lowerCasePart) {
+        if (lowerCasePart.startsWith("title:")) {
+            return SearchField.TITLE;
+        } else if (lowerCasePart.startsWith("plot:")) {
+            return SearchField.PLOT;
+        } else if (lowerCasePart.startsWith("type:")) {
+            return SearchField.TYPE;
+        } else if (lowerCasePart.startsWith("episodetitle:")) {
+            return SearchField.EPISODE_TITLE;
+        } else if (lowerCasePart.startsWith("year:")) {
+            return SearchField.YEAR;
+        }
+        return null;
+    }
 
-                } else {
-                    //will never happen... hopefully
-                    tokens = Collections.singletonList(document.year);
+    /**
+     * @param docIds sorted ids of documents containing all terms of the phrase
+     * @param phrase postings of the terms of the phrase, in order
+     * @return ids of the documents containing the terms next to each other
+     */
+    private static int[] searchPhrase(final int[] docIds, final Postings[] phrase) {
+        final Postings.Cursor[] cursors = new Postings.Cursor[phrase.length];
+        for (int i = 0; i < phrase.length; i++) {
+            cursors[i] = phrase[i].cursor();
+        }
+        final int[][] positions = new int[phrase.length][];
+
+        return Arrays.stream(docIds).filter(docId -> {
+            //start from the term with the fewest positions, the phrase starts 'rarest' terms before it
+            int rarest = 0;
+            for (int i = 0; i < cursors.length; i++) {
+                cursors[i].advance(docId);
+                positions[i] = cursors[i].positions();
+                if (positions[i].length < positions[rarest].length) {
+                    rarest = i;
                 }
-
-                if (Collections.indexOfSubList(tokens, phraseTokens) != -1) {
-                    results.add(documentId);
+            }
+            for (final int position : positions[rarest]) {
+                final int start = position - rarest;
+                int i = 0;
+                while (i < positions.length && Arrays.binarySearch(positions[i], start + i) >= 0) {
+                    i++;
+                }
+                if (i == positions.length) {
+                    return true;
                 }
             }
-        );
-
-        return results;
+            return false;
+        }).toArray();
     }
 
     public static void main(String[] args) {
@@ -345,6 +289,7 @@ public class BooleanQuery {
         }
 
         // run queries
+        final long[] latencies = new long[queries.size()];
         for (int i = 0; i < queries.size(); i++) {
             String query = queries.get(i);
             Set<String> expectedResult = i < results.size() ? results.get(i) : new HashSet<>();
@@ -352,6 +297,7 @@ public class BooleanQuery {
             System.out.println("query:           " + query);
             tic = System.nanoTime();
             Set<String> actualResult = bq.booleanQuery(query);
+            latencies[i] = System.nanoTime() - tic;
 
             // sort expected and determined results for human readability
             List<String> expectedResultSorted = new ArrayList<>(expectedResult);
@@ -367,9 +313,21 @@ public class BooleanQuery {
             actualResultSorted.sort(stringComparator);
 
             System.out.println("runtime:         " + (System.nanoTime() - tic) + " nanoseconds.");
+            System.out.println("latency:         " + latencies[i] / 1000 + " microseconds, " + actualResult.size() + " results");
             System.out.println("expected result: " + expectedResultSorted.toString());
             System.out.println("actual result:   " + actualResultSorted.toString());
             System.out.println(expectedResult.equals(actualResult) ? "SUCCESS" : "FAILURE");
         }
+
+        // latency of booleanQuery alone, without sorting and printing the results
+        if (latencies.length > 0) {
+            final long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.println();
+            System.out.println("queries:         " + sorted.length);
+            System.out.println("latency total:   " + Arrays.stream(sorted).sum() / 1000 + " microseconds");
+            System.out.println("latency median:  " + sorted[sorted.length / 2] / 1000 + " microseconds");
+            System.out.println("latency max:     " + sorted[sorted.length - 1] / 1000 + " microseconds");
+        }
     }
 }
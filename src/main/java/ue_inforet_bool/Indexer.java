@@ -1,32 +1,84 @@
 package ue_inforet_bool;
 
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /**
  * Created by lrebscher on 04.12.16.
  */
 class Indexer {
 
-    private Map<String, Collection<String>> titleIndex;
+    /**
+     * For every search field: term -> ids of the documents containing it and the positions in them
+     */
+    private Map<SearchField, Map<String, Postings>> indexes;
+
+    /**
+     * Document id -> title line of the document, its 'titleId'
+     */
+    private String[] titles;
+
+    /**
+     * Index of a range of documents, built by one thread.
+     */
+    private static final class Segment {
+
+        final Map<SearchField, Map<String, Postings>> indexes = new EnumMap<>(SearchField.class);
 
-    private Map<String, Collection<String>> plotIndex;
+        Segment() {
+            for (final SearchField field : SearchField.values()) {
+                indexes.put(field, new HashMap<>());
+            }
+        }
 
-    private Map<String, Collection<String>> episodeIndex;
+        /**
+         * Adds a document, documents must be added in increasing order of their ids.
+         */
+        void add(final int docId, final Document document) {
+            //title index
+            processDocument(docId, document.title, indexes.get(SearchField.TITLE));
 
-    private Map<String, Collection<String>> yearIndex;
+            //plot index
+            processDocument(docId, document.plot, indexes.get(SearchField.PLOT));
 
-    private Map<String, Collection<String>> typeIndex;
+            //episode index
+            if ("episode".equals(document.type)) {
+                processDocument(docId, document.episodeTitle, indexes.get(SearchField.EPISODE_TITLE));
+            }
 
-    private Map<String, Document> documentMap;
+            //year index
+            if (document.year != null && !document.year.contains("????")) {
+                processDocument(docId, Collections.singleton(document.year), indexes.get(SearchField.YEAR));
+            }
+
+            //type index
+            processDocument(docId, Collections.singleton(document.type), indexes.get(SearchField.TYPE));
+        }
+
+        /**
+         * Adds the documents of a segment of later documents.
+         */
+        void merge(final Segment later) {
+            for (final SearchField field : SearchField.values()) {
+                final Map<String, Postings> index = indexes.get(field);
+                for (final Map.Entry<String, Postings> entry : later.indexes.get(field).entrySet()) {
+                    final Postings postings = index.putIfAbsent(entry.getKey(), entry.getValue());
+                    if (postings != null) {
+                        postings.addAll(entry.getValue());
+                    }
+                }
+            }
+        }
+    }
 
     /**
      * build inverted index
      *
-     * term -> list of documentId
+     * term -> postings of document ids and token positions, a document's id is its position in the list
      *
      * for every search field -> one index
      *
@@ -39,84 +91,74 @@ class Indexer {
      *
      * @param documentList documents to index
      */
-    void buildIndexes(final Collection<Document> documentList) {
-        documentMap = new ConcurrentHashMap<>(documentList.size());
-        titleIndex = new ConcurrentHashMap<>();
-        plotIndex = new ConcurrentHashMap<>();
-        episodeIndex = new ConcurrentHashMap<>();
-        yearIndex = new ConcurrentHashMap<>();
-        typeIndex = new ConcurrentHashMap<>();
-
-        documentList.stream()
-                    .forEach(document -> {
-                        documentMap.put(document.titleId, document);
-
-                        //title index
-                        processDocument(document.titleId, document.title, titleIndex);
-
-                        //plot index
-                        processDocument(document.titleId, document.plot, plotIndex);
-
-                        //episode index
-                        if ("episode".equals(document.type)) {
-                            processDocument(document.titleId, document.episodeTitle, episodeIndex);
-                        }
-
-                        //year index
-                        if (document.year != null && !document.year.contains("????")) {
-                            processDocument(document.titleId, Collections.singleton(document.year), yearIndex);
-                        }
-
-                        //type index
-                        processDocument(document.titleId, Collections.singleton(document.type), typeIndex);
-                    });
+    void buildIndexes(final List<Document> documentList) {
+        final String[] titleArray = new String[documentList.size()];
+
+        //the parallel stream splits the ids into ranges, indexed by the fork-join pool and merged in order
+        final Segment index = IntStream.range(0, titleArray.length)
+                                       .parallel()
+                                       .collect(Segment::new, (segment, docId) -> {
+                                           final Document document = documentList.get(docId);
+                                           titleArray[docId] = document.titleId;
+                                           segment.add(docId, document);
+                                       }, Segment::merge);
+
+        for (final Map<String, Postings> fieldIndex : index.indexes.values()) {
+            fieldIndex.values().forEach(Postings::trim);
+        }
+        titles = titleArray;
+        indexes = index.indexes;
     }
 
     /**
      *
-     * @param documentId given documentId
+     * @param docId given document id
      * @param tokens given tokens
      * @param index given index
      */
-    private static void processDocument(final String documentId, final Iterable<String> tokens, final Map<String, Collection<String>> index) {
+    private static void processDocument(final int docId, final Iterable<String> tokens, final Map<String, Postings> index) {
+        int position = 0;
         for (final String token : tokens) {
-            if (index.containsKey(token)) {
-                final Collection<String> documents = index.get(token);
-                documents.add(documentId);
-            } else {
-                final Collection<String> docIds = new ArrayList<>();
-                docIds.add(documentId);
-                index.put(token, docIds);
-            }
+            index.computeIfAbsent(token, t -> new Postings()).add(docId, position++);
         }
     }
 
-    public Map<String, Collection<String>> getTitleIndex() {
-        return Collections.unmodifiableMap(titleIndex);
-    }
-
-    public Map<String, Collection<String>> getEpisodeIndex() {
-        return Collections.unmodifiableMap(episodeIndex);
-    }
-
-    public Map<String, Collection<String>> getPlotIndex() {
-        return Collections.unmodifiableMap(plotIndex);
+    /**
+     * @return postings of the term in the field, null if no document contains it
+     */
+    Postings postings(final SearchField field, final String term) {
+        return indexes.get(field).get(term);
     }
 
-    public Map<String, Collection<String>> getYearIndex() {
-        return Collections.unmodifiableMap(yearIndex);
+    /**
+     * @return number of documents
+     */
+    int size() {
+        return titles.length;
     }
 
-    public Map<String, Collection<String>> getTypeIndex() {
-        return Collections.unmodifiableMap(typeIndex);
+    /**
+     * @return the title line of a document, starting with "MV: "
+     */
+    String title(final int docId) {
+        return titles[docId];
     }
 
-    public Map<String, Document> getDocumentMap() {
-        return Collections.unmodifiableMap(documentMap);
+    /**
+     * @return number of bytes of all encoded postings and positions
+     */
+    long postingsBytes() {
+        long bytes = 0L;
+        for (final Map<String, Postings> index : indexes.values()) {
+            for (final Postings postings : index.values()) {
+                bytes += postings.byteSize();
+            }
+        }
+        return bytes;
     }
 
     boolean doneBuilding() {
-        return titleIndex != null && plotIndex != null && episodeIndex != null;
+        return indexes != null;
     }
 
 }
@@ -2,12 +2,8 @@ package ue_inforet_bool;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.lucene.document.Field.Store;
-import org.apache.lucene.document.TextField;
-
 /**
  * Created by lrebscher on 04.12.16.
  */
@@ -17,46 +13,30 @@ public final class ParseUtils {
 
     private static final Pattern DELIMITER_PATTERN = Pattern.compile("\\.|,| |\\?|:|!");
 
-    private static final Pattern TELEVISION_PATTERN = Pattern.compile(DocumentType.TELEVISION, Pattern.LITERAL);
-
-    private static final Pattern VIDEO_PATTERN = Pattern.compile(DocumentType.VIDEO, Pattern.LITERAL);
-
-    private static final Pattern VIDEO_GAME_PATTERN = Pattern.compile(DocumentType.VIDEO_GAME, Pattern.LITERAL);
-
     private ParseUtils() {
         //hide constructor
     }
 
     /**
-     * sets corresponding type if found and returns line with removed type
-     *
-     * @param actualDocument given document
-     * @param shortendedLine given line
-     * @return line with removed type
+     * @param shortendedLine title line of a movie, not of a series or episode
+     * @return television, video, videogame or movie
      */
-    public static String handleTypeSubString(final org.apache.lucene.document.Document actualDocument, String shortendedLine) {
-        final String type;
+    public static String getType(final String shortendedLine) {
         if (shortendedLine.contains(DocumentType.TELEVISION)) {
-            //television
-            shortendedLine = TELEVISION_PATTERN.matcher(shortendedLine).replaceAll(Matcher.quoteReplacement(""));
-            type = "television";
-
+            return "television";
         } else if (shortendedLine.contains(DocumentType.VIDEO)) {
-            //video
-            shortendedLine = VIDEO_PATTERN.matcher(shortendedLine).replaceAll(Matcher.quoteReplacement(""));
-            type = "video";
-
+            return "video";
         } else if (shortendedLine.contains(DocumentType.VIDEO_GAME)) {
-            //videogame
-            shortendedLine = VIDEO_GAME_PATTERN.matcher(shortendedLine).replaceAll(Matcher.quoteReplacement(""));
-            type = "videogame";
-        } else {
-            type = "movie";
+            return "videogame";
         }
+        return "movie";
+    }
 
-        actualDocument.add(new TextField("type", type, Store.YES));
-
-        return shortendedLine;
+    /**
+     * @return line with removed type, see {@link #getType(String)}
+     */
+    public static String removeType(final String shortendedLine) {
+        return shortendedLine.replace(DocumentType.TELEVISION, "").replace(DocumentType.VIDEO, "").replace(DocumentType.VIDEO_GAME, "");
     }
 
     public static String getYear(final String shortendedLine) {
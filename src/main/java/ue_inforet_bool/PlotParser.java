@@ -0,0 +1,260 @@
+package ue_inforet_bool;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Streaming parser of the movie plot file 'plot.list', reporting its records to a {@link Handler}.
+ * <p>
+ * A record starts with its title line
+ * <pre>
+ * – movie: MV: &lt;title&gt; (&lt;year&gt;)
+ * – series: MV: "&lt;title&gt;" (&lt;year&gt;)
+ * – episode: MV: "&lt;title&gt;" (&lt;year&gt;) {&lt;episodeTitle&gt;}
+ * – television: MV: &lt;title&gt; (&lt;year&gt;) (TV)
+ * – video: MV: &lt;title&gt; (&lt;year&gt;) (V)
+ * – videogame: MV: &lt;title&gt; (&lt;year&gt;) (VG)
+ * </pre>
+ * followed by its plot lines "PL: ..." and ends with a horizontal line "------...".
+ * <p>
+ * The file is memory-mapped in windows, copied in blocks into a byte array and its ISO-8859-1
+ * bytes are decoded into one reusable char buffer, so only title lines become Strings; the plot
+ * is collected in a reused StringBuilder instead of concatenating a new String per plot line.
+ */
+public final class PlotParser {
+
+    /**
+     * Receives the records of the plot file in the order of the file.
+     */
+    public interface Handler {
+
+        /**
+         * A record starts.
+         *
+         * @param titleLine    the title line, starting with "MV: "
+         * @param type         movie, series, episode, television, video or videogame
+         * @param title        the title without quotes, year, type and episode title
+         * @param year         e.g. "1999", "2003/I" or "????"
+         * @param episodeTitle title of an episode, null for other types
+         */
+        void startRecord(String titleLine, String type, String title, String year, String episodeTitle);
+
+        /**
+         * A plot line was added to the plot of the record, by default ignored.
+         *
+         * @param plot  the plot so far, valid only during the call
+         * @param start start of the line in the plot
+         * @param end   end of the line in the plot
+         */
+        default void plot(final CharSequence plot, final int start, final int end) {
+        }
+
+        /**
+         * The record ends.
+         *
+         * @param plot the plot lines of the record without "PL: ", each preceded by a blank;
+         *             valid only during the call
+         */
+        void endRecord(CharSequence plot) throws IOException;
+    }
+
+    /**
+     * Bytes mapped at once
+     */
+    private static final int WINDOW = 1 << 30;
+
+    private final Handler handler;
+
+    private final StringBuilder plot = new StringBuilder(1024);
+
+    /**
+     * Bytes copied from the mapped file, lines are parsed from it
+     */
+    private byte[] block = new byte[1 << 16];
+
+    /**
+     * The decoded line
+     */
+    private char[] line = new char[256];
+
+    private boolean inRecord;
+
+    public PlotParser(final Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Parses the plot file, reporting its records to the handler.
+     *
+     * @return number of bytes parsed
+     */
+    public long parse(final String plotFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(plotFile), StandardOpenOption.READ)) {
+            final long size = channel.size();
+            //bytes of the block, starting with the incomplete last line of the previous one
+            int length = 0;
+            for (long position = 0L; position < size; position += WINDOW) {
+                final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+                while (window.hasRemaining()) {
+                    if (length == block.length) {
+                        block = Arrays.copyOf(block, 2 * block.length);
+                    }
+                    final int read = Math.min(window.remaining(), block.length - length);
+                    window.get(block, length, read);
+                    int start = 0;
+                    for (int i = length; i < length + read; i++) {
+                        if (block[i] == '\n') {
+                            line(start, i);
+                            start = i + 1;
+                        }
+                    }
+                    length += read - start;
+                    System.arraycopy(block, start, block, 0, length);
+                }
+            }
+            if (length > 0) {
+                //last line without line break
+                line(0, length);
+            }
+            return size;
+        }
+    }
+
+    private void line(final int from, int to) throws IOException {
+        if (to > from && block[to - 1] == '\r') {
+            to--;
+        }
+        if (startsWith(from, to, "MV: ")) {
+            startRecord(new String(decode(from, to), 0, to - from));
+        } else if (startsWith(from, to, "------")) {
+            if (inRecord) {
+                handler.endRecord(plot);
+                plot.setLength(0);
+                inRecord = false;
+            }
+        } else if (startsWith(from, to, "PL:")) {
+            final int text = startsWith(from, to, "PL: ") ? from + 4 : from + 3;
+            final int start = plot.length();
+            plot.append(' ').append(decode(text, to), 0, to - text);
+            handler.plot(plot, start, plot.length());
+        }
+    }
+
+    /**
+     * Splits the title line into its fields, see {@link Handler#startRecord}.
+     */
+    private void startRecord(final String titleLine) {
+        String shortenedLine = titleLine.contains(ParseUtils.SUSPENDED) ? titleLine.replace(ParseUtils.SUSPENDED, "") : titleLine;
+        shortenedLine = shortenedLine.substring("MV: ".length());
+
+        final String type;
+        String episodeTitle = null;
+        final String title;
+        final String year;
+        if (shortenedLine.startsWith("\"")) {
+            if (shortenedLine.indexOf('{') >= 0) {
+                type = "episode";
+                episodeTitle = shortenedLine.substring(shortenedLine.lastIndexOf('{') + 1, shortenedLine.lastIndexOf('}'));
+                shortenedLine = shortenedLine.replace('{' + episodeTitle + '}', "");
+            } else {
+                type = "series";
+            }
+            year = ParseUtils.getYear(shortenedLine);
+            shortenedLine = ParseUtils.removeYear(shortenedLine, year);
+            title = shortenedLine.substring(shortenedLine.indexOf('\"') + 1, shortenedLine.lastIndexOf('\"'));
+        } else {
+            type = ParseUtils.getType(shortenedLine);
+            shortenedLine = ParseUtils.removeType(shortenedLine);
+            year = ParseUtils.getYear(shortenedLine);
+            title = ParseUtils.removeYear(shortenedLine, year).trim();
+        }
+        inRecord = true;
+        handler.startRecord(titleLine, type, title, year, episodeTitle);
+    }
+
+    /**
+     * @return the reused buffer holding the ISO-8859-1 chars of the bytes from its start
+     */
+    private char[] decode(final int from, final int to) {
+        if (to - from > line.length) {
+            line = new char[Math.max(2 * line.length, to - from)];
+        }
+        final char[] chars = line;
+        final byte[] bytes = block;
+        for (int i = from; i < to; i++) {
+            chars[i - from] = (char) (bytes[i] & 0xFF);
+        }
+        return chars;
+    }
+
+    private boolean startsWith(final int from, final int to, final String prefix) {
+        if (to - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (block[from + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares the parse throughput with reading the lines of the plot file.
+     *
+     * @param args path of the plot file
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: java ue_inforet_bool.PlotParser <plot list file>");
+            System.exit(-1);
+        }
+        final String plotFile = args[0];
+        final long[] counts = new long[2];
+        final PlotParser parser = new PlotParser(new Handler() {
+            @Override
+            public void startRecord(final String titleLine, final String type, final String title, final String year,
+                                    final String episodeTitle) {
+                counts[0]++;
+            }
+
+            @Override
+            public void endRecord(final CharSequence plot) {
+                counts[1] += plot.length();
+            }
+        });
+
+        for (int run = 0; run < 5; run++) {
+            counts[0] = 0L;
+            counts[1] = 0L;
+            long start = System.nanoTime();
+            final long bytes = parser.parse(plotFile);
+            final long parseTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            long lines = 0L;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(plotFile), StandardCharsets.ISO_8859_1))) {
+                while (reader.readLine() != null) {
+                    lines++;
+                }
+            }
+            final long readTime = System.nanoTime() - start;
+
+            System.out.println("parse:    " + megabytesPerSecond(bytes, parseTime) + " MB/s, " + counts[0] + " records, "
+                + counts[1] + " plot chars");
+            System.out.println("readLine: " + megabytesPerSecond(bytes, readTime) + " MB/s, " + lines + " lines");
+        }
+    }
+
+    private static long megabytesPerSecond(final long bytes, final long nanos) {
+        return bytes * 1000L * 1000L * 1000L / (1024L * 1024L) / Math.max(nanos, 1L);
+    }
+}
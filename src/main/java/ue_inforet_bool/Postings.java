@@ -0,0 +1,353 @@
+package ue_inforet_bool;
+
+import java.util.Arrays;
+
+/**
+ * Positional postings list of a term: the ids of the documents containing it in increasing
+ * order, and for every document the positions of the term in it.
+ * <p>
+ * Numbers are stored as gaps to the previous one in variable-byte encoding, 7 bits per byte
+ * with the high bit marking the last byte of a number. Most terms occur in few documents close
+ * to each other, so a posting mostly takes one or two bytes instead of a reference to a boxed
+ * id or title line. Ids live in one byte stream, every id followed by the number of bytes of
+ * its positions; the positions live in a second stream, so intersecting ids never decodes
+ * positions and a phrase decodes them only for the documents containing all of its terms.
+ * <p>
+ * Every {@link #BLOCK} ids a skip entry records the id before the block and the block's
+ * offsets into both streams, so a {@link Cursor} can gallop over blocks to an id instead of
+ * decoding every gap before it; intersecting a short list with a long one decodes only the
+ * blocks that may hold ids of the short one.
+ */
+final class Postings {
+
+    /**
+     * Returned by a {@link Cursor} after the last id
+     */
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    /**
+     * Ids per skip entry
+     */
+    private static final int BLOCK = 64;
+
+    /**
+     * Growable stream of variable-byte encoded numbers.
+     */
+    private static final class Bytes {
+
+        byte[] data = new byte[4];
+
+        int length;
+
+        void write(int value) {
+            if (length + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + 5));
+            }
+            while (value >= 0x80) {
+                data[length++] = (byte) (value & 0x7F);
+                value >>>= 7;
+            }
+            data[length++] = (byte) (value | 0x80);
+        }
+
+        void append(final byte[] source, final int offset, final int count) {
+            if (length + count > data.length) {
+                data = Arrays.copyOf(data, Math.max(2 * data.length, length + count));
+            }
+            System.arraycopy(source, offset, data, length, count);
+            length += count;
+        }
+
+        void trim() {
+            if (data.length != length) {
+                data = Arrays.copyOf(data, length);
+            }
+        }
+    }
+
+    /**
+     * Reads the ids in increasing order, skipping ahead with {@link #advance(int)}.
+     */
+    final class Cursor {
+
+        private int docId = -1;
+
+        /**
+         * Number of ids read
+         */
+        private int read;
+
+        private int offset;
+
+        /**
+         * Offset and number of bytes of the positions of the current document
+         */
+        private int positionsOffset;
+
+        private int positionsLength;
+
+        /**
+         * @return the next id, {@link #NO_MORE_DOCS} after the last one
+         */
+        int next() {
+            if (read == size) {
+                docId = NO_MORE_DOCS;
+                return docId;
+            }
+            positionsOffset += positionsLength;
+            docId += readVInt() + 1;
+            positionsLength = readVInt();
+            read++;
+            return docId;
+        }
+
+        /**
+         * @return the first id at least 'target', {@link #NO_MORE_DOCS} if there is none
+         */
+        int advance(final int target) {
+            if (docId >= target) {
+                return docId;
+            }
+            //gallop over the blocks after the current one: the last block starting after an id below 'target'
+            final int current = read / BLOCK;
+            int block = current;
+            int step = 1;
+            while (block + step < skips && skipDocIds[block + step] < target) {
+                block += step;
+                step <<= 1;
+            }
+            int high = Math.min(block + step, skips);
+            while (block + 1 < high) {
+                final int middle = (block + high) >>> 1;
+                if (skipDocIds[middle] < target) {
+                    block = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            if (block > current) {
+                docId = skipDocIds[block];
+                read = block * BLOCK;
+                offset = skipOffsets[block];
+                positionsOffset = skipPositionOffsets[block];
+                positionsLength = 0;
+            }
+            while (next() < target) {
+                //decode the block
+            }
+            return docId;
+        }
+
+        /**
+         * @return positions of the term in the current document, in increasing order
+         */
+        int[] positions() {
+            final byte[] data = positions.data;
+            final int end = positionsOffset + positionsLength;
+            int count = 0;
+            for (int i = positionsOffset; i < end; i++) {
+                if (data[i] < 0) {
+                    count++;
+                }
+            }
+            final int[] documentPositions = new int[count];
+            int position = -1;
+            int i = positionsOffset;
+            for (int n = 0; n < count; n++) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                while ((b = data[i++]) >= 0) {
+                    gap |= b << shift;
+                    shift += 7;
+                }
+                gap |= (b & 0x7F) << shift;
+                position += gap + 1;
+                documentPositions[n] = position;
+            }
+            return documentPositions;
+        }
+
+        private int readVInt() {
+            final byte[] data = docs.data;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            while ((b = data[offset++]) >= 0) {
+                value |= b << shift;
+                shift += 7;
+            }
+            return value | (b & 0x7F) << shift;
+        }
+    }
+
+    /**
+     * Per document: gap to the previous id and number of bytes of its positions
+     */
+    private final Bytes docs = new Bytes();
+
+    /**
+     * Per document: gaps between its positions, the first one to -1
+     */
+    private final Bytes positions = new Bytes();
+
+    /**
+     * Number of finished documents
+     */
+    private int size;
+
+    /**
+     * Last finished id, -1 if none
+     */
+    private int last = -1;
+
+    /**
+     * Id of the document positions are added to, its ids entry is written once it is finished
+     */
+    private int current = -1;
+
+    private int lastPosition;
+
+    private int currentPositionsOffset;
+
+    /**
+     * Per block: the id before it, -1 for the first block, and the offsets of its first bytes
+     */
+    private int[] skipDocIds = new int[1];
+
+    private int[] skipOffsets = new int[1];
+
+    private int[] skipPositionOffsets = new int[1];
+
+    private int skips;
+
+    /**
+     * Adds an occurrence of the term. Documents must be added in increasing order of their
+     * ids, the positions of a document in increasing order.
+     */
+    void add(final int docId, final int position) {
+        if (docId != current) {
+            if (docId < current) {
+                throw new IllegalArgumentException("Ids must be added in increasing order: " + docId + " after " + current);
+            }
+            finishDocument();
+            current = docId;
+            lastPosition = -1;
+            currentPositionsOffset = positions.length;
+        }
+        if (position <= lastPosition) {
+            throw new IllegalArgumentException("Positions must be added in increasing order: " + position + " after " + lastPosition);
+        }
+        positions.write(position - lastPosition - 1);
+        lastPosition = position;
+    }
+
+    /**
+     * Appends the documents of postings built from later documents, e.g. by another thread;
+     * positions are copied without decoding them.
+     *
+     * @param later postings whose ids are all larger than the ids of this one
+     */
+    void addAll(final Postings later) {
+        finishDocument();
+        later.finishDocument();
+        final Cursor cursor = later.cursor();
+        for (int docId = cursor.next(); docId != NO_MORE_DOCS; docId = cursor.next()) {
+            if (docId <= last) {
+                throw new IllegalArgumentException("Ids must be added in increasing order: " + docId + " after " + last);
+            }
+            current = docId;
+            currentPositionsOffset = positions.length;
+            positions.append(later.positions.data, cursor.positionsOffset, cursor.positionsLength);
+            finishDocument();
+        }
+    }
+
+    /**
+     * Finishes the last document and releases unused capacity; call once all documents are
+     * added, before reading.
+     */
+    void trim() {
+        finishDocument();
+        docs.trim();
+        positions.trim();
+        if (skipDocIds.length != skips) {
+            skipDocIds = Arrays.copyOf(skipDocIds, skips);
+            skipOffsets = Arrays.copyOf(skipOffsets, skips);
+            skipPositionOffsets = Arrays.copyOf(skipPositionOffsets, skips);
+        }
+    }
+
+    /**
+     * @return number of documents, the document frequency of the term
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return number of bytes of the encoded ids, positions and skip entries
+     */
+    int byteSize() {
+        return docs.length + positions.length + 12 * skips;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * @return the decoded ids, in increasing order
+     */
+    int[] toArray() {
+        final int[] docIds = new int[size];
+        final Cursor cursor = cursor();
+        for (int n = 0; n < size; n++) {
+            docIds[n] = cursor.next();
+        }
+        return docIds;
+    }
+
+    /**
+     * @param docIds sorted ids, e.g. of a rarer term
+     * @return the ids also in this postings list, sorted
+     */
+    int[] intersect(final int[] docIds) {
+        final int[] both = new int[docIds.length];
+        int size = 0;
+        final Cursor cursor = cursor();
+        for (final int docId : docIds) {
+            final int found = cursor.advance(docId);
+            if (found == NO_MORE_DOCS) {
+                break;
+            }
+            if (found == docId) {
+                both[size++] = docId;
+            }
+        }
+        return Arrays.copyOf(both, size);
+    }
+
+    private void finishDocument() {
+        if (current == last) {
+            return;
+        }
+        if (size % BLOCK == 0) {
+            if (skips == skipDocIds.length) {
+                //trimmed to 0 if it was empty
+                final int capacity = Math.max(1, 2 * skips);
+                skipDocIds = Arrays.copyOf(skipDocIds, capacity);
+                skipOffsets = Arrays.copyOf(skipOffsets, capacity);
+                skipPositionOffsets = Arrays.copyOf(skipPositionOffsets, capacity);
+            }
+            skipDocIds[skips] = last;
+            skipOffsets[skips] = docs.length;
+            skipPositionOffsets[skips] = currentPositionsOffset;
+            skips++;
+        }
+        docs.write(current - last - 1);
+        docs.write(positions.length - currentPositionsOffset);
+        last = current;
+        size++;
+    }
+}
@@ -11,8 +11,6 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
@@ -31,16 +29,10 @@ import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
 
-import ue_inforet_bool.ParseUtils;
+import ue_inforet_bool.PlotParser;
 
 public class BooleanQueryLucene {
 
-    private static final Pattern MV_PATTERN = Pattern.compile("MV: ", Pattern.LITERAL);
-
-    private static final Pattern PLOT_PATTERN = Pattern.compile("PL: ", Pattern.LITERAL);
-
-    private static final Pattern SUSPENDED_PATTERN = Pattern.compile(ParseUtils.SUSPENDED, Pattern.LITERAL);
-
     private IndexWriter indexWriter;
 
     private Directory index;
@@ -69,87 +61,36 @@ public class BooleanQueryLucene {
         System.out.print("Parsing start... ");
 
         try {
-            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(plotFile), StandardCharsets.ISO_8859_1));
-            String line;
-
-            Document actualDocument = null;
-            String tmpPlot = "";
-
             index = new RAMDirectory();
             final StandardAnalyzer standardAnalyzer = new StandardAnalyzer();
             final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(standardAnalyzer);
             indexWriter = new IndexWriter(index, indexWriterConfig);
 
+            new PlotParser(new PlotParser.Handler() {
 
-            while ((line = reader.readLine()) != null) {
-                if (line.startsWith("MV: ")) {
+                private Document actualDocument;
+
+                @Override
+                public void startRecord(final String titleLine, final String type, final String title, final String year,
+                                        final String episodeTitle) {
                     //head of document
                     actualDocument = new Document();
-                    actualDocument.add(new TextField("id", line, Store.YES));
-
-                    if (line.contains(ParseUtils.SUSPENDED)) {
-                        line = SUSPENDED_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
+                    actualDocument.add(new TextField("id", titleLine, Store.YES));
+                    actualDocument.add(new TextField("type", type, Store.YES));
+                    if (episodeTitle != null) {
+                        actualDocument.add(new TextField("episodetitle", episodeTitle, Store.YES));
                     }
+                    actualDocument.add(new TextField("year", year, Store.YES));
+                    actualDocument.add(new TextField("title", title, Store.YES));
+                }
 
-                    String shortenedLine = MV_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-
-                    if (shortenedLine.startsWith("\"")) {
-
-                        if (shortenedLine.contains("{")) {
-                            //episode
-                            actualDocument.add(new TextField("type", "episode", Store.YES));
-                            final String episodeTitle = shortenedLine.substring(shortenedLine.lastIndexOf('{') + 1, shortenedLine.lastIndexOf('}'));
-                            actualDocument.add(new TextField("episodetitle", episodeTitle, Store.YES));
-                            // ParseUtils.tokenize(episodeTitle);
-
-                            shortenedLine = shortenedLine.replace('{' + episodeTitle + '}', "");
-                        } else {
-                            //series
-                            actualDocument.add(new TextField("type", "series", Store.YES));
-                        }
-
-                        final String year = ParseUtils.getYear(shortenedLine);
-                        actualDocument.add(new TextField("year", year, Store.YES));
-                        shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-
-                        final String title = shortenedLine.substring(shortenedLine.indexOf('\"') + 1, shortenedLine.lastIndexOf('\"'));
-                        actualDocument.add(new TextField("title", title, Store.YES));
-                        //ParseUtils.tokenize(title);
-                    } else {
-                        shortenedLine = ParseUtils.handleTypeSubString(actualDocument, shortenedLine);
-
-                        //year
-                        final String year = ParseUtils.getYear(shortenedLine);
-                        actualDocument.add(new TextField("year", year, Store.YES));
-
-                        shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-
-                        final String title = shortenedLine.trim();
-                        actualDocument.add(new TextField("title", title, Store.YES));
-
-                        // ParseUtils.tokenize(title);
-                    }
-                } else if (line.startsWith("------")) {
+                @Override
+                public void endRecord(final CharSequence plot) throws IOException {
                     //end of document
-                    if (actualDocument != null) {
-                        //tokenize plot
-                        //ParseUtils.tokenize(tmpPlot);
-                        actualDocument.add(new TextField("plot", tmpPlot, Store.YES));
-
-                        //reset tmpPlot
-                        tmpPlot = "";
-                        indexWriter.addDocument(actualDocument);
-                    }
-                } else if (line.startsWith("PL:")) {
-                    //plot inside document
-                    //collect all plot lines
-                    final String plot = PLOT_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-                    tmpPlot = tmpPlot.concat(" " + plot);
+                    actualDocument.add(new TextField("plot", plot.toString(), Store.YES));
+                    indexWriter.addDocument(actualDocument);
                 }
-            }
-
-            //close reader
-            reader.close();
+            }).parse(plotFile);
 
             indexWriter.commit();
             indexWriter.close();
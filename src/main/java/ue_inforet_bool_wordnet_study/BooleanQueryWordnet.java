@@ -17,19 +17,14 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.RAMDirectory;
-import ue_inforet_bool.ParseUtils;
+import ue_inforet_bool.PlotParser;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class BooleanQueryWordnet
 {
-	private static final Pattern MV_PATTERN = Pattern.compile("MV: ", Pattern.LITERAL);
-	private static final Pattern PLOT_PATTERN = Pattern.compile("PL: ", Pattern.LITERAL);
-	private static final Pattern SUSPENDED_PATTERN = Pattern.compile(ParseUtils.SUSPENDED, Pattern.LITERAL);
 
 	private HashMap<String, Collection<String>> synSets;
 	private Directory index;
@@ -333,95 +328,43 @@ public class BooleanQueryWordnet
 	public void buildIndices(String plotFile)
 	{
 		final long parseStart = System.currentTimeMillis();
-		IndexWriter indexWriter;
 		System.out.print("Parsing start... ");
 
 		try
 		{
-			final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(plotFile), StandardCharsets.ISO_8859_1));
-			String line;
-			Document actualDocument = null;
-			String tmpPlot = "";
 			index = new RAMDirectory();
 			final StandardAnalyzer standardAnalyzer = new StandardAnalyzer();
 			final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(standardAnalyzer);
-			indexWriter = new IndexWriter(index, indexWriterConfig);
+			final IndexWriter indexWriter = new IndexWriter(index, indexWriterConfig);
 
-			while((line = reader.readLine()) != null)
+			new PlotParser(new PlotParser.Handler()
 			{
-				if(line.startsWith("MV: "))
+				private Document actualDocument;
+
+				@Override
+				public void startRecord(final String titleLine, final String type, final String title, final String year, final String episodeTitle)
 				{
 					//head of document
 					actualDocument = new Document();
-					actualDocument.add(new TextField("id", line, Store.YES));
-
-					if(line.contains(ParseUtils.SUSPENDED))
+					actualDocument.add(new TextField("id", titleLine, Store.YES));
+					actualDocument.add(new TextField("type", type, Store.YES));
+					if(episodeTitle != null)
 					{
-						line = SUSPENDED_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-					}
-
-					String shortenedLine = MV_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-
-					if(shortenedLine.startsWith("\""))
-					{
-						if(shortenedLine.contains("{"))
-						{
-							//episode
-							actualDocument.add(new TextField("type", "episode", Store.YES));
-							final String episodeTitle = shortenedLine.substring(shortenedLine.lastIndexOf('{') + 1, shortenedLine.lastIndexOf('}'));
-							actualDocument.add(new TextField("episodetitle", episodeTitle, Store.YES));
-							// ParseUtils.tokenize(episodeTitle);
-							shortenedLine = shortenedLine.replace('{' + episodeTitle + '}', "");
-						}
-						else
-						{
-							//series
-							actualDocument.add(new TextField("type", "series", Store.YES));
-						}
-
-						final String year = ParseUtils.getYear(shortenedLine);
-						actualDocument.add(new TextField("year", year, Store.YES));
-						shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-						final String title = shortenedLine.substring(shortenedLine.indexOf('\"') + 1, shortenedLine.lastIndexOf('\"'));
-						actualDocument.add(new TextField("title", title, Store.YES));
-						//ParseUtils.tokenize(title);
-					}
-					else
-					{
-						shortenedLine = ParseUtils.handleTypeSubString(actualDocument, shortenedLine);
-						//year
-						final String year = ParseUtils.getYear(shortenedLine);
-						actualDocument.add(new TextField("year", year, Store.YES));
-						shortenedLine = ParseUtils.removeYear(shortenedLine, year);
-						final String title = shortenedLine.trim();
-						actualDocument.add(new TextField("title", title, Store.YES));
-						// ParseUtils.tokenize(title);
+						actualDocument.add(new TextField("episodetitle", episodeTitle, Store.YES));
 					}
+					actualDocument.add(new TextField("year", year, Store.YES));
+					actualDocument.add(new TextField("title", title, Store.YES));
 				}
-				else if(line.startsWith("------"))
+
+				@Override
+				public void endRecord(final CharSequence plot) throws IOException
 				{
 					//end of document
-					if(actualDocument != null)
-					{
-						//tokenize plot
-						//ParseUtils.tokenize(tmpPlot);
-						actualDocument.add(new TextField("plot", tmpPlot, Store.YES));
-						//reset tmpPlot
-						tmpPlot = "";
-						indexWriter.addDocument(actualDocument);
-					}
+					actualDocument.add(new TextField("plot", plot.toString(), Store.YES));
+					indexWriter.addDocument(actualDocument);
 				}
-				else if(line.startsWith("PL:"))
-				{
-					//plot inside document
-					//collect all plot lines
-					final String plot = PLOT_PATTERN.matcher(line).replaceAll(Matcher.quoteReplacement(""));
-					tmpPlot = tmpPlot.concat(" " + plot);
-				}
-			}
+			}).parse(plotFile);
 
-			//close reader
-			reader.close();
 			indexWriter.commit();
 			indexWriter.close();
 
@@ -0,0 +1,157 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+
+/**
+ * Counts in how many movies every pair of actors plays together, for the Magic Couples query.
+ * <p>
+ * Actors are identified by int ids of a dictionary, a pair is packed into one long (smaller id
+ * in the upper half) and counted in a {@link LongIntMap}, so no object is created per pair.
+ * A movie with n actors has n * (n - 1) / 2 pairs, so only the first {@link #MAX_CAST} actors of
+ * every movie in billing order are paired; the leads of a movie are billed first, and the
+ * crowd of a large cast would otherwise dominate time and memory.
+ * <p>
+ * Movies are counted in parallel, every split of the movies into its own map, and the maps
+ * are added up at the end. Most pairs play together only once, so the maps grow with the
+ * number of pairs; if there are more than {@link #PAIRS_PER_PASS}, the pairs are partitioned
+ * by their smaller actor id and counted in several passes over the movies, keeping only the
+ * top pairs of every pass.
+ * <p>
+ * Pairs with equal counts are ranked in the order of the map, which depends on the actor ids.
+ * {@link #topWithTies} also returns the pairs tied with the last place, so that callers with
+ * different ids can break ties by name and agree on the result.
+ */
+final class ActorPairs {
+
+    /**
+     * A pair of actors and the number of movies they play in together.
+     */
+    static final class Couple {
+
+        final int first;
+
+        final int second;
+
+        final int movies;
+
+        private Couple(final long pair, final int movies) {
+            this.first = (int) (pair >>> 32);
+            this.second = (int) pair;
+            this.movies = movies;
+        }
+    }
+
+    /**
+     * Actors per movie taken into account, 105 pairs at most
+     */
+    static final int MAX_CAST = 15;
+
+    /**
+     * Maximum number of pairs counted in one pass, a few hundred MB of maps
+     */
+    private static final long PAIRS_PER_PASS = 1L << 23;
+
+    private ActorPairs() {
+    }
+
+    /**
+     * @param movies  number of movies
+     * @param cast    actor ids of a movie in billing order, ids are at least 0, negative ids are skipped
+     * @param maxCast number of distinct actors per movie to pair
+     * @param k       number of pairs
+     * @return the 'k' pairs playing together most often, most movies first
+     */
+    static List<Couple> top(final int movies, final IntFunction<int[]> cast, final int maxCast, final int k) {
+        final List<Couple> top = topWithTies(movies, cast, maxCast, k);
+        return new ArrayList<>(top.subList(0, Math.min(k, top.size())));
+    }
+
+    /**
+     * @param movies  number of movies
+     * @param cast    actor ids of a movie in billing order, ids are at least 0, negative ids are skipped
+     * @param maxCast number of distinct actors per movie to pair
+     * @param k       number of pairs
+     * @return the 'k' pairs playing together most often and all further pairs playing together
+     *         as often as the last of them, most movies first
+     */
+    static List<Couple> topWithTies(final int movies, final IntFunction<int[]> cast, final int maxCast, final int k) {
+        long pairs = 0L;
+        for (int movie = 0; movie < movies; movie++) {
+            final long actors = Math.min(cast.apply(movie).length, maxCast);
+            pairs += actors * (actors - 1) / 2;
+        }
+        final int passes = (int) Math.max(1L, (pairs + PAIRS_PER_PASS - 1) / PAIRS_PER_PASS);
+
+        final TopK<Couple> top = new TopK<>(k);
+        final List<Couple> candidates = new ArrayList<>();
+        for (int pass = 0; pass < passes; pass++) {
+            final LongIntMap counts = count(movies, cast, maxCast, passes, pass);
+            counts.forEach((pair, count) -> {
+                if (top.accepts(count)) {
+                    top.offer(count, new Couple(pair, count));
+                }
+            });
+
+            //the last place only rises, pairs below it now are out for good
+            final List<Couple> kept = top.toList();
+            final int last = kept.size() < k || k == 0 ? 1 : kept.get(k - 1).movies;
+            candidates.removeIf(couple -> couple.movies < last);
+            counts.forEach((pair, count) -> {
+                if (count >= last) {
+                    candidates.add(new Couple(pair, count));
+                }
+            });
+        }
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        candidates.sort(Comparator.comparingInt(couple -> -couple.movies));
+        return candidates;
+    }
+
+    /**
+     * @return number of movies of every pair whose smaller id belongs to the partition
+     */
+    private static LongIntMap count(final int movies, final IntFunction<int[]> cast, final int maxCast, final int partitions, final int partition) {
+        return IntStream.range(0, movies)
+                        .parallel()
+                        .boxed()
+                        .collect(Collector.of(LongIntMap::new, (counts, movie) -> addPairs(counts, cast.apply(movie), maxCast, partitions, partition),
+                            LongIntMap::merge));
+    }
+
+    private static void addPairs(final LongIntMap counts, final int[] cast, final int maxCast, final int partitions, final int partition) {
+        //first 'maxCast' distinct actors, an actor may be listed for several roles
+        final int[] actors = new int[Math.min(cast.length, maxCast)];
+        int size = 0;
+        for (int i = 0; i < cast.length && size < actors.length; i++) {
+            if (cast[i] >= 0 && !contains(actors, size, cast[i])) {
+                actors[size++] = cast[i];
+            }
+        }
+
+        Arrays.sort(actors, 0, size);
+        for (int i = 0; i < size; i++) {
+            if (actors[i] % partitions == partition) {
+                for (int j = i + 1; j < size; j++) {
+                    counts.add((long) actors[i] << 32 | actors[j], 1);
+                }
+            }
+        }
+    }
+
+    private static boolean contains(final int[] values, final int size, final int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
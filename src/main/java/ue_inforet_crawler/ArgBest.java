@@ -0,0 +1,83 @@
+package ue_inforet_crawler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Group-by with an argmax or argmin aggregate: picks the element with the largest or smallest
+ * key of every group in a single pass, e.g. the best rated movie of every year.
+ * <p>
+ * Every group keeps one accumulator holding its best element and that element's key, so
+ * nothing but the current best is retained. On equal keys the element encountered first
+ * wins, like {@link java.util.stream.Stream#max} does. Accumulators of two parts of a stream
+ * merge in encounter order, so the collectors give the same result on parallel streams.
+ */
+final class ArgBest {
+
+    /**
+     * Best element of a group so far.
+     */
+    private static final class Best<T> {
+
+        T value;
+
+        long key;
+    }
+
+    private ArgBest() {
+    }
+
+    /**
+     * @param group group of an element, e.g. its year
+     * @param key   key of an element, see {@link TopK#floatKey(float)} for floats
+     * @return the element with the largest key of every group, ordered by group
+     */
+    static <T, K extends Comparable<? super K>> Collector<T, ?, SortedMap<K, T>> max(final Function<? super T, ? extends K> group,
+                                                                                      final ToLongFunction<? super T> key) {
+        return collector(group, key, 1);
+    }
+
+    /**
+     * @return the element with the smallest key of every group, ordered by group
+     * @see #max(Function, ToLongFunction)
+     */
+    static <T, K extends Comparable<? super K>> Collector<T, ?, SortedMap<K, T>> min(final Function<? super T, ? extends K> group,
+                                                                                      final ToLongFunction<? super T> key) {
+        return collector(group, key, -1);
+    }
+
+    /**
+     * @param sign 1 to pick the largest key, -1 to pick the smallest
+     */
+    private static <T, K extends Comparable<? super K>> Collector<T, ?, SortedMap<K, T>> collector(final Function<? super T, ? extends K> group,
+                                                                                                    final ToLongFunction<? super T> key,
+                                                                                                    final int sign) {
+        return Collector.<T, Map<K, Best<T>>, SortedMap<K, T>>of(HashMap::new, (groups, value) -> {
+            final long valueKey = key.applyAsLong(value);
+            final Best<T> best = groups.computeIfAbsent(group.apply(value), g -> new Best<>());
+            if (best.value == null || Long.compare(valueKey, best.key) * sign > 0) {
+                best.value = value;
+                best.key = valueKey;
+            }
+        }, (earlier, later) -> {
+            for (final Map.Entry<K, Best<T>> entry : later.entrySet()) {
+                final Best<T> best = earlier.get(entry.getKey());
+                if (best == null || Long.compare(entry.getValue().key, best.key) * sign > 0) {
+                    earlier.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return earlier;
+        }, groups -> {
+            final SortedMap<K, T> result = new TreeMap<>();
+            for (final Map.Entry<K, Best<T>> entry : groups.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().value);
+            }
+            return result;
+        });
+    }
+}
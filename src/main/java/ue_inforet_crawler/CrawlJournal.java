@@ -0,0 +1,242 @@
+package ue_inforet_crawler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal of a crawl, one line per finished title:
+ * <pre>
+ * title \t status \t resolved url \t output file \t timestamp
+ * </pre>
+ * The last line of a title wins. A restarted crawl skips titles that are {@link Status#DONE}
+ * or {@link Status#NOT_FOUND} and crawls failed and new titles, so titles appended to the
+ * input list are crawled incrementally.
+ * <p>
+ * Lines are written through a buffer and synced to disk in batches (every
+ * {@link #SYNC_RECORDS} records or {@link #SYNC_MILLIS} ms), so a crash loses at most the
+ * last batch, whose titles are simply crawled again. A half written last line of a crash is
+ * ignored and ended before new records are appended.
+ */
+final class CrawlJournal implements CrawlPipeline.Listener, AutoCloseable {
+
+    enum Status {
+        DONE,
+        NOT_FOUND,
+        FAILED
+    }
+
+    /**
+     * Last known state of a title.
+     */
+    static final class Record {
+
+        final String title;
+
+        final Status status;
+
+        final String url;
+
+        final String outputFile;
+
+        final long timestamp;
+
+        private Record(final String title, final Status status, final String url, final String outputFile, final long timestamp) {
+            this.title = title;
+            this.status = status;
+            this.url = url;
+            this.outputFile = outputFile;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private static final int SYNC_RECORDS = 64;
+
+    private static final Flushable NO_OUTPUT = () -> {
+    };
+
+    private static final long SYNC_MILLIS = TimeUnit.SECONDS.toMillis(1L);
+
+    private final Map<String, Record> records = new HashMap<>();
+
+    /**
+     * Time of the last successful crawl of every detail page url
+     */
+    private final Map<String, Long> crawledAt = new HashMap<>();
+
+    private final FileOutputStream stream;
+
+    private final Writer writer;
+
+    private final Flushable output;
+
+    private int unsynced;
+
+    private long lastSync = System.currentTimeMillis();
+
+    /**
+     * Loads an existing journal and opens it for appending.
+     *
+     * @param file journal file, created if missing
+     * @throws IOException if the journal can not be read or opened
+     */
+    CrawlJournal(final File file) throws IOException {
+        this(file, NO_OUTPUT);
+    }
+
+    /**
+     * Loads an existing journal and opens it for appending.
+     *
+     * @param file   journal file, created if missing
+     * @param output buffered output of the crawl, flushed before every sync of the journal so that
+     *               no title is recorded as done whose movie is still sitting in a buffer, may be null
+     * @throws IOException if the journal can not be read or opened
+     */
+    CrawlJournal(final File file, final Flushable output) throws IOException {
+        this.output = output == null ? NO_OUTPUT : output;
+        if (file.exists()) {
+            final boolean torn = Utils.terminateLastLine(file);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                while (line != null) {
+                    final String next = reader.readLine();
+                    //a half written line may still parse, e.g. with a cut timestamp
+                    final Record record = next != null || !torn ? parse(line) : null;
+                    if (record != null) {
+                        put(record);
+                    }
+                    line = next;
+                }
+            }
+        }
+
+        stream = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param title movie title of the input list
+     * @return true if the title does not need to be crawled again
+     */
+    synchronized boolean isFinished(final String title) {
+        final Record record = records.get(title);
+        return record != null && record.status != Status.FAILED;
+    }
+
+    /**
+     * @param title movie title of the input list
+     * @return last record of the title or null
+     */
+    synchronized Record get(final String title) {
+        return records.get(title);
+    }
+
+    /**
+     * @param url url of a detail page
+     * @return time in ms of the last successful crawl of the page, 0 if unknown
+     */
+    synchronized long crawledAt(final String url) {
+        final Long timestamp = crawledAt.get(url);
+        return timestamp == null ? 0L : timestamp;
+    }
+
+    @Override
+    public void completed(final CrawlTask task) {
+        append(task, Status.DONE);
+    }
+
+    @Override
+    public void dropped(final CrawlTask task, final String stage) {
+        append(task, Status.NOT_FOUND);
+    }
+
+    @Override
+    public void failed(final CrawlTask task, final String stage, final Exception cause) {
+        append(task, Status.FAILED);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        sync();
+        writer.close();
+    }
+
+    private synchronized void append(final CrawlTask task, final Status status) {
+        final Record record = new Record(task.movieName, status, task.url, task.outputFile, System.currentTimeMillis());
+        put(record);
+
+        try {
+            writer.write(escape(record.title) + '\t' + record.status + '\t' + escape(record.url) + '\t' + escape(record.outputFile) + '\t'
+                + record.timestamp + '\n');
+            unsynced++;
+            if (unsynced >= SYNC_RECORDS || record.timestamp - lastSync >= SYNC_MILLIS) {
+                sync();
+            }
+        } catch (final IOException e) {
+            //the title is crawled again next time, no reason to stop this crawl
+            System.out.println("IOException writing crawl journal: " + e.getMessage());
+        }
+    }
+
+    private void put(final Record record) {
+        records.put(record.title, record);
+        if (record.status == Status.DONE && record.url != null && !record.url.isEmpty()) {
+            crawledAt.put(record.url, record.timestamp);
+        }
+    }
+
+    private void sync() throws IOException {
+        output.flush();
+        writer.flush();
+        stream.getFD().sync();
+        unsynced = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the record or null for a broken line
+     */
+    private static Record parse(final String line) {
+        final String[] fields = line.split("\t", -1);
+        if (fields.length != 5) {
+            return null;
+        }
+        try {
+            return new Record(unescape(fields[0]), Status.valueOf(fields[1]), unescape(fields[2]), unescape(fields[3]), Long.parseLong(fields[4]));
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static String escape(final String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    static String unescape(final String value) {
+        final StringBuilder result = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                final char next = value.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
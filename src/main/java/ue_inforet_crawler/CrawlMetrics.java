@@ -0,0 +1,227 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Timers and counters of a crawl, shared by all worker threads.
+ * <p>
+ * Every timer is a histogram with exponential buckets from 100 µs to about 2 minutes, so
+ * recording is a few atomic increments without locks or allocation. Counters count events
+ * like empty search results.
+ * <p>
+ * {@link #start(long, File)} prints a summary periodically and writes all values in the
+ * Prometheus text format to a file, which can be read by a node exporter's textfile collector
+ * or just looked at. The file is replaced atomically.
+ */
+final class CrawlMetrics implements AutoCloseable {
+
+    /**
+     * Upper bound of the first bucket, every further bucket doubles the bound
+     */
+    private static final long FIRST_BUCKET_NANOS = TimeUnit.MICROSECONDS.toNanos(100L);
+
+    private static final int BUCKETS = 21;
+
+    /**
+     * Latency distribution of one timer.
+     */
+    static final class Histogram {
+
+        /**
+         * Last bucket counts everything above the last bound
+         */
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS + 1);
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder sumNanos = new LongAdder();
+
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+        void record(final long nanos) {
+            int bucket = 0;
+            long bound = FIRST_BUCKET_NANOS;
+            while (bucket < BUCKETS && nanos > bound) {
+                bucket++;
+                bound <<= 1;
+            }
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            sumNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * @param quantile e.g. 0.95
+         * @return upper bound of the bucket holding the quantile, at most the maximum, in ms
+         */
+        double quantileMillis(final double quantile) {
+            final long total = count.sum();
+            long seen = 0L;
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                seen += buckets.get(bucket);
+                if (seen > 0 && seen >= quantile * total) {
+                    return Math.min(bound(bucket), maxNanos.get()) / 1e6;
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            final long total = count.sum();
+            return String.format(Locale.US, "n=%d avg=%.1fms p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms", total,
+                total == 0 ? 0.0 : sumNanos.sum() / 1e6 / total, quantileMillis(0.5), quantileMillis(0.95), quantileMillis(0.99),
+                maxNanos.get() / 1e6);
+        }
+    }
+
+    private final Map<String, Histogram> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private final long startNanos = System.nanoTime();
+
+    private ScheduledExecutorService reporter;
+
+    private File file;
+
+    /**
+     * @param timer name of the timer, e.g. "http.ttfb"
+     * @param nanos measured duration
+     */
+    void record(final String timer, final long nanos) {
+        timers.computeIfAbsent(timer, name -> new Histogram()).record(nanos);
+    }
+
+    /**
+     * @param counter name of the counter, e.g. "search.empty"
+     */
+    void increment(final String counter) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * @return the histogram of a timer, null if nothing was recorded
+     */
+    Histogram getTimer(final String timer) {
+        return timers.get(timer);
+    }
+
+    /**
+     * @return value of a counter, 0 if it was never incremented
+     */
+    long getCounter(final String counter) {
+        final LongAdder adder = counters.get(counter);
+        return adder == null ? 0L : adder.sum();
+    }
+
+    /**
+     * Prints a summary and writes the metrics file every 'intervalSeconds' until closed.
+     *
+     * @param intervalSeconds seconds between two reports
+     * @param file            file for the Prometheus text format, null to only print
+     */
+    synchronized void start(final long intervalSeconds, final File file) {
+        this.file = file;
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "crawl-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic report and reports a last time.
+     */
+    @Override
+    public synchronized void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+        report();
+    }
+
+    private synchronized void report() {
+        System.out.println(this);
+        if (file == null) {
+            return;
+        }
+        try {
+            writePrometheus(file);
+        } catch (final IOException e) {
+            System.out.println("IOException writing metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param target file to replace with all metrics in the Prometheus text format
+     * @throws IOException if the file can not be written
+     */
+    void writePrometheus(final File target) throws IOException {
+        final File temp = new File(target.getPath() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            out.write("# TYPE imdb_crawl_events_total counter\n");
+            for (final Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+                out.write("imdb_crawl_events_total{event=\"" + counter.getKey() + "\"} " + counter.getValue().sum() + '\n');
+            }
+
+            out.write("# TYPE imdb_crawl_duration_seconds histogram\n");
+            for (final Map.Entry<String, Histogram> timer : new TreeMap<>(timers).entrySet()) {
+                final Histogram histogram = timer.getValue();
+                final String label = "timer=\"" + timer.getKey() + '"';
+                long cumulative = 0L;
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    cumulative += histogram.buckets.get(bucket);
+                    out.write("imdb_crawl_duration_seconds_bucket{" + label + ",le=\"" + BigDecimal.valueOf(bound(bucket), 9).stripTrailingZeros().toPlainString()
+                              + "\"} " + cumulative + '\n');
+                }
+                out.write("imdb_crawl_duration_seconds_bucket{" + label + ",le=\"+Inf\"} " + histogram.count.sum() + '\n');
+                out.write(String.format(Locale.US, "imdb_crawl_duration_seconds_sum{%s} %.6f\n", label, histogram.sumNanos.sum() / 1e9));
+                out.write("imdb_crawl_duration_seconds_count{" + label + "} " + histogram.count.sum() + '\n');
+            }
+
+            out.write("# TYPE imdb_crawl_uptime_seconds gauge\n");
+            out.write(String.format(Locale.US, "imdb_crawl_uptime_seconds %.3f\n", (System.nanoTime() - startNanos) / 1e9));
+        }
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder summary = new StringBuilder("Metrics after ").append((System.nanoTime() - startNanos) / 1000000000L).append(" s:");
+        for (final Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            summary.append("\n\t").append(counter.getKey()).append(": ").append(counter.getValue().sum());
+        }
+        for (final Map.Entry<String, Histogram> timer : new TreeMap<>(timers).entrySet()) {
+            summary.append("\n\t").append(timer.getKey()).append(": ").append(timer.getValue());
+        }
+        return summary.toString();
+    }
+
+    private static long bound(final int bucket) {
+        return FIRST_BUCKET_NANOS << bucket;
+    }
+}
@@ -0,0 +1,329 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Staged crawl pipeline, e.g. search-resolve -> detail fetch -> parse -> write.
+ * <p>
+ * Every stage owns a configurable number of worker threads and reads its tasks from a
+ * bounded queue. A full queue blocks the previous stage (and finally the caller of
+ * {@link #run(Iterable)}), so a slow stage throttles the whole crawl instead of
+ * buffering an unbounded number of pages in memory.
+ */
+final class CrawlPipeline {
+
+    /**
+     * Work done by one stage on a task.
+     */
+    interface Stage {
+
+        /**
+         * @param task task to process, may be modified for the following stages
+         * @return false to drop the task, true to hand it on to the next stage
+         * @throws Exception if processing failed, the task is dropped
+         */
+        boolean process(CrawlTask task) throws Exception;
+    }
+
+    /**
+     * Gets told the outcome of every task. Called from the worker threads.
+     */
+    interface Listener {
+
+        /**
+         * @param task task that passed the last stage
+         */
+        void completed(CrawlTask task);
+
+        /**
+         * @param task  task a stage decided not to hand on
+         * @param stage name of the stage
+         */
+        void dropped(CrawlTask task, String stage);
+
+        /**
+         * @param task  task a stage failed on
+         * @param stage name of the stage
+         * @param cause the failure
+         */
+        void failed(CrawlTask task, String stage, Exception cause);
+    }
+
+    private static final Listener NO_LISTENER = new Listener() {
+
+        @Override
+        public void completed(final CrawlTask task) {
+        }
+
+        @Override
+        public void dropped(final CrawlTask task, final String stage) {
+        }
+
+        @Override
+        public void failed(final CrawlTask task, final String stage, final Exception cause) {
+        }
+    };
+
+    private static final CrawlTask POISON = new CrawlTask(null);
+
+    private final int queueCapacity;
+
+    private final List<StageRunner> stages = new ArrayList<>();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final AtomicInteger dropped = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private Listener listener = NO_LISTENER;
+
+    private CrawlMetrics metrics;
+
+    /**
+     * @param queueCapacity number of tasks that may wait in front of every stage
+     */
+    CrawlPipeline(final int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Appends a stage to the pipeline. Stages run in the order they were added.
+     *
+     * @param name    name of the stage, used for thread names and log output
+     * @param workers number of threads working on this stage
+     * @param stage   work done per task
+     * @return this pipeline
+     */
+    CrawlPipeline addStage(final String name, final int workers, final Stage stage) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("stage " + name + " needs at least one worker: " + workers);
+        }
+        stages.add(new StageRunner(name, workers, stage, new ArrayBlockingQueue<>(queueCapacity)));
+        return this;
+    }
+
+    /**
+     * @param listener listener told about the outcome of every task
+     * @return this pipeline
+     */
+    CrawlPipeline setListener(final Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * @param metrics metrics to record the time of every stage ("stage.name") and the number of
+     *                dropped and failed tasks per stage in
+     * @return this pipeline
+     */
+    CrawlPipeline setMetrics(final CrawlMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Feeds all titles into the pipeline and blocks until every stage has drained.
+     *
+     * @param movieNames titles to crawl
+     * @throws InterruptedException if the calling thread was interrupted while feeding or waiting
+     */
+    void run(final Iterable<String> movieNames) throws InterruptedException {
+        final List<CrawlTask> tasks = new ArrayList<>();
+        for (final String movieName : movieNames) {
+            tasks.add(new CrawlTask(movieName));
+        }
+        runTasks(tasks);
+    }
+
+    /**
+     * Feeds prepared tasks into the pipeline, e.g. with a known url for a pipeline starting
+     * at the fetch stage, and blocks until every stage has drained.
+     *
+     * @param tasks tasks to process
+     * @throws InterruptedException if the calling thread was interrupted while feeding or waiting
+     */
+    void runTasks(final Iterable<CrawlTask> tasks) throws InterruptedException {
+        if (stages.isEmpty()) {
+            throw new IllegalStateException("pipeline has no stages");
+        }
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < stages.size(); i++) {
+            final StageRunner stage = stages.get(i);
+            final StageRunner next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+            for (int worker = 0; worker < stage.workers; worker++) {
+                final Thread thread = new Thread(() -> stage.work(next), "crawl-" + stage.name + '-' + worker);
+                threads.add(thread);
+                thread.start();
+            }
+        }
+
+        final StageRunner first = stages.get(0);
+        try {
+            for (final CrawlTask task : tasks) {
+                if (!first.offer(task)) {
+                    break;
+                }
+            }
+        } finally {
+            first.shutdown();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.println("Crawl finished: " + completed.get() + " completed, " + dropped.get() + " dropped, " + failed.get() + " failed");
+    }
+
+    int getCompleted() {
+        return completed.get();
+    }
+
+    int getDropped() {
+        return dropped.get();
+    }
+
+    int getFailed() {
+        return failed.get();
+    }
+
+    private final class StageRunner {
+
+        private final String name;
+
+        private final int workers;
+
+        private final Stage stage;
+
+        private final BlockingQueue<CrawlTask> queue;
+
+        private final AtomicInteger running;
+
+        private StageRunner(final String name, final int workers, final Stage stage, final BlockingQueue<CrawlTask> queue) {
+            this.name = name;
+            this.workers = workers;
+            this.stage = stage;
+            this.queue = queue;
+            this.running = new AtomicInteger(workers);
+        }
+
+        /**
+         * Waits for a free slot in the queue of this stage.
+         *
+         * @return false if all workers of this stage stopped, the task is not queued
+         */
+        private boolean offer(final CrawlTask task) throws InterruptedException {
+            while (!queue.offer(task, 100L, TimeUnit.MILLISECONDS)) {
+                if (running.get() == 0) {
+                    if (task != POISON) {
+                        System.out.println("Stage " + name + " stopped, dropping \"" + task.movieName + '"');
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Tells every worker of this stage to stop once the queued tasks are done. Keeps waiting
+         * for free queue slots if the calling thread is interrupted, so the workers are never
+         * left waiting for tasks.
+         */
+        private void shutdown() {
+            boolean interrupted = false;
+            for (int i = 0; i < workers; i++) {
+                while (true) {
+                    try {
+                        offer(POISON);
+                        break;
+                    } catch (final InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void work(final StageRunner next) {
+            try {
+                CrawlTask task;
+                while ((task = queue.take()) != POISON) {
+                    if (handle(task) && next != null) {
+                        next.offer(task);
+                    }
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final RuntimeException | Error e) {
+                System.out.println("Worker of stage " + name + " stopped: " + e);
+                throw e;
+            } finally {
+                //the last worker leaving this stage shuts down the next one, also if it stopped on a failure
+                if (running.decrementAndGet() == 0 && next != null) {
+                    next.shutdown();
+                }
+            }
+        }
+
+        private boolean handle(final CrawlTask task) {
+            final boolean passed;
+            final long time = System.nanoTime();
+            try {
+                passed = stage.process(task);
+            } catch (final Exception e) {
+                System.out.println(name + " failed for \"" + task.movieName + "\": " + e);
+                failed.incrementAndGet();
+                if (metrics != null) {
+                    metrics.increment(name + ".failed");
+                }
+                notify(task, () -> listener.failed(task, name, e));
+                return false;
+            } finally {
+                if (metrics != null) {
+                    metrics.record("stage." + name, System.nanoTime() - time);
+                }
+            }
+
+            if (!passed) {
+                dropped.incrementAndGet();
+                if (metrics != null) {
+                    metrics.increment(name + ".dropped");
+                }
+                notify(task, () -> listener.dropped(task, name));
+            } else if (stages.get(stages.size() - 1) == this) {
+                completed.incrementAndGet();
+                if (metrics != null) {
+                    metrics.increment("completed");
+                }
+                notify(task, () -> listener.completed(task));
+            }
+            return passed;
+        }
+
+        /**
+         * Tells the listener about a task; a failing listener is logged and does not stop the worker.
+         */
+        private void notify(final CrawlTask task, final Runnable call) {
+            try {
+                call.run();
+            } catch (final RuntimeException e) {
+                System.out.println("Listener failed in stage " + name + " for \"" + task.movieName + "\": " + e);
+                if (metrics != null) {
+                    metrics.increment(name + ".listenerFailed");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ue_inforet_crawler;
+
+/**
+ * State of a single title while it travels through the stages of a {@link CrawlPipeline}.
+ */
+class CrawlTask {
+
+    final String movieName;
+
+    String url;
+
+    String html;
+
+    Movie movie;
+
+    /**
+     * Version of the movie already in the output directory, set when refreshing a crawl
+     */
+    Movie stored;
+
+    String outputFile;
+
+    CrawlTask(final String movieName) {
+        this.movieName = movieName;
+    }
+}
@@ -0,0 +1,95 @@
+package ue_inforet_crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.htmlcleaner.HtmlCleaner;
+import org.htmlcleaner.TagNode;
+import org.htmlcleaner.XPatherException;
+
+/**
+ * Compares the single pass {@link MovieExtractor} with evaluating the 13 XPath expressions
+ * one by one on saved IMDB detail pages. Pages may be plain html files or the gzipped bodies
+ * of the crawler's page cache.
+ */
+public final class ExtractionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 200;
+
+    private static final int MEASURED_ROUNDS = 1000;
+
+    private ExtractionBenchmark() {
+    }
+
+    public static void main(final String[] argv) throws IOException, XPatherException {
+        if (argv.length == 0) {
+            System.out.println("Call with: imdb.ExtractionBenchmark.jar <page.html | cached.gz>...");
+            System.exit(0);
+        }
+
+        final HtmlCleaner cleaner = new HtmlCleaner();
+        final List<TagNode> pages = new ArrayList<>(argv.length);
+        for (final String path : argv) {
+            pages.add(cleaner.clean(read(path)));
+        }
+
+        final MovieExtractor extractor = new MovieExtractor();
+        for (int i = 0; i < pages.size(); i++) {
+            if (!Arrays.equals(MovieExtractor.matchXPath(pages.get(i)), extractor.match(pages.get(i)))) {
+                System.out.println("Results differ for " + argv[i]);
+            }
+        }
+
+        long sink = 0L;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            for (final TagNode page : pages) {
+                sink += MovieExtractor.matchXPath(page).length + extractor.match(page).length;
+            }
+        }
+
+        long time = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (final TagNode page : pages) {
+                sink += MovieExtractor.matchXPath(page).length;
+            }
+        }
+        final long xpathNanos = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            for (final TagNode page : pages) {
+                sink += extractor.match(page).length;
+            }
+        }
+        final long singlePassNanos = System.nanoTime() - time;
+
+        final long extractions = (long) MEASURED_ROUNDS * pages.size();
+        System.out.println("XPath:       " + xpathNanos / extractions + " ns per page");
+        System.out.println("Single pass: " + singlePassNanos / extractions + " ns per page");
+        System.out.println("Speedup:     " + String.format("%.1f", (double) xpathNanos / singlePassNanos) + " (" + sink + ")");
+    }
+
+    private static String read(final String path) throws IOException {
+        if (!path.endsWith(".gz")) {
+            return new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(new FileInputStream(path))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ue_inforet_crawler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Collector;
+
+/**
+ * Counts how often every distinct string occurs, e.g. actor or character names.
+ * <p>
+ * Strings are kept in an open-addressing table with a primitive int counter next to every
+ * slot, so counting an occurrence neither boxes nor allocates; the table itself is the id
+ * dictionary, a string is interned once into its slot. One instance is not thread-safe:
+ * {@link #collector(Function)} gives every split of a parallel stream its own instance and
+ * adds them up at the end, so threads never contend for a counter.
+ */
+final class Frequencies {
+
+    private static final double LOAD_FACTOR = 0.6;
+
+    private String[] values = new String[64];
+
+    private int[] counts = new int[64];
+
+    private int size;
+
+    /**
+     * Counts one occurrence of a value.
+     */
+    void add(final String value) {
+        add(value, 1);
+    }
+
+    /**
+     * Counts 'count' occurrences of a value.
+     */
+    void add(final String value, final int count) {
+        int slot = slot(value);
+        while (values[slot] != null) {
+            if (values[slot].equals(value)) {
+                counts[slot] += count;
+                return;
+            }
+            slot = slot + 1 & values.length - 1;
+        }
+        values[slot] = value;
+        counts[slot] = count;
+        if (++size > values.length * LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    /**
+     * @return number of occurrences of the value, 0 if it never occurred
+     */
+    int get(final String value) {
+        int slot = slot(value);
+        while (values[slot] != null) {
+            if (values[slot].equals(value)) {
+                return counts[slot];
+            }
+            slot = slot + 1 & values.length - 1;
+        }
+        return 0;
+    }
+
+    /**
+     * @return number of distinct values
+     */
+    int size() {
+        return size;
+    }
+
+    void forEach(final ObjIntConsumer<String> consumer) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                consumer.accept(values[slot], counts[slot]);
+            }
+        }
+    }
+
+    /**
+     * @param k      number of values
+     * @param filter values to consider, checked once per distinct value
+     * @return the 'k' values occurring most often, most frequent first
+     */
+    List<String> top(final int k, final Predicate<String> filter) {
+        final TopK<String> top = new TopK<>(k);
+        forEach((value, count) -> {
+            if (top.accepts(count) && filter.test(value)) {
+                top.offer(count, value);
+            }
+        });
+        return top.toList();
+    }
+
+    /**
+     * Adds up two instances, reusing the larger one.
+     *
+     * @return the larger instance, holding the counts of both
+     */
+    static Frequencies merge(final Frequencies a, final Frequencies b) {
+        final Frequencies larger = a.size >= b.size ? a : b;
+        (larger == a ? b : a).forEach(larger::add);
+        return larger;
+    }
+
+    /**
+     * @param values values of an element to count, e.g. the cast of a movie
+     * @return counts of all values of all elements
+     */
+    static <T> Collector<T, Frequencies, Frequencies> collector(final Function<? super T, ? extends Collection<String>> values) {
+        return Collector.of(Frequencies::new, (frequencies, element) -> {
+            for (final String value : values.apply(element)) {
+                frequencies.add(value);
+            }
+        }, Frequencies::merge, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+    }
+
+    private int slot(final String value) {
+        final int hash = value.hashCode() * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & values.length - 1;
+    }
+
+    private void grow() {
+        final String[] oldValues = values;
+        final int[] oldCounts = counts;
+        values = new String[2 * oldValues.length];
+        counts = new int[2 * oldCounts.length];
+        size = 0;
+        for (int slot = 0; slot < oldValues.length; slot++) {
+            if (oldValues[slot] != null) {
+                add(oldValues[slot], oldCounts[slot]);
+            }
+        }
+    }
+}
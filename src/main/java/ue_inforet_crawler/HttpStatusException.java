@@ -0,0 +1,23 @@
+package ue_inforet_crawler;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link PageFetcher} if the server answered with an error status, or with a
+ * redirect it could not follow.
+ */
+class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    HttpStatusException(final int statusCode, final String url) {
+        super("HTTP " + statusCode + " fetching " + url);
+        this.statusCode = statusCode;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+}
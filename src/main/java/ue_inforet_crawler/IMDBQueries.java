@@ -3,16 +3,40 @@ package ue_inforet_crawler;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import ue_inforet_crawler.MovieStore.ListColumn;
+import ue_inforet_crawler.MovieStore.TextColumn;
 
 @SuppressWarnings("static-method")
 public class IMDBQueries {
 
+    /**
+     * Years of Must See and Rotten Tomatoes
+     */
+    private static final int FIRST_YEAR = 1990;
+
+    private static final int LAST_YEAR = 2010;
+
+    /**
+     * Keywords of The Pillars of Storytelling, in any case
+     */
+    private static final Keywords KILL_AND_LOVE = new Keywords(true, "kill", "love");
+
+    /**
+     * Keyword of The Red Planet, case-aware
+     */
+    private static final Keywords MARS = new Keywords(false, "Mars");
+
     /**
      * A helper class for pairs of objects of generic types 'K' and 'V'.
      *
@@ -60,27 +84,13 @@ public class IMDBQueries {
                          movie.getDirectorList().retainAll(movie.getCastList());
                          return !movie.getDirectorList().isEmpty();
                      })
-                     //sortiere nach Rating
-                     .sorted((o1, o2) -> {
-                         double ratingValue1 = Double.valueOf(o1.getRatingValue());
-                         double ratingValue2 = Double.valueOf(o2.getRatingValue());
-                         if (ratingValue1 < ratingValue2) {
-                             return 1;
-                         } else if (ratingValue1 > ratingValue2) {
-                             return -1;
-                         } else {
-                             return 0;
-                         }
-                     })
                      //map von imdb.Movie auf Tuple<imdb.Movie,String>, nimm dafür den ersten Director aus der Liste, da in der Query nur nach einem gefragt wird
                      .map(movie -> {
                          final String director = movie.getDirectorList().get(0);
                          return new Tuple<>(movie, director);
                      })
-                     //top 10
-                     .limit(10L)
-                     //Ergebnisse sammeln und als Liste zurückgeben
-                     .collect(Collectors.toList());
+                     //top 10 nach Rating sammeln und als Liste zurückgeben
+                     .collect(TopK.collector(10, tuple -> TopK.floatKey(tuple.first.getRating())));
     }
 
     /**
@@ -96,29 +106,11 @@ public class IMDBQueries {
      */
     private List<Tuple<Movie, Long>> queryUnderTheRadar(List<Movie> movies) {
         return movies.stream()
-                     .filter(movie -> Integer.valueOf(movie.getYear()) <= 2015 && movie.getCountryList().contains("USA"))
-                     .filter(movie -> Float.valueOf(movie.getRatingValue()) > 8.0 && Utils.parseNumber(movie.getRatingCount()) >= 1000)
-                     .map(movie -> {
-                         //format: $313,837,577
-                         final Long budget = Utils.parseNumber(movie.getBudget());
-                         final Long gross = Utils.parseNumber(movie.getGross());
-
-                         //loss := budget - gross, will be positive if movie is a flop
-                         final Long loss = budget - gross;
-
-                         return new Tuple<>(movie, loss);
-                     })
-                     .sorted((o1, o2) -> {
-                         if (o1.second < o2.second) {
-                             return 1;
-                         } else if (o1.second > o2.second) {
-                             return -1;
-                         } else {
-                             return 0;
-                         }
-                     })
-                     .limit(10)
-                     .collect(Collectors.toList());
+                     .filter(movie -> movie.getYearValue() <= 2015 && movie.getCountryList().contains("USA"))
+                     .filter(movie -> movie.getRating() > 8.0f && movie.getRatingCountValue() >= 1000)
+                     //loss := budget - gross, will be positive if movie is a flop
+                     .map(movie -> new Tuple<>(movie, movie.getBudgetDollars() - movie.getGrossDollars()))
+                     .collect(TopK.collector(10, tuple -> tuple.second));
     }
 
     /**
@@ -134,21 +126,26 @@ public class IMDBQueries {
      *         these words, which is also returned.
      */
     private List<Tuple<Movie, Integer>> queryPillarsOfStorytelling(final Collection<Movie> movies) {
-        return movies.stream()
-                     .filter(movie -> {
-                         final String lowerCaseDescription = movie.getDescription().toLowerCase();
-                         return lowerCaseDescription.contains("kill") && lowerCaseDescription.contains("love");
-                     })
-                     .map(movie -> {
-                         final String lowerCaseDescription = movie.getDescription().toLowerCase();
+        return queryKeywords(movies, KILL_AND_LOVE, 10);
+    }
 
-                         //credits to http://stackoverflow.com/a/8910767
-                         int killCount = lowerCaseDescription.length() - lowerCaseDescription.replace("kill", "").length();
-                         int loveCount = lowerCaseDescription.length() - lowerCaseDescription.replace("love", "").length();
-                         return new Tuple<Movie, Integer>(movie, killCount + loveCount);
-                     })
-                     .limit(10)
-                     .collect(Collectors.toList());
+    /**
+     * Determines the movies whose description contains all keywords and sorts them by the
+     * number of appearances of the keywords, like The Pillars of Storytelling.
+     *
+     * @param keywords
+     *          the keywords to look for
+     * @param k
+     *          number of movies to return
+     * @return top 'k' movies and the number of appearances of the keywords in their
+     *         description, sorted by the latter
+     */
+    private List<Tuple<Movie, Integer>> queryKeywords(final Collection<Movie> movies, final Keywords keywords, final int k) {
+        return movies.parallelStream()
+                     .map(movie -> new Tuple<>(movie, keywords.count(movie.getDescription())))
+                     .filter(tuple -> Keywords.all(tuple.second))
+                     .map(tuple -> new Tuple<>(tuple.first, Keywords.total(tuple.second)))
+                     .collect(TopK.collector(k, tuple -> tuple.second));
     }
 
     /**
@@ -165,8 +162,8 @@ public class IMDBQueries {
         return movies.stream()
                      .filter(movie -> movie.getGenreList().contains("Sci-Fi"))
                      //"mentioning Mars" will be interpreted as containing substring "Mars" in the description
-                     .filter(movie -> movie.getDescription().contains("Mars"))
-                     .sorted((m1, m2) -> Long.compare(Utils.parseNumber(m1.getYear()), Utils.parseNumber(m2.getYear())))
+                     .filter(movie -> Keywords.all(MARS.count(movie.getDescription())))
+                     .sorted((m1, m2) -> Integer.compare(m1.getYearValue(), m2.getYearValue()))
                      .collect(Collectors.toList());
     }
 
@@ -181,32 +178,20 @@ public class IMDBQueries {
      *         bad IMDB rating, sorted by ascending IMDB rating
      */
     private List<Movie> queryColossalFailure(final Collection<Movie> movies) {
-        //duration format: 2h 10min, duration can be empty
+        //duration is 0 if unknown
         return movies.stream()
                      .filter(movie -> movie.getCountryList().contains("USA"))
-                     .filter(movie -> !movie.getDuration().isEmpty()
-                         //beyond 2 hours, check first char (hour) if bigger or equal than 2, assume there is no movie with 2 digits hours
-                         && Integer.valueOf(movie.getDuration().charAt(0)) >= 2
+                     //beyond 2 hours
+                     .filter(movie -> movie.getDurationMinutes() > 120
                          //budget over 1 mio.
-                         && Utils.parseNumber(movie.getBudget()) > 1000000
+                         && movie.getBudgetDollars() > 1000000
                          //rating below 5.0
-                         && Float.valueOf(movie.getRatingValue()) < 5.0
+                         && movie.getRating() < 5.0f
                          // if 0.0 -> is not yet rated and therefore not a colossal failure
-                         && Float.valueOf(movie.getRatingValue()) > 0.0)
+                         && movie.getRating() > 0.0f)
 
                      //sort ascending by rating
-                     .sorted((m1, m2) -> {
-                         float rating1 = Float.valueOf(m1.getRatingValue());
-                         float rating2 = Float.valueOf(m2.getRatingValue());
-
-                         if (rating1 < rating2) {
-                             return -1;
-                         } else if (rating1 > rating2) {
-                             return 1;
-                         } else {
-                             return 0;
-                         }
-                     })
+                     .sorted((m1, m2) -> Float.compare(m1.getRating(), m2.getRating()))
                      .collect(Collectors.toList());
     }
 
@@ -221,40 +206,20 @@ public class IMDBQueries {
      *         sorted in decreasing order of frequency
      */
     private List<Tuple<String, Integer>> queryUncreativeWriters(final Collection<Movie> movies) {
-        //idea, hashMap with count
-        final Map<String, Integer> charactersCount = new HashMap<>();
-
-        movies.stream()
-              .forEach(movie -> movie.getCharacterList()
-                                     .forEach(character -> {
-                                         final String lowerCaseCharacter = character.toLowerCase();
-                                         if (!lowerCaseCharacter.isEmpty()
-                                             && !lowerCaseCharacter.contains("herself")
-                                             && !lowerCaseCharacter.contains("himself")
-                                             && !lowerCaseCharacter.contains("doctor")) {
-
-                                             if (charactersCount.containsKey(character)) {
-                                                 charactersCount.put(character, charactersCount.get(character) + 1);
-                                             } else {
-                                                 charactersCount.put(character, 1);
-                                             }
-                                         }
-                                     }));
-
-        return charactersCount.entrySet()
-                              .stream()
-                              .sorted((o1, o2) -> {
-                                  if (o1.getValue() > o2.getValue()) {
-                                      return -1;
-                                  } else if (o1.getValue() < o2.getValue()) {
-                                      return 1;
-                                  } else {
-                                      return 0;
-                                  }
-                              })
-                              .limit(10)
-                              .map(entry -> new Tuple<>(entry.getKey(), entry.getValue()))
-                              .collect(Collectors.toList());
+        final Frequencies characters = movies.parallelStream().collect(Frequencies.collector(Movie::getCharacterList));
+        final Predicate<String> named = character -> {
+            final String lowerCaseCharacter = character.toLowerCase();
+            return !lowerCaseCharacter.isEmpty()
+                   && !lowerCaseCharacter.contains("herself")
+                   && !lowerCaseCharacter.contains("himself")
+                   && !lowerCaseCharacter.contains("doctor");
+        };
+
+        final List<Tuple<String, Integer>> top = characters.top(10, named)
+                                                           .stream()
+                                                           .map(character -> new Tuple<>(character, characters.get(character)))
+                                                           .collect(Collectors.toList());
+        return byCountAndName(10, top, count -> tied(characters, count, named));
     }
 
     /**
@@ -267,34 +232,53 @@ public class IMDBQueries {
      *         sorted by the latter.
      */
     private List<Tuple<String, Integer>> queryWorkHorse(final Collection<Movie> movies) {
-        final Map<String, Integer> actorMap = new HashMap<>();
-
-        movies.stream()
-              .forEach(movie -> movie.getCastList().forEach(actor -> {
-                  if (!actor.isEmpty()) {
-                      if (actorMap.containsKey(actor)) {
-                          actorMap.put(actor, actorMap.get(actor) + 1);
-                      } else {
-                          actorMap.put(actor, 1);
-                      }
-                  }
-              }));
-
-        return actorMap.entrySet()
-                       .stream()
-                       .sorted((o1, o2) -> {
-                           if (o1.getValue() > o2.getValue()) {
-                               return -1;
-                           } else if (o1.getValue() < o2.getValue()) {
-                               return 1;
-                           } else {
-                               return 0;
-                           }
-                       })
-                       .limit(10)
-                       .sorted((a1, a2) -> a1.getKey().compareToIgnoreCase(a2.getKey()))
-                       .map(entry -> new Tuple<>(entry.getKey(), entry.getValue()))
-                       .collect(Collectors.toList());
+        final Frequencies actors = movies.parallelStream().collect(Frequencies.collector(Movie::getCastList));
+        final Predicate<String> named = actor -> !actor.isEmpty();
+
+        final List<Tuple<String, Integer>> top = byCountAndName(10, actors.top(10, named)
+                                                                          .stream()
+                                                                          .map(actor -> new Tuple<>(actor, actors.get(actor)))
+                                                                          .collect(Collectors.toList()),
+            count -> tied(actors, count, named));
+        top.sort((a1, a2) -> a1.first.compareToIgnoreCase(a2.first));
+        return top;
+    }
+
+    /**
+     * @return the values counted exactly 'count' times and accepted by the filter
+     */
+    private static List<String> tied(final Frequencies frequencies, final int count, final Predicate<String> filter) {
+        final List<String> tied = new ArrayList<>();
+        frequencies.forEach((value, valueCount) -> {
+            if (valueCount == count && filter.test(value)) {
+                tied.add(value);
+            }
+        });
+        return tied;
+    }
+
+    /**
+     * Ranks the most frequent names by count, equal counts by name. Each engine breaks ties in
+     * its own order, by hash or by dictionary id, so without this they would disagree on names
+     * sharing the last place.
+     *
+     * @param k    number of names
+     * @param top  the up to 'k' most frequent names, ties in any order
+     * @param tied all names counted as often as the given count, including those in 'top'
+     * @return the 'k' most frequent names, larger counts first, equal counts by name
+     */
+    private List<Tuple<String, Integer>> byCountAndName(final int k, final List<Tuple<String, Integer>> top, final IntFunction<List<String>> tied) {
+        final List<Tuple<String, Integer>> ranked = new ArrayList<>(top);
+        if (ranked.size() == k && k > 0) {
+            //all names of the last count compete for the places taken by some of them
+            final int last = ranked.get(k - 1).second;
+            ranked.removeIf(tuple -> tuple.second == last);
+            for (final String name : tied.apply(last)) {
+                ranked.add(new Tuple<>(name, last));
+            }
+        }
+        ranked.sort(Comparator.<Tuple<String, Integer>> comparingInt(tuple -> -tuple.second).thenComparing(tuple -> tuple.first));
+        return new ArrayList<>(ranked.subList(0, Math.min(k, ranked.size())));
     }
 
     /**
@@ -304,22 +288,19 @@ public class IMDBQueries {
      *
      * @param movies
      *          the list of movies which is to be queried
-     * @return best movies by year, starting from 1990 until 2010.
-     */
-    private List<Movie> queryMustSee(final Collection<Movie> movies) {
-        final List<Movie> sortedMovies = new ArrayList<>(20);
-        for (int year = 1990; year <= 2010; year++) {
-            final int finalYear = year;
-            final Optional<Movie> optionalLowestMovie = movies.stream()
-                                                              .filter(movie -> Integer.valueOf(movie.getYear()) == finalYear
-                                                                  && Utils.parseNumber(movie.getRatingCount()) > 10000)
-                                                              .max((m1, m2) -> Double.compare(Double.valueOf(m1.getRatingValue()),
-                                                                  Double.valueOf(m2.getRatingValue())));
-            if (optionalLowestMovie.isPresent()) {
-                sortedMovies.add(optionalLowestMovie.get());
-            }
-        }
-        return sortedMovies;
+     * @param from
+     *          first year, 1990 in the query
+     * @param to
+     *          last year (including), 2010 in the query
+     * @return best movies by year, starting from 'from' until 'to'.
+     */
+    private List<Movie> queryMustSee(final Collection<Movie> movies, final int from, final int to) {
+        //one pass over all movies, on equal ratings the first movie wins
+        return new ArrayList<>(movies.stream()
+                                     .filter(movie -> movie.getYearValue() >= from && movie.getYearValue() <= to
+                                         && movie.getRatingCountValue() > 10000)
+                                     .collect(ArgBest.max(Movie::getYearValue, movie -> TopK.floatKey(movie.getRating())))
+                                     .values());
     }
 
     /**
@@ -329,22 +310,18 @@ public class IMDBQueries {
      *
      * @param movies
      *          the list of movies which is to be queried
-     * @return worst movies by year, starting from 1990 till (including) 2010.
-     */
-    private static List<Movie> queryRottenTomatoes(final Collection<Movie> movies) {
-        final List<Movie> sortedMovies = new ArrayList<>(20);
-        for (int year = 1990; year <= 2010; year++) {
-            final int finalYear = year;
-            final Optional<Movie> optionalLowestMovie = movies.stream()
-                                                              .filter(movie -> Integer.valueOf(movie.getYear()) == finalYear
-                                                                  && Double.valueOf(movie.getRatingValue()) > 0.0)
-                                                              .min((m1, m2) -> Double.compare(Double.valueOf(m1.getRatingValue()),
-                                                                  Double.valueOf(m2.getRatingValue())));
-            if (optionalLowestMovie.isPresent()) {
-                sortedMovies.add(optionalLowestMovie.get());
-            }
-        }
-        return sortedMovies;
+     * @param from
+     *          first year, 1990 in the query
+     * @param to
+     *          last year (including), 2010 in the query
+     * @return worst movies by year, starting from 'from' till (including) 'to'.
+     */
+    private static List<Movie> queryRottenTomatoes(final Collection<Movie> movies, final int from, final int to) {
+        return new ArrayList<>(movies.stream()
+                                     .filter(movie -> movie.getYearValue() >= from && movie.getYearValue() <= to
+                                         && movie.getRating() > 0.0f)
+                                     .collect(ArgBest.min(Movie::getYearValue, movie -> TopK.floatKey(movie.getRating())))
+                                     .values());
     }
 
     /**
@@ -359,28 +336,486 @@ public class IMDBQueries {
      *         feature together. Sort by number of movies.
      */
     private List<Tuple<Tuple<String, String>, Integer>> queryMagicCouple(List<Movie> movies) {
-        // TODO Impossibly Hard Query: insert code here
-        return new ArrayList<>();
+        //actor ids in order of appearance, pairs are counted on ids, see ActorPairs
+        final Map<String, Integer> ids = new HashMap<>();
+        final List<String> actors = new ArrayList<>();
+        final int[][] casts = new int[movies.size()][];
+        for (int movie = 0; movie < casts.length; movie++) {
+            final List<String> cast = movies.get(movie).getCastList();
+            casts[movie] = new int[cast.size()];
+            for (int i = 0; i < cast.size(); i++) {
+                casts[movie][i] = cast.get(i).isEmpty() ? -1 : ids.computeIfAbsent(cast.get(i), actor -> {
+                    actors.add(actor);
+                    return actors.size() - 1;
+                });
+            }
+        }
+
+        return couples(ActorPairs.topWithTies(casts.length, movie -> casts[movie], ActorPairs.MAX_CAST, 10), actors::get);
+    }
+
+    /**
+     * Names the top couples. Actor ids differ between the engines, so the names of a couple and
+     * couples of equal movies are put in alphabetical order to give the same result.
+     *
+     * @param couples the top couples and those tied with the last of them, see {@link ActorPairs#topWithTies}
+     * @param actor   name of an actor id
+     * @return the top 10 couples, most movies first
+     */
+    private List<Tuple<Tuple<String, String>, Integer>> couples(final List<ActorPairs.Couple> couples, final IntFunction<String> actor) {
+        return couples.stream()
+                      .map(couple -> {
+                          final String first = actor.apply(couple.first);
+                          final String second = actor.apply(couple.second);
+                          return new Tuple<>(first.compareTo(second) <= 0 ? new Tuple<>(first, second) : new Tuple<>(second, first), couple.movies);
+                      })
+                      .sorted(Comparator.<Tuple<Tuple<String, String>, Integer>> comparingInt(couple -> -couple.second)
+                                        .thenComparing(couple -> couple.first.first)
+                                        .thenComparing(couple -> couple.first.second))
+                      .limit(10)
+                      .collect(Collectors.toList());
+    }
+
+    /*
+     * The same queries on a MovieStore: predicates read the primitive and dictionary columns
+     * row by row without creating objects, only the results are turned into Movies.
+     */
+
+    /**
+     * @see #queryAllRounder(Collection)
+     */
+    private List<Tuple<Movie, String>> queryAllRounder(final MovieStore store) {
+        return IntStream.range(0, store.size())
+                        .filter(row -> directorInCast(store, row) >= 0)
+                        .boxed()
+                        .collect(TopK.collector(10, row -> TopK.floatKey(store.ratingValue(row))))
+                        .stream()
+                        .map(row -> new Tuple<>(store.movie(row), store.dictionaryValue(ListColumn.DIRECTOR, directorInCast(store, row))))
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @return id of the first director of the movie who is also part of its cast, -1 if there is none
+     */
+    private static int directorInCast(final MovieStore store, final int row) {
+        for (int i = 0; i < store.listSize(ListColumn.DIRECTOR, row); i++) {
+            final int director = store.listValue(ListColumn.DIRECTOR, row, i);
+            if (store.listContains(ListColumn.CAST, row, director)) {
+                return director;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @see #queryUnderTheRadar(List)
+     */
+    private List<Tuple<Movie, Long>> queryUnderTheRadar(final MovieStore store) {
+        final int usa = store.dictionaryId(ListColumn.COUNTRY, "USA");
+        return IntStream.range(0, store.size())
+                        .filter(row -> store.year(row) <= 2015 && store.listContains(ListColumn.COUNTRY, row, usa))
+                        .filter(row -> store.ratingValue(row) > 8.0f && store.ratingCount(row) >= 1000)
+                        .boxed()
+                        .collect(TopK.collector(10, row -> store.budget(row) - store.gross(row)))
+                        .stream()
+                        .map(row -> new Tuple<>(store.movie(row), store.budget(row) - store.gross(row)))
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryPillarsOfStorytelling(Collection)
+     */
+    private List<Tuple<Movie, Integer>> queryPillarsOfStorytelling(final MovieStore store) {
+        return queryKeywords(store, KILL_AND_LOVE, 10);
+    }
+
+    /**
+     * @see #queryKeywords(Collection, Keywords, int)
+     */
+    private List<Tuple<Movie, Integer>> queryKeywords(final MovieStore store, final Keywords keywords, final int k) {
+        final int[] totals = new int[store.size()];
+        IntStream.range(0, store.size()).parallel().forEach(row -> {
+            final int[] counts = store.count(TextColumn.DESCRIPTION, row, keywords);
+            totals[row] = Keywords.all(counts) ? Keywords.total(counts) : 0;
+        });
+        return IntStream.range(0, store.size())
+                        .filter(row -> totals[row] > 0)
+                        .boxed()
+                        .collect(TopK.collector(k, row -> totals[row]))
+                        .stream()
+                        .map(row -> new Tuple<>(store.movie(row), totals[row]))
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryRedPlanet(Collection)
+     */
+    private List<Movie> queryRedPlanet(final MovieStore store) {
+        final int sciFi = store.dictionaryId(ListColumn.GENRE, "Sci-Fi");
+        return IntStream.range(0, store.size())
+                        .filter(row -> store.listContains(ListColumn.GENRE, row, sciFi))
+                        .filter(row -> Keywords.all(store.count(TextColumn.DESCRIPTION, row, MARS)))
+                        .boxed()
+                        .sorted((r1, r2) -> Integer.compare(store.year(r1), store.year(r2)))
+                        .map(store::movie)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryColossalFailure(Collection)
+     */
+    private List<Movie> queryColossalFailure(final MovieStore store) {
+        final int usa = store.dictionaryId(ListColumn.COUNTRY, "USA");
+        return IntStream.range(0, store.size())
+                        .filter(row -> store.listContains(ListColumn.COUNTRY, row, usa))
+                        .filter(row -> store.duration(row) > 120
+                            && store.budget(row) > 1000000
+                            && store.ratingValue(row) < 5.0f
+                            && store.ratingValue(row) > 0.0f)
+                        .boxed()
+                        .sorted((r1, r2) -> Float.compare(store.ratingValue(r1), store.ratingValue(r2)))
+                        .map(store::movie)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryUncreativeWriters(Collection)
+     */
+    private List<Tuple<String, Integer>> queryUncreativeWriters(final MovieStore store) {
+        //names are checked once per distinct character, not once per appearance
+        final int[] counts = countValues(store, ListColumn.CHARACTER);
+        for (int id = 0; id < counts.length; id++) {
+            final String lowerCaseCharacter = store.dictionaryValue(ListColumn.CHARACTER, id).toLowerCase();
+            if (lowerCaseCharacter.isEmpty()
+                || lowerCaseCharacter.contains("herself")
+                || lowerCaseCharacter.contains("himself")
+                || lowerCaseCharacter.contains("doctor")) {
+                counts[id] = 0;
+            }
+        }
+
+        final List<Tuple<String, Integer>> top = IntStream.range(0, counts.length)
+                                                          .filter(id -> counts[id] > 0)
+                                                          .boxed()
+                                                          .collect(TopK.collector(10, id -> counts[id]))
+                                                          .stream()
+                                                          .map(id -> new Tuple<>(store.dictionaryValue(ListColumn.CHARACTER, id), counts[id]))
+                                                          .collect(Collectors.toList());
+        return byCountAndName(10, top, count -> tied(store, ListColumn.CHARACTER, counts, count));
+    }
+
+    /**
+     * @see #queryWorkHorse(Collection)
+     */
+    private List<Tuple<String, Integer>> queryWorkHorse(final MovieStore store) {
+        final int[] counts = countValues(store, ListColumn.CAST);
+        final int empty = store.dictionaryId(ListColumn.CAST, "");
+        if (empty >= 0) {
+            counts[empty] = 0;
+        }
+
+        final List<Tuple<String, Integer>> top = IntStream.range(0, counts.length)
+                                                          .filter(id -> counts[id] > 0)
+                                                          .boxed()
+                                                          .collect(TopK.collector(10, id -> counts[id]))
+                                                          .stream()
+                                                          .map(id -> new Tuple<>(store.dictionaryValue(ListColumn.CAST, id), counts[id]))
+                                                          .collect(Collectors.toList());
+        final List<Tuple<String, Integer>> ranked = byCountAndName(10, top, count -> tied(store, ListColumn.CAST, counts, count));
+        ranked.sort((a1, a2) -> a1.first.compareToIgnoreCase(a2.first));
+        return ranked;
+    }
+
+    /**
+     * @return the dictionary values counted exactly 'count' times
+     */
+    private static List<String> tied(final MovieStore store, final ListColumn column, final int[] counts, final int count) {
+        final List<String> tied = new ArrayList<>();
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == count) {
+                tied.add(store.dictionaryValue(column, id));
+            }
+        }
+        return tied;
+    }
+
+    /**
+     * @return number of appearances of every dictionary id in the column
+     */
+    private static int[] countValues(final MovieStore store, final ListColumn column) {
+        final int[] counts = new int[store.dictionarySize(column)];
+        for (int row = 0; row < store.size(); row++) {
+            for (int i = 0; i < store.listSize(column, row); i++) {
+                counts[store.listValue(column, row, i)]++;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @see #queryMustSee(Collection, int, int)
+     */
+    private List<Movie> queryMustSee(final MovieStore store, final int from, final int to) {
+        return IntStream.range(0, store.size())
+                        .filter(row -> store.year(row) >= from && store.year(row) <= to && store.ratingCount(row) > 10000)
+                        .boxed()
+                        .collect(ArgBest.max(store::year, row -> TopK.floatKey(store.ratingValue(row))))
+                        .values()
+                        .stream()
+                        .map(store::movie)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryRottenTomatoes(Collection, int, int)
+     */
+    private static List<Movie> queryRottenTomatoes(final MovieStore store, final int from, final int to) {
+        return IntStream.range(0, store.size())
+                        .filter(row -> store.year(row) >= from && store.year(row) <= to && store.ratingValue(row) > 0.0f)
+                        .boxed()
+                        .collect(ArgBest.min(store::year, row -> TopK.floatKey(store.ratingValue(row))))
+                        .values()
+                        .stream()
+                        .map(store::movie)
+                        .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryMagicCouple(List)
+     */
+    private List<Tuple<Tuple<String, String>, Integer>> queryMagicCouple(final MovieStore store) {
+        final int empty = store.dictionaryId(ListColumn.CAST, "");
+        final List<ActorPairs.Couple> couples = ActorPairs.topWithTies(store.size(), row -> {
+            final int[] cast = new int[store.listSize(ListColumn.CAST, row)];
+            for (int i = 0; i < cast.length; i++) {
+                cast[i] = store.listValue(ListColumn.CAST, row, i);
+                cast[i] = cast[i] == empty ? -1 : cast[i];
+            }
+            return cast;
+        }, ActorPairs.MAX_CAST, 10);
+        return couples(couples, id -> store.dictionaryValue(ListColumn.CAST, id));
+    }
+
+    /*
+     * The same queries on MovieColumns: every predicate is a loop over one primitive column
+     * producing a selection bitmap, the bitmaps are intersected and only the selected rows are
+     * ranked with a bounded heap.
+     */
+
+    /**
+     * @see #queryAllRounder(Collection)
+     */
+    private List<Tuple<Movie, String>> queryAllRounder(final MovieColumns columns) {
+        final MovieColumns.Selection selection = columns.all().retain(row -> directorInCast(columns, row) >= 0);
+        return Arrays.stream(MovieColumns.top(selection, 10, row -> TopK.floatKey(columns.ratingValue(row))))
+                     .mapToObj(row -> new Tuple<>(columns.movie(row), columns.dictionaryValue(ListColumn.DIRECTOR, directorInCast(columns, row))))
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @return id of the first director of the movie who is also part of its cast, -1 if there is none
+     */
+    private static int directorInCast(final MovieColumns columns, final int row) {
+        for (int i = 0; i < columns.listSize(ListColumn.DIRECTOR, row); i++) {
+            final int director = columns.listValue(ListColumn.DIRECTOR, row, i);
+            if (columns.listContains(ListColumn.CAST, row, director)) {
+                return director;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @see #queryUnderTheRadar(List)
+     */
+    private List<Tuple<Movie, Long>> queryUnderTheRadar(final MovieColumns columns) {
+        final MovieColumns.Selection selection = columns.yearBetween(Integer.MIN_VALUE, 2015)
+                                                        .and(columns.having(ListColumn.COUNTRY, "USA"))
+                                                        .and(columns.ratingBetween(8.0f, Float.POSITIVE_INFINITY))
+                                                        .and(columns.ratingCountAtLeast(1000));
+        return Arrays.stream(MovieColumns.top(selection, 10, row -> columns.budget(row) - columns.gross(row)))
+                     .mapToObj(row -> new Tuple<>(columns.movie(row), columns.budget(row) - columns.gross(row)))
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryPillarsOfStorytelling(MovieStore)
+     */
+    private List<Tuple<Movie, Integer>> queryPillarsOfStorytelling(final MovieColumns columns) {
+        return queryKeywords(columns, KILL_AND_LOVE, 10);
+    }
+
+    /**
+     * @see #queryKeywords(Collection, Keywords, int)
+     */
+    private List<Tuple<Movie, Integer>> queryKeywords(final MovieColumns columns, final Keywords keywords, final int k) {
+        final int[] totals = new int[columns.size()];
+        IntStream.range(0, columns.size()).parallel().forEach(row -> {
+            final int[] counts = keywords.count(columns.description(row));
+            totals[row] = Keywords.all(counts) ? Keywords.total(counts) : 0;
+        });
+        final MovieColumns.Selection selection = columns.all().retain(row -> totals[row] > 0);
+        return Arrays.stream(MovieColumns.top(selection, k, row -> totals[row]))
+                     .mapToObj(row -> new Tuple<>(columns.movie(row), totals[row]))
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryRedPlanet(Collection)
+     */
+    private List<Movie> queryRedPlanet(final MovieColumns columns) {
+        final MovieColumns.Selection selection = columns.having(ListColumn.GENRE, "Sci-Fi")
+                                                        .retain(row -> Keywords.all(MARS.count(columns.description(row))));
+        return Arrays.stream(MovieColumns.top(selection, selection.count(), row -> -columns.year(row)))
+                     .mapToObj(columns::movie)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryColossalFailure(Collection)
+     */
+    private List<Movie> queryColossalFailure(final MovieColumns columns) {
+        final MovieColumns.Selection selection = columns.having(ListColumn.COUNTRY, "USA")
+                                                        .and(columns.durationAbove(120))
+                                                        .and(columns.budgetAbove(1000000))
+                                                        .and(columns.ratingBetween(0.0f, 5.0f));
+        return Arrays.stream(MovieColumns.top(selection, selection.count(), row -> -TopK.floatKey(columns.ratingValue(row))))
+                     .mapToObj(columns::movie)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryUncreativeWriters(Collection)
+     */
+    private List<Tuple<String, Integer>> queryUncreativeWriters(final MovieColumns columns) {
+        final int[] counts = columns.countValues(ListColumn.CHARACTER);
+        final MovieColumns.Selection selection = new MovieColumns.Selection(counts.length);
+        for (int id = 0; id < counts.length; id++) {
+            final String lowerCaseCharacter = columns.dictionaryValue(ListColumn.CHARACTER, id).toLowerCase();
+            if (!lowerCaseCharacter.isEmpty()
+                && !lowerCaseCharacter.contains("herself")
+                && !lowerCaseCharacter.contains("himself")
+                && !lowerCaseCharacter.contains("doctor")) {
+                selection.set(id);
+            }
+        }
+
+        final List<Tuple<String, Integer>> top = Arrays.stream(MovieColumns.top(selection, 10, id -> counts[id]))
+                                                       .mapToObj(id -> new Tuple<>(columns.dictionaryValue(ListColumn.CHARACTER, id), counts[id]))
+                                                       .collect(Collectors.toList());
+        return byCountAndName(10, top, count -> tied(columns, ListColumn.CHARACTER, selection, counts, count));
+    }
+
+    /**
+     * @see #queryWorkHorse(Collection)
+     */
+    private List<Tuple<String, Integer>> queryWorkHorse(final MovieColumns columns) {
+        final int[] counts = columns.countValues(ListColumn.CAST);
+        final MovieColumns.Selection selection = new MovieColumns.Selection(counts.length);
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] > 0 && !columns.dictionaryValue(ListColumn.CAST, id).isEmpty()) {
+                selection.set(id);
+            }
+        }
+
+        final List<Tuple<String, Integer>> top = Arrays.stream(MovieColumns.top(selection, 10, id -> counts[id]))
+                                                       .mapToObj(id -> new Tuple<>(columns.dictionaryValue(ListColumn.CAST, id), counts[id]))
+                                                       .collect(Collectors.toList());
+        final List<Tuple<String, Integer>> ranked = byCountAndName(10, top, count -> tied(columns, ListColumn.CAST, selection, counts, count));
+        ranked.sort((a1, a2) -> a1.first.compareToIgnoreCase(a2.first));
+        return ranked;
+    }
+
+    /**
+     * @return the selected dictionary values counted exactly 'count' times
+     */
+    private static List<String> tied(final MovieColumns columns, final ListColumn column, final MovieColumns.Selection selection, final int[] counts,
+                                     final int count) {
+        final List<String> tied = new ArrayList<>();
+        for (int id = selection.next(0); id >= 0; id = selection.next(id + 1)) {
+            if (counts[id] == count) {
+                tied.add(columns.dictionaryValue(column, id));
+            }
+        }
+        return tied;
+    }
+
+    /**
+     * @see #queryMustSee(Collection, int, int)
+     */
+    private List<Movie> queryMustSee(final MovieColumns columns, final int from, final int to) {
+        final MovieColumns.Selection selection = columns.ratingCountAtLeast(10001);
+        return Arrays.stream(columns.bestPerYear(selection, from, to, row -> TopK.floatKey(columns.ratingValue(row))))
+                     .filter(row -> row >= 0)
+                     .mapToObj(columns::movie)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryRottenTomatoes(Collection, int, int)
+     */
+    private static List<Movie> queryRottenTomatoes(final MovieColumns columns, final int from, final int to) {
+        final MovieColumns.Selection selection = columns.ratingBetween(0.0f, Float.POSITIVE_INFINITY);
+        return Arrays.stream(columns.bestPerYear(selection, from, to, row -> -TopK.floatKey(columns.ratingValue(row))))
+                     .filter(row -> row >= 0)
+                     .mapToObj(columns::movie)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @see #queryMagicCouple(List)
+     */
+    private List<Tuple<Tuple<String, String>, Integer>> queryMagicCouple(final MovieColumns columns) {
+        final int empty = columns.dictionaryId(ListColumn.CAST, "");
+        final List<ActorPairs.Couple> couples = ActorPairs.topWithTies(columns.size(), row -> {
+            final int[] cast = new int[columns.listSize(ListColumn.CAST, row)];
+            for (int i = 0; i < cast.length; i++) {
+                cast[i] = columns.listValue(ListColumn.CAST, row, i);
+                cast[i] = cast[i] == empty ? -1 : cast[i];
+            }
+            return cast;
+        }, ActorPairs.MAX_CAST, 10);
+        return couples(couples, id -> columns.dictionaryValue(ListColumn.CAST, id));
     }
 
     public static void main(String argv[]) throws IOException {
         // String moviesPath = ".".concat(File.separator).concat("data").concat(File.separator).concat("movies").concat(File.separator);
         String moviesPath = ".".concat(File.separator).concat("data").concat(File.separator);
 
-        if (argv.length == 1) {
+        boolean inMemoryColumns = false;
+
+        if (argv.length == 2 && "-columns".equals(argv[0])) {
+            inMemoryColumns = true;
+            moviesPath = argv[1];
+        } else if (argv.length == 1) {
             moviesPath = argv[0];
         } else if (argv.length != 0) {
-            System.out.println("Call with: imdb.IMDBQueries.jar <moviesPath>");
+            System.out.println("Call with: imdb.IMDBQueries.jar [-columns] <moviesPath>");
             System.exit(0);
         }
 
-        final List<Movie> movies = MovieReader.readMoviesFrom(new File(moviesPath));
+        // a file is a MovieStore, a directory holds JSON files
+        final File input = new File(moviesPath);
+        final MovieStore inputStore = input.isFile() ? new MovieStore(input) : null;
+        final List<Movie> inputMovies = inputStore == null ? MovieReader.readMoviesFrom(input) : null;
+
+        // -columns loads either into memory once and runs all queries on the columns
+        MovieColumns columns = null;
+        if (inMemoryColumns) {
+            final long time = System.currentTimeMillis();
+            columns = inputStore != null ? MovieColumns.of(inputStore) : MovieColumns.of(inputMovies);
+            System.out.println("Loaded " + columns.size() + " movies into columns, time: " + (System.currentTimeMillis() - time));
+            System.out.println("");
+        }
+        final MovieStore store = columns == null ? inputStore : null;
+        final List<Movie> movies = columns == null ? inputMovies : null;
 
         System.out.println("All-rounder");
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Tuple<Movie, String>> result = queries.queryAllRounder(movies);
+            List<Tuple<Movie, String>> result = columns != null ? queries.queryAllRounder(columns)
+                : store != null ? queries.queryAllRounder(store) : queries.queryAllRounder(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && result.size() == 10) {
@@ -398,7 +833,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Tuple<Movie, Long>> result = queries.queryUnderTheRadar(movies);
+            List<Tuple<Movie, Long>> result = columns != null ? queries.queryUnderTheRadar(columns)
+                : store != null ? queries.queryUnderTheRadar(store) : queries.queryUnderTheRadar(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && result.size() <= 10) {
@@ -417,8 +853,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Tuple<Movie, Integer>> result = queries
-                .queryPillarsOfStorytelling(movies);
+            List<Tuple<Movie, Integer>> result = columns != null ? queries.queryPillarsOfStorytelling(columns)
+                : store != null ? queries.queryPillarsOfStorytelling(store) : queries.queryPillarsOfStorytelling(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && result.size() <= 10) {
@@ -436,7 +872,8 @@ public class IMDBQueries {
         {
             final IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            final List<Movie> result = queries.queryRedPlanet(movies);
+            final List<Movie> result = columns != null ? queries.queryRedPlanet(columns)
+                : store != null ? queries.queryRedPlanet(store) : queries.queryRedPlanet(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty()) {
@@ -453,7 +890,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Movie> result = queries.queryColossalFailure(movies);
+            List<Movie> result = columns != null ? queries.queryColossalFailure(columns)
+                : store != null ? queries.queryColossalFailure(store) : queries.queryColossalFailure(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty()) {
@@ -471,8 +909,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Tuple<String, Integer>> result = queries
-                .queryUncreativeWriters(movies);
+            List<Tuple<String, Integer>> result = columns != null ? queries.queryUncreativeWriters(columns)
+                : store != null ? queries.queryUncreativeWriters(store) : queries.queryUncreativeWriters(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && result.size() <= 10) {
@@ -489,7 +927,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Tuple<String, Integer>> result = queries.queryWorkHorse(movies);
+            List<Tuple<String, Integer>> result = columns != null ? queries.queryWorkHorse(columns)
+                : store != null ? queries.queryWorkHorse(store) : queries.queryWorkHorse(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && result.size() <= 10) {
@@ -506,7 +945,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Movie> result = queries.queryMustSee(movies);
+            List<Movie> result = columns != null ? queries.queryMustSee(columns, FIRST_YEAR, LAST_YEAR)
+                : store != null ? queries.queryMustSee(store, FIRST_YEAR, LAST_YEAR) : queries.queryMustSee(movies, FIRST_YEAR, LAST_YEAR);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && !result.isEmpty()) {
@@ -524,7 +964,9 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Movie> result = IMDBQueries.queryRottenTomatoes(movies);
+            List<Movie> result = columns != null ? IMDBQueries.queryRottenTomatoes(columns, FIRST_YEAR, LAST_YEAR)
+                : store != null ? IMDBQueries.queryRottenTomatoes(store, FIRST_YEAR, LAST_YEAR)
+                : IMDBQueries.queryRottenTomatoes(movies, FIRST_YEAR, LAST_YEAR);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty() && !result.isEmpty()) {
@@ -542,8 +984,8 @@ public class IMDBQueries {
         {
             IMDBQueries queries = new IMDBQueries();
             long time = System.currentTimeMillis();
-            List<Tuple<Tuple<String, String>, Integer>> result = queries
-                .queryMagicCouple(movies);
+            List<Tuple<Tuple<String, String>, Integer>> result = columns != null ? queries.queryMagicCouple(columns)
+                : store != null ? queries.queryMagicCouple(store) : queries.queryMagicCouple(movies);
             System.out.println("Time:" + (System.currentTimeMillis() - time));
 
             if (result != null && !result.isEmpty()) {
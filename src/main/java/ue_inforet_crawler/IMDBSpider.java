@@ -4,43 +4,150 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.htmlcleaner.HtmlCleaner;
 import org.htmlcleaner.TagNode;
-import org.htmlcleaner.XPatherException;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 
 public class IMDBSpider {
 
-    private IMDBSpider() {
+    /**
+     * Base url of IMDB, can be pointed to a local stand-in serving canned pages via -Dimdb.host=...
+     */
+    private static final String HOST = System.getProperty("imdb.host", "http://akas.imdb.com");
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final String JOURNAL_FILE = "crawl.journal";
+
+    /**
+     * Title resolutions, kept in the page cache directory to be shared by all crawls, in the output directory if the cache is disabled
+     */
+    private static final String TITLE_CACHE_FILE = "titles.tsv";
+
+    /**
+     * Year behind the title of a search result, e.g. "Avatar (2009)" or "Avatar (I) (2009)"
+     */
+    private static final Pattern RESULT_YEAR = Pattern.compile("\\((\\d{4})\\)");
+
+    /**
+     * Search and detail pages are both parsed by HtmlCleaner, one instance per worker thread
+     */
+    private static final ThreadLocal<HtmlCleaner> CLEANER = ThreadLocal.withInitial(HtmlCleaner::new);
+
+    /**
+     * Sustained requests per second and host, can be set via -Dimdb.requestsPerSecond=...
+     */
+    private static final double REQUESTS_PER_SECOND = Double.parseDouble(System.getProperty("imdb.requestsPerSecond", "5"));
+
+    private static final int BURST = 5;
+
+    private static final int MAX_ATTEMPTS = 4;
+
+    private static final double RETRY_RATIO = 0.1;
+
+    /**
+     * Directory of the page cache, can be set via -Dimdb.cacheDir=..., an empty value disables the cache
+     */
+    private static final String CACHE_DIR = System.getProperty("imdb.cacheDir", ".".concat(File.separator).concat("cache"));
+
+    private static final long CACHE_MAX_BYTES = Long.parseLong(System.getProperty("imdb.cacheMegabytes", "1024")) * 1024L * 1024L;
+
+    /**
+     * Cached pages younger than this are used without asking IMDB, older ones are revalidated
+     */
+    private static final long CACHE_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(Long.parseLong(System.getProperty("imdb.cacheMaxAgeHours", "24")));
+
+    /**
+     * Output format, 'files' writes one JSON file per movie, 'jsonl' appends all movies to
+     * JSON Lines segments (see {@link MovieLogWriter}), can be set via -Dimdb.output=...
+     */
+    private static final String OUTPUT = System.getProperty("imdb.output", "files");
+
+    private static final long SEGMENT_MAX_BYTES = Long.parseLong(System.getProperty("imdb.segmentMegabytes", "64")) * 1024L * 1024L;
+
+    /**
+     * Maximum number of movies refreshed by one update run, can be set via -Dimdb.refreshLimit=...
+     */
+    private static final int REFRESH_LIMIT = Integer.parseInt(System.getProperty("imdb.refreshLimit", Integer.toString(Integer.MAX_VALUE)));
+
+    /**
+     * Seconds between two metrics reports, can be set via -Dimdb.metricsIntervalSeconds=...
+     */
+    private static final long METRICS_INTERVAL_SECONDS = Long.parseLong(System.getProperty("imdb.metricsIntervalSeconds", "30"));
+
+    /**
+     * Metrics in the Prometheus text format, written to the output directory
+     */
+    private static final String METRICS_FILE = "metrics.prom";
+
+    private final CrawlMetrics metrics = new CrawlMetrics();
+
+    private final PageFetcher fetcher;
+
+    private final MovieExtractor extractor = new MovieExtractor();
+
+    private final int networkWorkers;
+
+    private final int parseWorkers;
+
+    private IMDBSpider(final int networkWorkers, final int parseWorkers) throws IOException {
+        this.networkWorkers = networkWorkers;
+        this.parseWorkers = parseWorkers;
+
+        final PolitenessScheduler scheduler = new PolitenessScheduler(REQUESTS_PER_SECOND, BURST, MAX_ATTEMPTS, RETRY_RATIO);
+        final PageCache cache = CACHE_DIR.isEmpty() ? null : new PageCache(new File(CACHE_DIR), CACHE_MAX_BYTES);
+        this.fetcher = new PageFetcher(scheduler, cache, CACHE_MAX_AGE_MILLIS, metrics);
     }
 
     public static void main(final String[] argv) throws IOException {
         String moviesPath = ".".concat(File.separator).concat("resources").concat(File.separator).concat("movies.json");
         String outputDir = ".".concat(File.separator).concat("data").concat(File.separator);
+        int networkWorkers = 4;
+        boolean update = false;
 
-        if (argv.length == 2) {
+        if ((argv.length == 2 || argv.length == 3) && "-update".equals(argv[0])) {
+            update = true;
+            outputDir = argv[1];
+            if (argv.length == 3) {
+                networkWorkers = Integer.parseInt(argv[2]);
+            }
+        } else if (argv.length == 2 || argv.length == 3) {
             moviesPath = argv[0];
             outputDir = argv[1];
+            if (argv.length == 3) {
+                networkWorkers = Integer.parseInt(argv[2]);
+            }
         } else if (argv.length != 0) {
-            System.out.println("Call with: imdb.IMDBSpider.jar <moviesPath> <outputDir>");
+            System.out.println("Call with: imdb.IMDBSpider.jar <moviesPath> <outputDir> [<networkWorkers>]");
+            System.out.println("       or: imdb.IMDBSpider.jar -update <outputDir> [<networkWorkers>]");
             System.exit(0);
         }
 
-        final IMDBSpider sp = new IMDBSpider();
-        sp.fetchIMDBMovies(moviesPath, outputDir);
+        // both network stages hit the same hosts, keep a pooled keep-alive connection for every worker
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", Integer.toString(2 * networkWorkers));
+        }
+
+        final IMDBSpider sp = new IMDBSpider(networkWorkers, Runtime.getRuntime().availableProcessors());
+        if (update) {
+            sp.updateIMDBMovies(outputDir);
+        } else {
+            sp.fetchIMDBMovies(moviesPath, outputDir);
+        }
     }
 
     /**
@@ -58,66 +165,272 @@ public class IMDBSpider {
      *    http://www.imdb.com/title/tt0499549/?ref_=fn_al_tt_1 for Avatar - store
      * </pre>
      * <p>
+     * The steps run as stages of a {@link CrawlPipeline}: search-resolve and detail fetch
+     * use 'networkWorkers' threads each, parsing uses one thread per core and a single
+     * thread writes the files. With -Dimdb.output=jsonl the movies are appended to a few
+     * large JSON Lines segments instead of one file each.
+     * <p>
+     * Every finished title is recorded in a {@link CrawlJournal} in 'outputDir'. Titles the
+     * journal knows as crawled are skipped, so an interrupted crawl resumes where it stopped.
+     * <p>
+     * Titles are resolved by a {@link TitleResolver}: repeated titles and titles differing only
+     * in case or punctuation are answered from its cache, searches pick the best matching
+     * result instead of the first.
+     * <p>
      * JSON file containing movie titles
      *
      * @param outputDir output directory name of JSON files with metadata of movies.
      * @throws IOException
      */
-    @SuppressWarnings("unchecked")
     private void fetchIMDBMovies(final String movieListJSON, final String outputDir) throws IOException {
+        final List<String> movieNames = new ArrayList<>();
         try {
             final File moviesInput = new File(movieListJSON);
             final JSONParser jsonParser = new JSONParser();
             final InputStreamReader reader = new InputStreamReader(new FileInputStream(moviesInput), "UTF-8");
             final JSONArray object = (JSONArray) jsonParser.parse(reader);
 
-            object.forEach(entry -> {
+            for (final Object entry : object) {
                 final JSONObject jsonObject = (JSONObject) entry;
-                final String movieName = (String) jsonObject.get("movie_name");
-                System.out.println("JSON movie name: " + movieName);
-                final String movieDetailUrl = getUrlToFirstMovieHit(movieName);
-                final MovieWriter writer = new MovieWriter(outputDir);
-
-                writer.addMovie(extractMetaData(movieDetailUrl));
-                writer.writeFile();
-                // printMovie(movie);
-            });
+                movieNames.add((String) jsonObject.get("movie_name"));
+            }
         } catch (final ParseException e) {
             e.printStackTrace();
             System.exit(-1);
         }
+
+        final File outDir = new File(outputDir);
+        if (!outDir.exists() && !outDir.mkdirs()) {
+            throw new IOException("Can not create output directory " + outputDir);
+        }
+        metrics.start(METRICS_INTERVAL_SECONDS, new File(outDir, METRICS_FILE));
+
+        try (MovieLogWriter log = openLog(outDir);
+             CrawlJournal journal = new CrawlJournal(new File(outDir, JOURNAL_FILE), log);
+             TitleResolver resolver = new TitleResolver(new File(CACHE_DIR.isEmpty() ? outDir : new File(CACHE_DIR), TITLE_CACHE_FILE))) {
+            final List<String> pending = new ArrayList<>(movieNames.size());
+            for (final String movieName : movieNames) {
+                if (!journal.isFinished(movieName)) {
+                    pending.add(movieName);
+                }
+            }
+            System.out.println("Journal: " + (movieNames.size() - pending.size()) + " titles already crawled, " + pending.size() + " to go");
+
+            crawl(pending, outputDir, log, journal, resolver);
+            System.out.println("Title cache: " + resolver);
+        }
+
+        printStatistics();
     }
 
     /**
-     * @param movieName movieName to search for
-     * @return absolute url to detail page of first hit in search results
+     * Refreshes the movies crawled into 'outputDir' and rewrites only the ones that changed.
+     * <p>
+     * The stored movies are read back, a {@link RefreshSchedule} picks the due ones by the
+     * age of their last crawl in the journal, and their detail pages are fetched again from
+     * the stored url, the search is skipped. Every fresh movie is compared field by field with
+     * the stored one: unchanged movies are only recorded in the journal, changed ones are
+     * written again. JSON Lines output gets the new version appended, single files are
+     * replaced.
+     *
+     * @param outputDir output directory of an earlier crawl
+     * @throws IOException if the stored movies or the journal can not be read
      */
-    private static String getUrlToFirstMovieHit(final String movieName) {
-        // get HTML from
+    private void updateIMDBMovies(final String outputDir) throws IOException {
+        final File outDir = new File(outputDir);
+        final List<Movie> stored = MovieReader.readMoviesFrom(outDir);
+        metrics.start(METRICS_INTERVAL_SECONDS, new File(outDir, METRICS_FILE));
+
+        // keep the output format of the crawl
+        try (MovieLogWriter log = MovieLogWriter.hasSegments(outDir) ? new MovieLogWriter(outDir, SEGMENT_MAX_BYTES) : null;
+             CrawlJournal journal = new CrawlJournal(new File(outDir, JOURNAL_FILE), log)) {
+            final List<Movie> due = RefreshSchedule.due(stored, journal::crawledAt, System.currentTimeMillis(), REFRESH_LIMIT);
+            System.out.println("Update: " + due.size() + " of " + stored.size() + " movies due for a refresh");
+
+            final List<CrawlTask> tasks = new ArrayList<>(due.size());
+            for (final Movie movie : due) {
+                final CrawlTask task = new CrawlTask(movie.getTitle());
+                task.url = movie.getUrl();
+                task.stored = movie;
+                tasks.add(task);
+            }
+            refresh(tasks, outputDir, log, journal);
+        }
+
+        printStatistics();
+    }
+
+    /**
+     * Reports the metrics a last time and prints the statistics of scheduler and cache.
+     */
+    private void printStatistics() {
+        metrics.close();
+        System.out.println("Scheduler: " + fetcher.getScheduler());
+        if (fetcher.getCache() != null) {
+            System.out.println("Cache: " + fetcher.getCache());
+        }
+    }
+
+    /**
+     * @return JSON Lines output in 'outDir', null if one file per movie is written
+     */
+    private static MovieLogWriter openLog(final File outDir) throws IOException {
+        if ("jsonl".equals(OUTPUT)) {
+            return new MovieLogWriter(outDir, SEGMENT_MAX_BYTES);
+        }
+        if (!"files".equals(OUTPUT)) {
+            throw new IllegalArgumentException("Unknown output format " + OUTPUT + ", expected files or jsonl");
+        }
+        return null;
+    }
+
+    /**
+     * @param log      output for all movies, null to write one file per movie into 'outputDir'
+     * @param resolver resolves the titles to detail page urls
+     */
+    private void crawl(final Iterable<String> movieNames, final String outputDir, final MovieLogWriter log, final CrawlPipeline.Listener listener,
+                       final TitleResolver resolver) {
+        final CrawlPipeline pipeline = new CrawlPipeline(QUEUE_CAPACITY);
+        pipeline.setListener(listener);
+        pipeline.setMetrics(metrics);
+        pipeline.addStage("resolve", networkWorkers, task -> {
+            System.out.println("JSON movie name: " + task.movieName);
+            task.url = resolveUrl(resolver, task.movieName);
+            return !task.url.isEmpty();
+        });
+        pipeline.addStage("fetch", networkWorkers, task -> {
+            task.html = fetcher.fetch(task.url);
+            return true;
+        });
+        pipeline.addStage("parse", parseWorkers, task -> {
+            task.movie = extractMetaData(task.url, task.html);
+            task.html = null;
+            return true;
+        });
+        pipeline.addStage("write", 1, task -> {
+            if (log != null) {
+                task.outputFile = log.write(task.movie);
+                return true;
+            }
+            final MovieWriter writer = new MovieWriter(outputDir);
+            writer.addMovie(task.movie);
+            writer.writeFile();
+            task.outputFile = writer.getOutputPath();
+            // printMovie(movie);
+            return true;
+        });
+
         try {
-            final Document doc = Jsoup.connect("http://akas.imdb.com/find?q=" + URLEncoder.encode(movieName, "UTF-8") + "&s=tt&ttype=ft").get();
-            final Elements elements = doc.getElementsByClass("findList");
+            pipeline.run(movieNames);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            if (elements.isEmpty()) {
-                return "";
+    private void refresh(final Iterable<CrawlTask> tasks, final String outputDir, final MovieLogWriter log, final CrawlPipeline.Listener listener) {
+        final AtomicInteger changed = new AtomicInteger();
+        final CrawlPipeline pipeline = new CrawlPipeline(QUEUE_CAPACITY);
+        pipeline.setListener(listener);
+        pipeline.setMetrics(metrics);
+        pipeline.addStage("fetch", networkWorkers, task -> {
+            task.html = fetcher.fetch(task.url);
+            return true;
+        });
+        pipeline.addStage("parse", parseWorkers, task -> {
+            task.movie = extractMetaData(task.url, task.html);
+            task.html = null;
+            return true;
+        });
+        pipeline.addStage("diff", 1, task -> {
+            final List<String> changes = MovieDiff.changes(task.stored, task.movie);
+            if (changes.isEmpty()) {
+                return true;
             }
 
-            // expect to be the right one
-            final Element firstElement = elements.get(0);
-            // this is the wanted movie element
-            final Element firstResult = firstElement.getAllElements().get(0);
-            final Element linkToMovie = firstResult.getElementsByClass("result_text").get(0).getElementsByTag("a").get(0);
+            System.out.println("Changed \"" + task.movieName + "\": " + String.join(", ", changes));
+            changed.incrementAndGet();
+            if (log != null) {
+                task.outputFile = log.write(task.movie);
+                return true;
+            }
 
-            final String relativeRedirection = linkToMovie.attr("href");
-            final String foundMovieName = linkToMovie.text();
+            final MovieWriter writer = new MovieWriter(outputDir);
+            writer.addMovie(task.movie);
+            writer.writeFile();
+            task.outputFile = writer.getOutputPath();
 
-            System.out.println("first movie: \"" + foundMovieName + "\", redirection to: \"" + relativeRedirection + "\"\r\n");
+            //a changed title changes the file name, the old file would be read as a second movie
+            final MovieWriter old = new MovieWriter(outputDir);
+            old.addMovie(task.stored);
+            if (!old.getOutputPath().equals(task.outputFile)) {
+                Files.deleteIfExists(Paths.get(old.getOutputPath()));
+            }
+            return true;
+        });
 
-            return "http://akas.imdb.com" + relativeRedirection;
-        } catch (final IOException e) {
-            e.printStackTrace();
+        try {
+            pipeline.runTasks(tasks);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Update: " + changed.get() + " of " + pipeline.getCompleted() + " refreshed movies changed");
+    }
+
+    /**
+     * Resolves a title from the {@link TitleResolver} cache if possible, searches IMDB otherwise.
+     *
+     * @param movieName movieName to search for
+     * @return absolute url to detail page of the best matching search result, empty if there is no hit
+     * @throws IOException if the search page could not be loaded
+     */
+    private String resolveUrl(final TitleResolver resolver, final String movieName) throws IOException {
+        String id = resolver.lookup(movieName);
+        if (id != null) {
+            metrics.increment("search.cached");
+        } else {
+            id = resolver.resolve(movieName, search(movieName));
+        }
+
+        if (id.isEmpty()) {
+            metrics.increment("search.empty");
             return "";
         }
+
+        final String relativeRedirection = "/title/" + id + "/";
+        System.out.println("resolved movie: \"" + resolver.title(id) + "\", redirection to: \"" + relativeRedirection + "\"\r\n");
+
+        return HOST + relativeRedirection;
+    }
+
+    /**
+     * @param movieName movieName to search for
+     * @return all title results of the search page in their order
+     * @throws IOException if the search page could not be loaded
+     */
+    private List<TitleResolver.Candidate> search(final String movieName) throws IOException {
+        // get HTML from
+        final String searchUrl = HOST + "/find?q=" + URLEncoder.encode(movieName, "UTF-8") + "&s=tt&ttype=ft";
+        final String html = fetcher.fetch(searchUrl);
+        final long time = System.nanoTime();
+        final TagNode doc = CLEANER.get().clean(html);
+        final TagNode findList = findFirstByClass(doc, "findList");
+
+        final List<TitleResolver.Candidate> results = new ArrayList<>();
+        if (findList != null) {
+            final List<TagNode> resultTexts = new ArrayList<>();
+            findAllByClass(findList, "result_text", resultTexts);
+            for (final TagNode resultText : resultTexts) {
+                // e.g. <a href="/title/tt0499549/?ref_=fn_ft_tt_1">Avatar</a> (2009)
+                final TagNode link = resultText.findElementByName("a", true);
+                final String id = link == null ? null : TitleResolver.titleId(link.getAttributeByName("href"));
+                if (id != null) {
+                    final Matcher year = RESULT_YEAR.matcher(resultText.getText());
+                    results.add(new TitleResolver.Candidate(id, link.getText().toString().trim(), year.find() ? Integer.parseInt(year.group(1)) : 0));
+                }
+            }
+        }
+        metrics.record("search.parse", System.nanoTime() - time);
+        return results;
     }
 
     /**
@@ -151,145 +464,57 @@ public class IMDBSpider {
      * castList,
      * characterList,
      * directorList
+     * <p>
+     * All fields are filled in a single pass over the cleaned page, see {@link MovieExtractor}.
      */
-    private static Movie extractMetaData(final String urlStr) {
-        final HtmlCleaner cleaner = new HtmlCleaner();
-        final Movie movie = new Movie();
-        URL url = null;
-
-        try {
-            url = new URL(urlStr);
-        } catch (final MalformedURLException mu) {
-            mu.printStackTrace();
-            System.exit(-1);
-        }
-        TagNode node = null;
-        try {
-            node = cleaner.clean(url);
-        } catch (final IOException io) {
-            io.printStackTrace();
-            System.exit(-1);
-        }
+    private Movie extractMetaData(final String urlStr, final String html) {
+        long time = System.nanoTime();
+        final TagNode node = CLEANER.get().clean(html);
+        metrics.record("html.clean", System.nanoTime() - time);
+
+        time = System.nanoTime();
+        final Movie movie = extractor.extract(urlStr, node);
+        metrics.record("html.extract", System.nanoTime() - time);
+        return movie;
+    }
 
-        final String TITLE = "//div[@class='title_wrapper']/h1[@itemprop='name']/text()";
-        final String YEAR = "//div[@class='title_wrapper']//span[@id='titleYear']/a/text()";
-        final String GENRE = "//div[@class='article'][@id='titleStoryLine']//div[@itemprop='genre']/a/text()";
-        final String COUNTRY = "//div[@id='titleDetails']/div[h4[@class='inline']='Country:']/a/text()";
-        final String DESCRIPTION = "//div[@class='inline canwrap'][@itemprop='description']/text()";
-        final String BUDGET = "//div[h4[@class='inline']='Budget:']/text()";
-        final String GROSS = "//div[h4[@class='inline']='Gross:']/text()";
-        final String RATING_VALUE = "//div[@class='ratingValue']//span[@itemprop='ratingValue']/text()";
-        final String RATING_COUNT = "//div[@class='imdbRating']//span[@itemprop='ratingCount']/text()";
-        final String DURATION = "//div[@class='subtext']/time[@itemprop='duration']/text()";
-        final String CAST = "//table[@class='cast_list']//td[@itemprop='actor']/a/span[@itemprop='name']/text()";
-        final String CHARACTER = "//table[@class='cast_list']//td[@class='character']/div/a/text()";
-        final String DIRECTOR = "//span[@itemprop='director']//span[@itemprop='name']/text()";
-
-        final String[] XPATHS = { TITLE, YEAR, GENRE, COUNTRY, DESCRIPTION, BUDGET, GROSS, RATING_VALUE, RATING_COUNT, DURATION, CAST, CHARACTER,
-                                  DIRECTOR };
-        final Object[][] results = new Object[XPATHS.length][];
-
-        for (int i = 0; i < XPATHS.length; i++) {
-            try {
-                results[i] = node.evaluateXPath(XPATHS[i]);
-            } catch (final XPatherException xp) {
-                xp.printStackTrace();
-                System.exit(-1);
-            }
-            if (i > 1 && i < 4 || i > 9) {
-                if (results[i].length > 0) {
-                    results[i][0] = toList(results[i]);
+    /**
+     * @param root      element to search in
+     * @param className class to look for, one of the space separated classes of an element
+     * @return first descendant of root in document order having the class, or null
+     */
+    private static TagNode findFirstByClass(final TagNode root, final String className) {
+        for (final TagNode child : root.getChildTags()) {
+            final String classes = child.getAttributeByName("class");
+            if (classes != null) {
+                for (final String name : classes.split("\\s+")) {
+                    if (name.equals(className)) {
+                        return child;
+                    }
                 }
             }
-        }
 
-        String temp = null;
-        if (results[0].length > 0) {
-            temp = results[0][0].toString();
-        }
-        if (temp != null) {
-            if (temp.contains("&nbsp")) {
-                temp = temp.substring(0, temp.indexOf("&nbsp"));
+            final TagNode found = findFirstByClass(child, className);
+            if (found != null) {
+                return found;
             }
         }
-
-        movie.setTitle(temp.trim());
-        movie.setUrl(urlStr);
-
-        if (results[1].length > 0) {
-            movie.setYear(results[1][0].toString().trim());
-        }
-
-        if (results[2].length > 0) {
-            movie.setGenreList((List<String>) results[2][0]);
-        }
-
-        if (results[3].length > 0) {
-            movie.setCountryList((List<String>) results[3][0]);
-        }
-
-        if (results[4].length > 0) {
-            movie.setDescription(results[4][0].toString().replaceAll("\\n", " ").trim());
-        }
-
-        if (results[5].length > 0) {
-            temp = results[5][0].toString();
-        }
-
-        if (temp != null) {
-            temp = temp.replaceAll("\\(.*\\)", "").replaceAll("[^\\d.,$]", "").trim();
-        }
-
-        movie.setBudget(temp);
-        if (results[6].length > 0) {
-            temp = results[6][0].toString();
-        }
-
-        if (temp != null) {
-            temp = temp.replaceAll("\\(.*\\)", "").replaceAll("[^\\d.,$]", "").trim();
-        }
-
-        movie.setGross(temp);
-
-        if (results[7].length > 0) {
-            movie.setRatingValue(results[7][0].toString().trim());
-        }
-
-        if (results[8].length > 0) {
-            movie.setRatingCount(results[8][0].toString().trim());
-        }
-
-        if (results[9].length > 0) {
-            movie.setDuration(results[9][0].toString().trim());
-        }
-
-        if (results[10].length > 0) {
-            movie.setCastList((List<String>) results[10][0]);
-        }
-
-        if (results[11].length > 0) {
-            movie.setCharacterList((List<String>) results[11][0]);
-        }
-
-        if (results[12].length > 0) {
-            movie.setDirectorList((List<String>) results[12][0]);
-        }
-        movie.setUrl(urlStr);
-
-        return movie;
+        return null;
     }
 
-    private static List<String> toList(final Object[] results) {
-        final List<String> list = new ArrayList<>(results.length);
-
-        for (int i = 0; i < results.length; i++) {
-            if (results[i] != null) {
-                if (results[i] != "") {
-                    list.add(results[i].toString().trim());
-                }
+    /**
+     * @param root      element to search in
+     * @param className class to look for, one of the space separated classes of an element
+     * @param found     receives the descendants of root having the class, in document order
+     */
+    private static void findAllByClass(final TagNode root, final String className, final List<TagNode> found) {
+        for (final TagNode child : root.getChildTags()) {
+            final String classes = child.getAttributeByName("class");
+            if (classes != null && Arrays.asList(classes.split("\\s+")).contains(className)) {
+                found.add(child);
             }
+            findAllByClass(child, className, found);
         }
-        return list;
     }
 
     private static void printMovie(final Movie movie) {
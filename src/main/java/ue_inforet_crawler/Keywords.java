@@ -0,0 +1,212 @@
+package ue_inforet_crawler;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+/**
+ * Counts the occurrences of several keywords in a text in a single pass (Aho-Corasick).
+ * <p>
+ * The keywords are compiled into a deterministic automaton over the characters occurring in
+ * them; every other character leads back to the start state. Scanning a text is one table
+ * lookup per character, no matter how many keywords there are, and neither the text nor a
+ * lowercase copy of it is allocated: with 'ignoreCase' every character is folded with
+ * {@link Character#toLowerCase(char)} while scanning. Every occurrence is counted, overlapping
+ * ones included, e.g. "aa" twice in "aaa".
+ * <p>
+ * An instance is immutable and can be shared by threads.
+ */
+final class Keywords {
+
+    private final String[] keywords;
+
+    private final boolean ignoreCase;
+
+    /**
+     * Characters occurring in the keywords, sorted; class of a character is its index + 1
+     */
+    private final char[] alphabet;
+
+    /**
+     * Class of every ASCII character, 0 if it does not occur in the keywords
+     */
+    private final int[] asciiClasses = new int[128];
+
+    /**
+     * Transitions, state * (alphabet.length + 1) + class, state 0 is the start state
+     */
+    private final int[] transitions;
+
+    /**
+     * Keywords ending in a state, including those of shorter suffixes
+     */
+    private final int[][] matches;
+
+    /**
+     * @param ignoreCase true to match regardless of case
+     * @param keywords   non-empty keywords
+     */
+    Keywords(final boolean ignoreCase, final String... keywords) {
+        this.keywords = keywords.clone();
+        this.ignoreCase = ignoreCase;
+
+        final StringBuilder characters = new StringBuilder();
+        int maxStates = 1;
+        for (final String keyword : keywords) {
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keywords must not be empty");
+            }
+            for (int i = 0; i < keyword.length(); i++) {
+                characters.append(fold(keyword.charAt(i)));
+            }
+            maxStates += keyword.length();
+        }
+        alphabet = characters.chars().sorted().distinct().collect(StringBuilder::new, StringBuilder::appendCodePoint,
+            StringBuilder::append).toString().toCharArray();
+        for (int i = 0; i < alphabet.length; i++) {
+            if (alphabet[i] < asciiClasses.length) {
+                asciiClasses[alphabet[i]] = i + 1;
+            }
+        }
+
+        //trie of the keywords, -1 for a missing transition
+        final int width = alphabet.length + 1;
+        final int[] trie = new int[maxStates * width];
+        Arrays.fill(trie, -1);
+        final int[][] ends = new int[maxStates][0];
+        int states = 1;
+        for (int keyword = 0; keyword < keywords.length; keyword++) {
+            int state = 0;
+            for (int i = 0; i < keywords[keyword].length(); i++) {
+                final int transition = state * width + classOf(fold(keywords[keyword].charAt(i)));
+                if (trie[transition] < 0) {
+                    trie[transition] = states++;
+                }
+                state = trie[transition];
+            }
+            ends[state] = append(ends[state], keyword);
+        }
+
+        //complete the trie breadth first: a missing transition is the one of the longest proper suffix
+        transitions = Arrays.copyOf(trie, states * width);
+        matches = Arrays.copyOf(ends, states);
+        final int[] suffix = new int[states];
+        final Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            final int state = queue.remove();
+            for (int c = 0; c < width; c++) {
+                final int child = transitions[state * width + c];
+                if (child < 0) {
+                    transitions[state * width + c] = state == 0 ? 0 : transitions[suffix[state] * width + c];
+                } else {
+                    suffix[child] = state == 0 ? 0 : transitions[suffix[state] * width + c];
+                    for (final int keyword : matches[suffix[child]]) {
+                        matches[child] = append(matches[child], keyword);
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return number of keywords
+     */
+    int size() {
+        return keywords.length;
+    }
+
+    String keyword(final int index) {
+        return keywords[index];
+    }
+
+    /**
+     * @return number of occurrences of every keyword in the text, in the order of the keywords
+     */
+    int[] count(final CharSequence text) {
+        final int[] counts = new int[keywords.length];
+        count(text, counts);
+        return counts;
+    }
+
+    /**
+     * Adds the number of occurrences of every keyword in the text to 'counts'.
+     */
+    void count(final CharSequence text, final int[] counts) {
+        final int width = alphabet.length + 1;
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = transitions[state * width + classOf(fold(text.charAt(i)))];
+            for (final int keyword : matches[state]) {
+                counts[keyword]++;
+            }
+        }
+    }
+
+    /**
+     * Adds the number of occurrences of every keyword in bytes 'from' to 'to' to 'counts'.
+     * Every byte is read as one ISO-8859-1 character, so in UTF-8 only ASCII keywords are
+     * found; only ASCII letters are folded.
+     */
+    void count(final ByteBuffer bytes, final int from, final int to, final int[] counts) {
+        final int width = alphabet.length + 1;
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            final int b = bytes.get(i) & 0xFF;
+            final int c = b < asciiClasses.length ? asciiClasses[fold((char) b)] : classOf((char) b);
+            state = transitions[state * width + c];
+            for (final int keyword : matches[state]) {
+                counts[keyword]++;
+            }
+        }
+    }
+
+    /**
+     * @return true if every keyword occurs at least once
+     */
+    static boolean all(final int[] counts) {
+        for (final int count : counts) {
+            if (count == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of occurrences of all keywords
+     */
+    static int total(final int[] counts) {
+        int total = 0;
+        for (final int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    private char fold(final char c) {
+        if (!ignoreCase) {
+            return c;
+        }
+        if (c < asciiClasses.length) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private int classOf(final char c) {
+        if (c < asciiClasses.length) {
+            return asciiClasses[c];
+        }
+        final int index = Arrays.binarySearch(alphabet, c);
+        return index < 0 ? 0 : index + 1;
+    }
+
+    private static int[] append(final int[] values, final int value) {
+        final int[] appended = Arrays.copyOf(values, values.length + 1);
+        appended[values.length] = value;
+        return appended;
+    }
+}
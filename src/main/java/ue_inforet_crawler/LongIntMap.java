@@ -0,0 +1,142 @@
+package ue_inforet_crawler;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from long keys to int values, e.g. counts, without boxing: keys and values live in
+ * two primitive arrays, collisions are resolved by linear probing. A map needs about 24 to 48
+ * bytes per entry, a HashMap&lt;Long, Integer&gt; about 80.
+ * <p>
+ * {@link #EMPTY} marks free slots and can not be used as key. Entries can not be removed.
+ */
+final class LongIntMap {
+
+    /**
+     * Consumer of the entries, see {@link #forEach(EntryConsumer)}.
+     */
+    interface EntryConsumer {
+
+        void accept(long key, int value);
+    }
+
+    static final long EMPTY = Long.MIN_VALUE;
+
+    private static final double LOAD_FACTOR = 0.6;
+
+    private long[] keys;
+
+    private int[] values;
+
+    private int size;
+
+    /**
+     * Number of bits of a slot index
+     */
+    private int bits;
+
+    LongIntMap() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of entries to hold without growing
+     */
+    LongIntMap(final int expectedSize) {
+        bits = 4;
+        while ((1 << bits) * LOAD_FACTOR < expectedSize) {
+            bits++;
+        }
+        allocate();
+    }
+
+    /**
+     * Adds 'delta' to the value of the key, a missing key counts as 0.
+     */
+    void add(final long key, final int delta) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Long.MIN_VALUE can not be used as key");
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] += delta;
+                return;
+            }
+            slot = slot + 1 & keys.length - 1;
+        }
+        keys[slot] = key;
+        values[slot] = delta;
+        if (++size > keys.length * LOAD_FACTOR) {
+            grow();
+        }
+    }
+
+    /**
+     * @return value of the key, 0 if it is missing
+     */
+    int get(final long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = slot + 1 & keys.length - 1;
+        }
+        return 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds all values of another map to this one.
+     *
+     * @return this map
+     */
+    LongIntMap addAll(final LongIntMap other) {
+        other.forEach(this::add);
+        return this;
+    }
+
+    /**
+     * Adds two maps, reusing the larger one, e.g. to combine per-thread maps.
+     *
+     * @return the larger map holding the sums
+     */
+    static LongIntMap merge(final LongIntMap a, final LongIntMap b) {
+        return a.size >= b.size ? a.addAll(b) : b.addAll(a);
+    }
+
+    void forEach(final EntryConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                consumer.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    private int slot(final long key) {
+        //Fibonacci hashing, the upper bits of the product depend on all bits of the key
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 64 - bits);
+    }
+
+    private void allocate() {
+        keys = new long[1 << bits];
+        values = new int[1 << bits];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        bits++;
+        allocate();
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                add(oldKeys[slot], oldValues[slot]);
+            }
+        }
+    }
+}
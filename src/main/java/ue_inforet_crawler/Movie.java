@@ -20,6 +20,16 @@ public class Movie
 	private List<String> characterList;
 	private List<String> directorList;
 
+	/*
+	 * Numeric fields parsed once when set, so queries do not parse strings again and again
+	 */
+	private int yearValue;
+	private float rating;
+	private long ratingCountValue;
+	private long budgetDollars;
+	private long grossDollars;
+	private int durationMinutes;
+
 	public Movie()
 	{
 		this.title = "";
@@ -69,6 +79,7 @@ public class Movie
 	public void setYear(String year)
 	{
 		this.year = year;
+		this.yearValue = (int) Utils.parseLong(year);
 	}
 
 	/**
@@ -153,6 +164,7 @@ public class Movie
 	public void setBudget(String budget)
 	{
 		this.budget = budget;
+		this.budgetDollars = Utils.parseDollars(budget);
 	}
 
 	/**
@@ -173,6 +185,7 @@ public class Movie
 	public void setGross(String gross)
 	{
 		this.gross = gross;
+		this.grossDollars = Utils.parseDollars(gross);
 	}
 
 	/**
@@ -190,6 +203,7 @@ public class Movie
 	public void setRatingValue(String ratingValue)
 	{
 		this.ratingValue = ratingValue;
+		this.rating = Utils.parseFloat(ratingValue);
 	}
 
 	/**
@@ -207,6 +221,7 @@ public class Movie
 	public void setRatingCount(String ratingCount)
 	{
 		this.ratingCount = ratingCount;
+		this.ratingCountValue = Utils.parseLong(ratingCount);
 	}
 
 	/**
@@ -223,6 +238,7 @@ public class Movie
 	public void setDuration(String duration)
 	{
 		this.duration = duration;
+		this.durationMinutes = Utils.parseDuration(duration);
 	}
 
 	/**
@@ -273,6 +289,54 @@ public class Movie
 		this.directorList = directorList;
 	}
 
+	/**
+	 * @return The year as number, 0 if unknown
+	 */
+	public int getYearValue()
+	{
+		return this.yearValue;
+	}
+
+	/**
+	 * @return The ratingValue as number, 0 if not rated
+	 */
+	public float getRating()
+	{
+		return this.rating;
+	}
+
+	/**
+	 * @return The ratingCount as number
+	 */
+	public long getRatingCountValue()
+	{
+		return this.ratingCountValue;
+	}
+
+	/**
+	 * @return The budget converted to US dollars, 0 if unknown
+	 */
+	public long getBudgetDollars()
+	{
+		return this.budgetDollars;
+	}
+
+	/**
+	 * @return The gross converted to US dollars, 0 if unknown
+	 */
+	public long getGrossDollars()
+	{
+		return this.grossDollars;
+	}
+
+	/**
+	 * @return The duration in minutes, 0 if unknown
+	 */
+	public int getDurationMinutes()
+	{
+		return this.durationMinutes;
+	}
+
 	@Override
 	public String toString()
 	{
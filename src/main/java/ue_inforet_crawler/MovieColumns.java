@@ -0,0 +1,518 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+
+import ue_inforet_crawler.MovieStore.ListColumn;
+import ue_inforet_crawler.MovieStore.TextColumn;
+
+/**
+ * In-memory columnar copy of a movie collection for running many queries on it.
+ * <p>
+ * Movies are loaded once, from a list or a {@link MovieStore}, into one primitive array per
+ * numeric field and one id array per list field, with dictionaries like in the store. Genre
+ * and country membership is additionally kept as one bitmap over all rows per value.
+ * <p>
+ * Queries are built from a few operators:
+ * <ul>
+ * <li>predicates on a single column, each a tight loop over the primitive array producing a
+ * {@link Selection} bitmap of the matching rows</li>
+ * <li>{@link Selection#and(Selection)} to combine them and {@link Selection#retain(IntPredicate)}
+ * for expensive predicates, e.g. on descriptions, evaluated on the selected rows only</li>
+ * <li>{@link #top(Selection, int, IntToLongFunction)}, {@link #bestPerYear(Selection, int, int, IntToLongFunction)}
+ * and {@link #countValues(ListColumn)} to rank, group and count</li>
+ * </ul>
+ * Rows are addressed by their number like in {@link MovieStore}; {@link #movie(int)} turns a
+ * result row back into a {@link Movie}.
+ */
+final class MovieColumns {
+
+    /**
+     * Set of rows, one bit each.
+     */
+    static final class Selection {
+
+        private final long[] words;
+
+        private final int size;
+
+        Selection(final int size) {
+            this.words = new long[(size + 63) >>> 6];
+            this.size = size;
+        }
+
+        void set(final int row) {
+            words[row >>> 6] |= 1L << row;
+        }
+
+        boolean get(final int row) {
+            return (words[row >>> 6] & 1L << row) != 0L;
+        }
+
+        /**
+         * Intersects with another selection of the same size.
+         *
+         * @return this selection
+         */
+        Selection and(final Selection other) {
+            for (int i = 0; i < words.length; i++) {
+                words[i] &= other.words[i];
+            }
+            return this;
+        }
+
+        /**
+         * Removes the selected rows not matching the predicate, which is only evaluated for selected rows.
+         *
+         * @return this selection
+         */
+        Selection retain(final IntPredicate predicate) {
+            for (int row = next(0); row >= 0; row = next(row + 1)) {
+                if (!predicate.test(row)) {
+                    words[row >>> 6] &= ~(1L << row);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return first selected row at or after 'from', -1 if there is none
+         */
+        int next(final int from) {
+            if (from >= size) {
+                return -1;
+            }
+            int index = from >>> 6;
+            long word = words[index] & -1L << from;
+            while (word == 0L) {
+                if (++index == words.length) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return (index << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        /**
+         * @return number of selected rows
+         */
+        int count() {
+            int count = 0;
+            for (final long word : words) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+    }
+
+    private final int size;
+
+    private final int[] year;
+
+    private final float[] rating;
+
+    private final long[] ratingCount;
+
+    private final long[] budget;
+
+    private final long[] gross;
+
+    private final int[] duration;
+
+    private final String[] description;
+
+    /**
+     * Per list column: start of the values of every row in 'listValues', plus the end of the last row
+     */
+    private final int[][] listOffsets = new int[ListColumn.values().length][];
+
+    private final int[][] listValues = new int[ListColumn.values().length][];
+
+    /**
+     * Per list column: the distinct values, columns sharing a dictionary share the list
+     */
+    private final List<List<String>> dictionaries = new ArrayList<>();
+
+    /**
+     * Per list column and value id: the rows containing the value, only for genres and countries
+     */
+    private final long[][][] memberships = new long[ListColumn.values().length][][];
+
+    private final IntFunction<Movie> movies;
+
+    private MovieColumns(final int size, final IntFunction<Movie> movies) {
+        this.size = size;
+        this.movies = movies;
+        year = new int[size];
+        rating = new float[size];
+        ratingCount = new long[size];
+        budget = new long[size];
+        gross = new long[size];
+        duration = new int[size];
+        description = new String[size];
+    }
+
+    /**
+     * @param movies movies to copy, keeps a reference to them for {@link #movie(int)}
+     */
+    static MovieColumns of(final Collection<Movie> movies) {
+        final Movie[] rows = movies.toArray(new Movie[0]);
+        final MovieColumns columns = new MovieColumns(rows.length, row -> rows[row]);
+
+        final List<Map<String, Integer>> ids = new ArrayList<>();
+        for (final ListColumn column : ListColumn.values()) {
+            columns.dictionaries.add(column.dictionary() == column ? new ArrayList<>() : columns.dictionaries.get(column.dictionary().ordinal()));
+            ids.add(column.dictionary() == column ? new HashMap<>() : ids.get(column.dictionary().ordinal()));
+            columns.listOffsets[column.ordinal()] = new int[rows.length + 1];
+        }
+
+        final int[][] values = new int[ListColumn.values().length][rows.length];
+        for (int row = 0; row < rows.length; row++) {
+            final Movie movie = rows[row];
+            columns.year[row] = movie.getYearValue();
+            columns.rating[row] = movie.getRating();
+            columns.ratingCount[row] = movie.getRatingCountValue();
+            columns.budget[row] = movie.getBudgetDollars();
+            columns.gross[row] = movie.getGrossDollars();
+            columns.duration[row] = movie.getDurationMinutes();
+            columns.description[row] = movie.getDescription() == null ? "" : movie.getDescription();
+
+            for (final ListColumn column : ListColumn.values()) {
+                final int[] offsets = columns.listOffsets[column.ordinal()];
+                final Map<String, Integer> dictionary = ids.get(column.ordinal());
+                final List<String> dictionaryValues = columns.dictionaries.get(column.ordinal());
+                int end = offsets[row];
+                for (final String value : list(movie, column)) {
+                    Integer id = dictionary.get(value);
+                    if (id == null) {
+                        id = dictionaryValues.size();
+                        dictionary.put(value, id);
+                        dictionaryValues.add(value);
+                    }
+                    if (end == values[column.ordinal()].length) {
+                        values[column.ordinal()] = Arrays.copyOf(values[column.ordinal()], Math.max(16, 2 * end));
+                    }
+                    values[column.ordinal()][end++] = id;
+                }
+                offsets[row + 1] = end;
+            }
+        }
+
+        for (final ListColumn column : ListColumn.values()) {
+            columns.listValues[column.ordinal()] = Arrays.copyOf(values[column.ordinal()], columns.listOffsets[column.ordinal()][rows.length]);
+        }
+        columns.indexMemberships();
+        return columns;
+    }
+
+    /**
+     * @param store store to copy, keeps a reference to it for {@link #movie(int)}
+     */
+    static MovieColumns of(final MovieStore store) {
+        final int size = store.size();
+        final MovieColumns columns = new MovieColumns(size, store::movie);
+
+        for (int row = 0; row < size; row++) {
+            columns.year[row] = store.year(row);
+            columns.rating[row] = store.ratingValue(row);
+            columns.ratingCount[row] = store.ratingCount(row);
+            columns.budget[row] = store.budget(row);
+            columns.gross[row] = store.gross(row);
+            columns.duration[row] = store.duration(row);
+            columns.description[row] = store.text(TextColumn.DESCRIPTION, row);
+        }
+
+        for (final ListColumn column : ListColumn.values()) {
+            if (column.dictionary() == column) {
+                final List<String> dictionary = new ArrayList<>(store.dictionarySize(column));
+                for (int id = 0; id < store.dictionarySize(column); id++) {
+                    dictionary.add(store.dictionaryValue(column, id));
+                }
+                columns.dictionaries.add(dictionary);
+            } else {
+                columns.dictionaries.add(columns.dictionaries.get(column.dictionary().ordinal()));
+            }
+
+            final int[] offsets = new int[size + 1];
+            for (int row = 0; row < size; row++) {
+                offsets[row + 1] = offsets[row] + store.listSize(column, row);
+            }
+            final int[] values = new int[offsets[size]];
+            for (int row = 0; row < size; row++) {
+                for (int i = 0; i < offsets[row + 1] - offsets[row]; i++) {
+                    values[offsets[row] + i] = store.listValue(column, row, i);
+                }
+            }
+            columns.listOffsets[column.ordinal()] = offsets;
+            columns.listValues[column.ordinal()] = values;
+        }
+        columns.indexMemberships();
+        return columns;
+    }
+
+    /**
+     * @return number of movies
+     */
+    int size() {
+        return size;
+    }
+
+    int year(final int row) {
+        return year[row];
+    }
+
+    float ratingValue(final int row) {
+        return rating[row];
+    }
+
+    long ratingCount(final int row) {
+        return ratingCount[row];
+    }
+
+    /**
+     * @return budget in US dollars, 0 if unknown
+     */
+    long budget(final int row) {
+        return budget[row];
+    }
+
+    /**
+     * @return gross in US dollars, 0 if unknown
+     */
+    long gross(final int row) {
+        return gross[row];
+    }
+
+    String description(final int row) {
+        return description[row];
+    }
+
+    /**
+     * @return a movie of a row, e.g. to print query results
+     */
+    Movie movie(final int row) {
+        return movies.apply(row);
+    }
+
+    /**
+     * @return all rows
+     */
+    Selection all() {
+        final Selection selection = new Selection(size);
+        Arrays.fill(selection.words, -1L);
+        if ((size & 63) != 0) {
+            selection.words[selection.words.length - 1] = (1L << size) - 1L;
+        }
+        return selection;
+    }
+
+    /**
+     * @return rows published from 'min' until (including) 'max'
+     */
+    Selection yearBetween(final int min, final int max) {
+        final Selection selection = new Selection(size);
+        final long[] words = selection.words;
+        for (int row = 0; row < size; row++) {
+            words[row >>> 6] |= (year[row] >= min && year[row] <= max ? 1L : 0L) << row;
+        }
+        return selection;
+    }
+
+    /**
+     * @return rows with a rating above 'min' and below 'max', both excluding
+     */
+    Selection ratingBetween(final float min, final float max) {
+        final Selection selection = new Selection(size);
+        final long[] words = selection.words;
+        for (int row = 0; row < size; row++) {
+            words[row >>> 6] |= (rating[row] > min && rating[row] < max ? 1L : 0L) << row;
+        }
+        return selection;
+    }
+
+    /**
+     * @return rows based on at least 'min' ratings
+     */
+    Selection ratingCountAtLeast(final long min) {
+        final Selection selection = new Selection(size);
+        final long[] words = selection.words;
+        for (int row = 0; row < size; row++) {
+            words[row >>> 6] |= (ratingCount[row] >= min ? 1L : 0L) << row;
+        }
+        return selection;
+    }
+
+    /**
+     * @return rows with a budget above 'min' US dollars
+     */
+    Selection budgetAbove(final long min) {
+        final Selection selection = new Selection(size);
+        final long[] words = selection.words;
+        for (int row = 0; row < size; row++) {
+            words[row >>> 6] |= (budget[row] > min ? 1L : 0L) << row;
+        }
+        return selection;
+    }
+
+    /**
+     * @return rows running longer than 'min' minutes
+     */
+    Selection durationAbove(final int min) {
+        final Selection selection = new Selection(size);
+        final long[] words = selection.words;
+        for (int row = 0; row < size; row++) {
+            words[row >>> 6] |= (duration[row] > min ? 1L : 0L) << row;
+        }
+        return selection;
+    }
+
+    /**
+     * @param column {@link ListColumn#GENRE} or {@link ListColumn#COUNTRY}
+     * @return rows whose list contains the value
+     */
+    Selection having(final ListColumn column, final String value) {
+        final Selection selection = new Selection(size);
+        final int id = dictionaryId(column, value);
+        if (id >= 0) {
+            System.arraycopy(memberships[column.ordinal()][id], 0, selection.words, 0, selection.words.length);
+        }
+        return selection;
+    }
+
+    /**
+     * @return number of values of the list of a row
+     */
+    int listSize(final ListColumn column, final int row) {
+        final int[] offsets = listOffsets[column.ordinal()];
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * @return dictionary id of the index-th value of the list of a row
+     */
+    int listValue(final ListColumn column, final int row, final int index) {
+        return listValues[column.ordinal()][listOffsets[column.ordinal()][row] + index];
+    }
+
+    /**
+     * @return true if the list of the row contains the dictionary id
+     */
+    boolean listContains(final ListColumn column, final int row, final int id) {
+        final int[] offsets = listOffsets[column.ordinal()];
+        final int[] values = listValues[column.ordinal()];
+        for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+            if (values[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int dictionarySize(final ListColumn column) {
+        return dictionaries.get(column.ordinal()).size();
+    }
+
+    String dictionaryValue(final ListColumn column, final int id) {
+        return dictionaries.get(column.ordinal()).get(id);
+    }
+
+    /**
+     * Looks a value up by scanning the dictionary, meant to be called once per query.
+     *
+     * @return id of the value, -1 if no movie has it
+     */
+    int dictionaryId(final ListColumn column, final String value) {
+        return dictionaries.get(column.ordinal()).indexOf(value);
+    }
+
+    /**
+     * @return number of appearances of every dictionary id in the column
+     */
+    int[] countValues(final ListColumn column) {
+        final int[] counts = new int[dictionarySize(column)];
+        for (final int id : listValues[column.ordinal()]) {
+            counts[id]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Ranks the selected rows by a key, larger keys first, rows with equal keys in row order.
+     *
+     * @param k   maximum number of rows to return
+     * @param key key of a row, see {@link TopK#floatKey(float)} to rank by a float
+     * @return the up to 'k' selected rows with the largest keys, in rank order
+     */
+    static int[] top(final Selection selection, final int k, final IntToLongFunction key) {
+        final TopK<Integer> top = new TopK<>(k);
+        for (int row = selection.next(0); row >= 0; row = selection.next(row + 1)) {
+            final long value = key.applyAsLong(row);
+            //rows are offered in order, so equal keys keep the row order
+            if (top.accepts(value)) {
+                top.offer(value, row);
+            }
+        }
+        return top.toList().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Picks the row with the largest key of every year, on equal keys the first row.
+     *
+     * @param from first year
+     * @param to   last year, including
+     * @param key  key of a row, negate it to pick the smallest
+     * @return one row per year from 'from' to 'to', -1 for years without a selected row
+     */
+    int[] bestPerYear(final Selection selection, final int from, final int to, final IntToLongFunction key) {
+        final int[] best = new int[to - from + 1];
+        final long[] bestKeys = new long[best.length];
+        Arrays.fill(best, -1);
+        for (int row = selection.next(0); row >= 0; row = selection.next(row + 1)) {
+            final int index = year[row] - from;
+            if (index >= 0 && index < best.length) {
+                final long value = key.applyAsLong(row);
+                if (best[index] < 0 || value > bestKeys[index]) {
+                    best[index] = row;
+                    bestKeys[index] = value;
+                }
+            }
+        }
+        return best;
+    }
+
+    private void indexMemberships() {
+        for (final ListColumn column : new ListColumn[]{ListColumn.GENRE, ListColumn.COUNTRY}) {
+            final long[][] bitmaps = new long[dictionarySize(column)][(size + 63) >>> 6];
+            final int[] offsets = listOffsets[column.ordinal()];
+            final int[] values = listValues[column.ordinal()];
+            for (int row = 0; row < size; row++) {
+                for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                    bitmaps[values[i]][row >>> 6] |= 1L << row;
+                }
+            }
+            memberships[column.ordinal()] = bitmaps;
+        }
+    }
+
+    private static List<String> list(final Movie movie, final ListColumn column) {
+        switch (column) {
+            case GENRE:
+                return movie.getGenreList();
+            case COUNTRY:
+                return movie.getCountryList();
+            case DIRECTOR:
+                return movie.getDirectorList();
+            case CAST:
+                return movie.getCastList();
+            default:
+                return movie.getCharacterList();
+        }
+    }
+}
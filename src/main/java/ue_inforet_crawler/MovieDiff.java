@@ -0,0 +1,61 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Field-level comparison of two versions of a movie, e.g. the stored one and a fresh crawl.
+ */
+final class MovieDiff {
+
+    /**
+     * Fields written by {@link MovieWriter}, in the order of the JSON output
+     */
+    private static final Map<String, Function<Movie, Object>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("title", Movie::getTitle);
+        FIELDS.put("year", Movie::getYear);
+        FIELDS.put("genreList", Movie::getGenreList);
+        FIELDS.put("countryList", Movie::getCountryList);
+        FIELDS.put("description", Movie::getDescription);
+        FIELDS.put("budget", Movie::getBudget);
+        FIELDS.put("gross", Movie::getGross);
+        FIELDS.put("ratingValue", Movie::getRatingValue);
+        FIELDS.put("ratingCount", Movie::getRatingCount);
+        FIELDS.put("duration", Movie::getDuration);
+        FIELDS.put("castList", Movie::getCastList);
+        FIELDS.put("characterList", Movie::getCharacterList);
+        FIELDS.put("directorList", Movie::getDirectorList);
+        FIELDS.put("url", Movie::getUrl);
+    }
+
+    private MovieDiff() {
+    }
+
+    /**
+     * @param before stored version
+     * @param after  fresh version
+     * @return one entry per changed field, e.g. "ratingCount: 900,000 -> 901,234", empty if both are equal
+     */
+    static List<String> changes(final Movie before, final Movie after) {
+        final List<String> changes = new ArrayList<>();
+        for (final Map.Entry<String, Function<Movie, Object>> field : FIELDS.entrySet()) {
+            final Object oldValue = field.getValue().apply(before);
+            final Object newValue = field.getValue().apply(after);
+            if (!Objects.equals(oldValue, newValue)) {
+                changes.add(field.getKey() + ": " + abbreviate(oldValue) + " -> " + abbreviate(newValue));
+            }
+        }
+        return changes;
+    }
+
+    private static String abbreviate(final Object value) {
+        final String text = String.valueOf(value);
+        return text.length() <= 60 ? text : text.substring(0, 57) + "...";
+    }
+}
@@ -0,0 +1,416 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.htmlcleaner.BaseToken;
+import org.htmlcleaner.ContentNode;
+import org.htmlcleaner.TagNode;
+import org.htmlcleaner.XPatherException;
+
+/**
+ * Extracts the metadata of a movie from a cleaned IMDB detail page.
+ * <p>
+ * The field selectors are the XPath expressions below. Instead of evaluating them one after
+ * another (one full tree walk each), they are compiled once into chains of steps and all
+ * of them are matched during a single traversal of the document: every element carries, per
+ * selector, a bit mask of the steps matched at the element itself and at any ancestor. The
+ * text of an element matched by a final step is collected while the traversal passes
+ * through its subtree, which yields the same value as HtmlCleaner's text() function.
+ * <p>
+ * Supported XPath subset: '/' and '//' axes, element names, [@attribute='value'] and
+ * [child[@attribute='value']='text'] predicates, terminated by '/text()'.
+ */
+final class MovieExtractor {
+
+    static final String TITLE = "//div[@class='title_wrapper']/h1[@itemprop='name']/text()";
+
+    static final String YEAR = "//div[@class='title_wrapper']//span[@id='titleYear']/a/text()";
+
+    static final String GENRE = "//div[@class='article'][@id='titleStoryLine']//div[@itemprop='genre']/a/text()";
+
+    static final String COUNTRY = "//div[@id='titleDetails']/div[h4[@class='inline']='Country:']/a/text()";
+
+    static final String DESCRIPTION = "//div[@class='inline canwrap'][@itemprop='description']/text()";
+
+    static final String BUDGET = "//div[h4[@class='inline']='Budget:']/text()";
+
+    static final String GROSS = "//div[h4[@class='inline']='Gross:']/text()";
+
+    static final String RATING_VALUE = "//div[@class='ratingValue']//span[@itemprop='ratingValue']/text()";
+
+    static final String RATING_COUNT = "//div[@class='imdbRating']//span[@itemprop='ratingCount']/text()";
+
+    static final String DURATION = "//div[@class='subtext']/time[@itemprop='duration']/text()";
+
+    static final String CAST = "//table[@class='cast_list']//td[@itemprop='actor']/a/span[@itemprop='name']/text()";
+
+    static final String CHARACTER = "//table[@class='cast_list']//td[@class='character']/div/a/text()";
+
+    static final String DIRECTOR = "//span[@itemprop='director']//span[@itemprop='name']/text()";
+
+    static final String[] XPATHS = { TITLE, YEAR, GENRE, COUNTRY, DESCRIPTION, BUDGET, GROSS, RATING_VALUE, RATING_COUNT, DURATION, CAST, CHARACTER,
+                                     DIRECTOR };
+
+    private static final String TEXT_FUNCTION = "/text()";
+
+    private final Step[][] selectors;
+
+    MovieExtractor() {
+        selectors = new Step[XPATHS.length][];
+        for (int i = 0; i < XPATHS.length; i++) {
+            selectors[i] = compile(XPATHS[i]);
+        }
+    }
+
+    /**
+     * @param url  url of the page
+     * @param node cleaned page
+     * @return movie filled from the page
+     */
+    Movie extract(final String url, final TagNode node) {
+        return toMovie(url, match(node));
+    }
+
+    /**
+     * Evaluates all selectors in a single traversal.
+     *
+     * @param node cleaned page
+     * @return text of all matches, per selector in the order of {@link #XPATHS}
+     */
+    List<String>[] match(final TagNode node) {
+        final Traversal traversal = new Traversal();
+        traversal.visit(node, 0);
+        return traversal.results();
+    }
+
+    /**
+     * Evaluates every selector with HtmlCleaner's XPath engine, one tree walk per selector.
+     * Kept as a reference for {@link ExtractionBenchmark}.
+     *
+     * @param node cleaned page
+     * @return text of all matches, per selector in the order of {@link #XPATHS}
+     * @throws XPatherException if a selector is invalid
+     */
+    static List<String>[] matchXPath(final TagNode node) throws XPatherException {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        final List<String>[] results = new List[XPATHS.length];
+        for (int i = 0; i < XPATHS.length; i++) {
+            final Object[] matches = node.evaluateXPath(XPATHS[i]);
+            results[i] = new ArrayList<>(matches.length);
+            for (final Object match : matches) {
+                results[i].add(match.toString());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Turns the raw text of all selectors into a movie.
+     *
+     * @param url    url of the page
+     * @param values text of all matches, per selector in the order of {@link #XPATHS}
+     * @return movie
+     */
+    static Movie toMovie(final String url, final List<String>[] values) {
+        final Movie movie = new Movie();
+        movie.setUrl(url);
+
+        String title = first(values[0]);
+        if (title.contains("&nbsp")) {
+            title = title.substring(0, title.indexOf("&nbsp"));
+        }
+        movie.setTitle(title.trim());
+
+        movie.setYear(first(values[1]).trim());
+        movie.setGenreList(toList(values[2]));
+        movie.setCountryList(toList(values[3]));
+        movie.setDescription(first(values[4]).replaceAll("\\n", " ").trim());
+        movie.setBudget(toAmount(first(values[5])));
+        movie.setGross(toAmount(first(values[6])));
+        movie.setRatingValue(first(values[7]).trim());
+        movie.setRatingCount(first(values[8]).trim());
+        movie.setDuration(first(values[9]).trim());
+        movie.setCastList(toList(values[10]));
+        movie.setCharacterList(toList(values[11]));
+        movie.setDirectorList(toList(values[12]));
+
+        return movie;
+    }
+
+    private static String first(final List<String> values) {
+        return values.isEmpty() ? "" : values.get(0);
+    }
+
+    /**
+     * "Budget: $237,000,000 (estimated)" -> "$237,000,000", "Gross: INR 50,000,000" -> "INR 50,000,000";
+     * the currency is kept for {@link Utils#parseDollars(String)}
+     */
+    private static String toAmount(final String text) {
+        String amount = text.replaceAll("\\(.*\\)", "");
+        final int label = amount.indexOf(':');
+        if (label >= 0) {
+            amount = amount.substring(label + 1);
+        }
+        return amount.replaceAll("[\\s\\u00a0]+", " ").trim();
+    }
+
+    private static List<String> toList(final List<String> values) {
+        final List<String> list = new ArrayList<>(values.size());
+        for (final String value : values) {
+            list.add(value.trim());
+        }
+        return list;
+    }
+
+    /**
+     * One location step, e.g. "//div[@class='article']".
+     */
+    private static final class Step {
+
+        private final boolean descendant;
+
+        private final String name;
+
+        private final List<String[]> attributes = new ArrayList<>(2);
+
+        /**
+         * [child[@attribute='value']='text'] predicates: child step and expected text
+         */
+        private final List<Step> childSteps = new ArrayList<>(1);
+
+        private final List<String> childTexts = new ArrayList<>(1);
+
+        private Step(final boolean descendant, final String name) {
+            this.descendant = descendant;
+            this.name = name;
+        }
+
+        private boolean matches(final TagNode node) {
+            if (!name.equals(node.getName())) {
+                return false;
+            }
+            for (final String[] attribute : attributes) {
+                if (!attribute[1].equals(node.getAttributeByName(attribute[0]))) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < childSteps.size(); i++) {
+                if (!hasChild(node, childSteps.get(i), childTexts.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean hasChild(final TagNode node, final Step childStep, final String text) {
+            for (final TagNode child : node.getChildTags()) {
+                if (childStep.matches(child) && text.equals(child.getText().toString())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * State of one traversal. Per depth and selector it keeps the steps matched at the
+     * element (bit i + 1 for step i, bit 0 for the document) and at the element or any
+     * of its ancestors.
+     */
+    private final class Traversal {
+
+        private int[][] matched = new int[32][];
+
+        private int[][] reached = new int[32][];
+
+        private final List<StringBuilder> open = new ArrayList<>();
+
+        private final List<List<StringBuilder>> collected = new ArrayList<>(selectors.length);
+
+        private Traversal() {
+            for (int i = 0; i < selectors.length; i++) {
+                collected.add(new ArrayList<>());
+            }
+            matched[0] = new int[selectors.length];
+            reached[0] = new int[selectors.length];
+            Arrays.fill(matched[0], 1);
+            Arrays.fill(reached[0], 1);
+        }
+
+        /**
+         * @param node  element to visit
+         * @param depth depth of the parent of the element, 0 for the document
+         */
+        private void visit(final TagNode node, final int depth) {
+            if (depth + 1 == matched.length) {
+                matched = Arrays.copyOf(matched, matched.length * 2);
+                reached = Arrays.copyOf(reached, reached.length * 2);
+            }
+            if (matched[depth + 1] == null) {
+                matched[depth + 1] = new int[selectors.length];
+                reached[depth + 1] = new int[selectors.length];
+            }
+
+            final int[] parentMatched = matched[depth];
+            final int[] parentReached = reached[depth];
+            final int[] nodeMatched = matched[depth + 1];
+            final int[] nodeReached = reached[depth + 1];
+
+            final int openBefore = open.size();
+            for (int s = 0; s < selectors.length; s++) {
+                final Step[] steps = selectors[s];
+                int mask = 0;
+                for (int i = 0; i < steps.length; i++) {
+                    final int previous = 1 << i;
+                    final int context = steps[i].descendant ? parentReached[s] : parentMatched[s];
+                    if ((context & previous) != 0 && steps[i].matches(node)) {
+                        mask |= 1 << (i + 1);
+                    }
+                }
+                nodeMatched[s] = mask;
+                nodeReached[s] = parentReached[s] | mask;
+
+                if ((mask & (1 << steps.length)) != 0) {
+                    final StringBuilder text = new StringBuilder();
+                    open.add(text);
+                    collected.get(s).add(text);
+                }
+            }
+
+            for (final BaseToken child : node.getAllChildren()) {
+                if (child instanceof TagNode) {
+                    visit((TagNode) child, depth + 1);
+                } else if (child instanceof ContentNode && !open.isEmpty()) {
+                    final String content = ((ContentNode) child).getContent();
+                    for (final StringBuilder text : open) {
+                        text.append(content);
+                    }
+                }
+            }
+
+            while (open.size() > openBefore) {
+                open.remove(open.size() - 1);
+            }
+        }
+
+        private List<String>[] results() {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final List<String>[] results = new List[selectors.length];
+            for (int s = 0; s < selectors.length; s++) {
+                final List<StringBuilder> texts = collected.get(s);
+                results[s] = new ArrayList<>(texts.size());
+                for (final StringBuilder text : texts) {
+                    results[s].add(text.toString());
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Compiles an expression of the supported XPath subset into its steps.
+     */
+    private static Step[] compile(final String xpath) {
+        if (!xpath.endsWith(TEXT_FUNCTION)) {
+            throw new IllegalArgumentException("selector has to end with /text(): " + xpath);
+        }
+        final Parser parser = new Parser(xpath.substring(0, xpath.length() - TEXT_FUNCTION.length()));
+        final List<Step> steps = new ArrayList<>();
+        while (!parser.atEnd()) {
+            steps.add(parser.step(true));
+        }
+        if (steps.isEmpty() || steps.size() > 30) {
+            throw new IllegalArgumentException("unsupported number of steps: " + xpath);
+        }
+        return steps.toArray(new Step[steps.size()]);
+    }
+
+    private static final class Parser {
+
+        private final String xpath;
+
+        private int position;
+
+        private Parser(final String xpath) {
+            this.xpath = xpath;
+        }
+
+        private boolean atEnd() {
+            return position == xpath.length();
+        }
+
+        /**
+         * @param withAxis true if the step starts with '/' or '//'
+         */
+        private Step step(final boolean withAxis) {
+            boolean descendant = false;
+            if (withAxis) {
+                expect('/');
+                if (peek() == '/') {
+                    position++;
+                    descendant = true;
+                }
+            }
+
+            final int nameStart = position;
+            while (!atEnd() && (Character.isLetterOrDigit(peek()) || peek() == '_' || peek() == '-')) {
+                position++;
+            }
+            if (nameStart == position) {
+                throw error("element name expected");
+            }
+            final Step step = new Step(descendant, xpath.substring(nameStart, position));
+
+            while (!atEnd() && peek() == '[') {
+                position++;
+                if (peek() == '@') {
+                    position++;
+                    final int attributeStart = position;
+                    while (peek() != '=') {
+                        position++;
+                    }
+                    final String attribute = xpath.substring(attributeStart, position);
+                    expect('=');
+                    step.attributes.add(new String[] { attribute, literal() });
+                } else {
+                    step.childSteps.add(step(false));
+                    expect('=');
+                    step.childTexts.add(literal());
+                }
+                expect(']');
+            }
+            return step;
+        }
+
+        private String literal() {
+            expect('\'');
+            final int end = xpath.indexOf('\'', position);
+            if (end < 0) {
+                throw error("unterminated literal");
+            }
+            final String literal = xpath.substring(position, end);
+            position = end + 1;
+            return literal;
+        }
+
+        private char peek() {
+            if (atEnd()) {
+                throw error("unexpected end");
+            }
+            return xpath.charAt(position);
+        }
+
+        private void expect(final char c) {
+            if (peek() != c) {
+                throw error("'" + c + "' expected");
+            }
+            position++;
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(message + " at " + position + " in " + xpath);
+        }
+    }
+}
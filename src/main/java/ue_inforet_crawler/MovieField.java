@@ -0,0 +1,109 @@
+package ue_inforet_crawler;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Fields of a {@link Movie} a {@link MovieQuery} can filter, group, aggregate and order by.
+ */
+enum MovieField {
+    TITLE(Kind.TEXT, Movie::getTitle),
+    DESCRIPTION(Kind.TEXT, Movie::getDescription),
+    YEAR(Movie::getYearValue, true),
+    RATING(Movie::getRating, false),
+    RATING_COUNT(Movie::getRatingCountValue, true),
+    BUDGET(Movie::getBudgetDollars, true),
+    GROSS(Movie::getGrossDollars, true),
+    DURATION(Movie::getDurationMinutes, true),
+    GENRE(Kind.LIST, Movie::getGenreList),
+    COUNTRY(Kind.LIST, Movie::getCountryList),
+    DIRECTOR(Kind.LIST, Movie::getDirectorList),
+    CAST(Kind.LIST, Movie::getCastList),
+    CHARACTER(Kind.LIST, Movie::getCharacterList);
+
+    enum Kind {
+        /**
+         * A number, 0 if unknown
+         */
+        NUMBER,
+        /**
+         * A string, e.g. the description
+         */
+        TEXT,
+        /**
+         * A list of strings, e.g. the genres
+         */
+        LIST
+    }
+
+    final Kind kind;
+
+    private final Function<Movie, ?> value;
+
+    private final ToDoubleFunction<Movie> number;
+
+    /**
+     * True if a number field holds whole numbers, false for floats
+     */
+    private final boolean integral;
+
+    MovieField(final Kind kind, final Function<Movie, ?> value) {
+        this.kind = kind;
+        this.value = value;
+        this.number = null;
+        this.integral = false;
+    }
+
+    MovieField(final ToDoubleFunction<Movie> number, final boolean integral) {
+        this.kind = Kind.NUMBER;
+        this.value = null;
+        this.number = number;
+        this.integral = integral;
+    }
+
+    /**
+     * @return a number field
+     */
+    double number(final Movie movie) {
+        return number.applyAsDouble(movie);
+    }
+
+    /**
+     * @return a number field as a key ordering like the number, see {@link TopK}
+     */
+    long key(final Movie movie) {
+        return integral ? (long) number(movie) : TopK.floatKey((float) number(movie));
+    }
+
+    /**
+     * @return a text field, "" if unknown
+     */
+    String text(final Movie movie) {
+        final Object text = value.apply(movie);
+        return text == null ? "" : (String) text;
+    }
+
+    /**
+     * @return a list field, empty if unknown
+     */
+    @SuppressWarnings("unchecked")
+    List<String> list(final Movie movie) {
+        final Object list = value.apply(movie);
+        return list == null ? Collections.<String>emptyList() : (List<String>) list;
+    }
+
+    /**
+     * @return the value of a number or text field as group, a Long or a Float for numbers
+     */
+    Comparable<?> group(final Movie movie) {
+        if (kind == Kind.TEXT) {
+            return text(movie);
+        }
+        if (integral) {
+            return (long) number(movie);
+        }
+        return (float) number(movie);
+    }
+}
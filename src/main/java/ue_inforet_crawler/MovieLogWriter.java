@@ -0,0 +1,243 @@
+package ue_inforet_crawler;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonWriter;
+import javax.json.JsonWriterFactory;
+
+/**
+ * Batched alternative to one {@link MovieWriter} file per movie: movies are appended as JSON
+ * Lines (one compact object per line) to segment files 'movies-00000.jsonl', 'movies-00001.jsonl',
+ * ... in the output directory. A segment is closed and the next one started once it reaches
+ * 'maxSegmentBytes'.
+ * <p>
+ * Next to the segments, 'movies.index' gets one line per movie:
+ * <pre>
+ * title \t segment \t offset \t length \t url
+ * </pre>
+ * so single movies can be read back without scanning a segment. A refreshed movie is appended
+ * again, its last index line (by url) points to the current version and readers skip the
+ * older ones.
+ * <p>
+ * Both files are written through buffers and flushed every {@link #FLUSH_RECORDS} movies or
+ * {@link #FLUSH_MILLIS} ms. A reopened directory is appended to, a half written last line of
+ * a crashed run is terminated and skipped by readers.
+ */
+final class MovieLogWriter implements Flushable, AutoCloseable {
+
+    static final String SEGMENT_PREFIX = "movies-";
+
+    static final String SEGMENT_SUFFIX = ".jsonl";
+
+    static final String INDEX_FILE = "movies.index";
+
+    private static final int FLUSH_RECORDS = 256;
+
+    private static final long FLUSH_MILLIS = TimeUnit.SECONDS.toMillis(1L);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final JsonWriterFactory jsonFactory = Json.createWriterFactory(Collections.<String, Object>emptyMap());
+
+    private final StringWriter line = new StringWriter(4096);
+
+    private final File directory;
+
+    private final long maxSegmentBytes;
+
+    private final FileOutputStream indexStream;
+
+    private final Writer index;
+
+    private int segmentNumber;
+
+    private String segmentName;
+
+    private FileOutputStream segmentStream;
+
+    private BufferedOutputStream segment;
+
+    private long segmentBytes;
+
+    private int unflushed;
+
+    private long lastFlush = System.currentTimeMillis();
+
+    /**
+     * @param directory       output directory, created if missing
+     * @param maxSegmentBytes size after which a new segment is started
+     * @throws IOException if the files can not be opened
+     */
+    MovieLogWriter(final File directory, final long maxSegmentBytes) throws IOException {
+        if (maxSegmentBytes < 1) {
+            throw new IllegalArgumentException("maxSegmentBytes must be positive: " + maxSegmentBytes);
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Can not create output directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+
+        openSegment(Math.max(lastSegment(directory), 0));
+
+        indexStream = new FileOutputStream(new File(directory, INDEX_FILE), true);
+        index = new BufferedWriter(new OutputStreamWriter(indexStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    /**
+     * Reads the index of a directory and finds the movies that were written again later.
+     *
+     * @param directory output directory
+     * @return locations "segment:offset" of all outdated versions, empty if there is no index
+     * @throws IOException if the index can not be read
+     */
+    static Set<String> supersededLocations(final File directory) throws IOException {
+        final Set<String> superseded = new HashSet<>();
+        final File file = new File(directory, INDEX_FILE);
+        if (!file.exists()) {
+            return superseded;
+        }
+
+        final Map<String, String> latest = new HashMap<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t", -1);
+                //index lines without url can not be matched
+                if (fields.length == 5 && !fields[4].isEmpty()) {
+                    final String previous = latest.put(CrawlJournal.unescape(fields[4]), fields[1] + ':' + fields[2]);
+                    if (previous != null) {
+                        superseded.add(previous);
+                    }
+                }
+            }
+        }
+        return superseded;
+    }
+
+    /**
+     * @param directory output directory
+     * @return true if the directory holds JSON Lines segments
+     */
+    static boolean hasSegments(final File directory) {
+        return lastSegment(directory) >= 0;
+    }
+
+    /**
+     * @param number number of a segment
+     * @return file name of the segment
+     */
+    static String segmentName(final int number) {
+        return SEGMENT_PREFIX + String.format("%05d", number) + SEGMENT_SUFFIX;
+    }
+
+    /**
+     * Appends a movie to the current segment.
+     *
+     * @param movie movie to write
+     * @return location of the movie as "segment:offset"
+     * @throws IOException if the movie could not be written
+     */
+    synchronized String write(final Movie movie) throws IOException {
+        line.getBuffer().setLength(0);
+        try (JsonWriter writer = jsonFactory.createWriter(line)) {
+            writer.writeObject(MovieWriter.toJson(movie));
+        }
+        line.write('\n');
+        final byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (segmentBytes > 0 && segmentBytes + bytes.length > maxSegmentBytes) {
+            closeSegment();
+            openSegment(segmentNumber + 1);
+        }
+
+        final long offset = segmentBytes;
+        segment.write(bytes);
+        segmentBytes += bytes.length;
+        index.write(CrawlJournal.escape(movie.getTitle()) + '\t' + segmentName + '\t' + offset + '\t' + bytes.length + '\t'
+            + CrawlJournal.escape(movie.getUrl()) + '\n');
+
+        unflushed++;
+        final long now = System.currentTimeMillis();
+        if (unflushed >= FLUSH_RECORDS || now - lastFlush >= FLUSH_MILLIS) {
+            flush();
+        }
+        return segmentName + ':' + offset;
+    }
+
+    /**
+     * Writes the buffered movies and index lines and syncs both files to disk.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        segment.flush();
+        segmentStream.getFD().sync();
+        index.flush();
+        indexStream.getFD().sync();
+        unflushed = 0;
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        segment.close();
+        index.close();
+    }
+
+    private void openSegment(final int number) throws IOException {
+        final File file = new File(directory, segmentName(number));
+        Utils.terminateLastLine(file);
+
+        segmentNumber = number;
+        segmentName = file.getName();
+        segmentStream = new FileOutputStream(file, true);
+        segment = new BufferedOutputStream(segmentStream, BUFFER_SIZE);
+        segmentBytes = file.length();
+    }
+
+    private void closeSegment() throws IOException {
+        flush();
+        segment.close();
+    }
+
+    /**
+     * @return highest segment number in the directory, -1 if there is none
+     */
+    private static int lastSegment(final File directory) {
+        int last = -1;
+        final String[] names = directory.list();
+        if (names == null) {
+            return last;
+        }
+        for (final String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    last = Math.max(last, Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (final NumberFormatException e) {
+                    //not one of ours
+                }
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,393 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A declarative query on movies: filter, optionally group and aggregate, order and limit.
+ * <p>
+ * Queries are built by chaining, e.g. the most active actors:
+ * <pre>
+ * new MovieQuery("Workhorse").groupBy(MovieField.CAST).count().orderByValue(true).limit(10)
+ * </pre>
+ * and are run by a {@link QueryPlanner}, which decides in which order the conditions are
+ * evaluated and runs any number of queries in one pass over the movies.
+ * <p>
+ * A query without group yields one {@link Row} per matching movie. A grouped query yields one
+ * row per group with the aggregate of its movies; a movie is in the group of every distinct
+ * value of a list field, e.g. of every actor of its cast.
+ */
+final class MovieQuery {
+
+    enum Aggregate {
+        COUNT,
+        SUM,
+        AVERAGE,
+        MIN,
+        MAX
+    }
+
+    /**
+     * A condition on one field of a movie.
+     */
+    static final class Condition {
+
+        enum Operator {
+            /**
+             * A number field between two bounds
+             */
+            BETWEEN,
+            /**
+             * A list field containing a value
+             */
+            HAS,
+            /**
+             * A text field containing a keyword
+             */
+            MENTIONS
+        }
+
+        final MovieField field;
+
+        final Operator operator;
+
+        /**
+         * Inclusive bounds of {@link Operator#BETWEEN}
+         */
+        final double from;
+
+        final double to;
+
+        /**
+         * Value of {@link Operator#HAS} or keyword of {@link Operator#MENTIONS}
+         */
+        final String value;
+
+        final boolean ignoreCase;
+
+        /**
+         * As written in the query, e.g. "RATING &gt; 8.0"
+         */
+        private final String description;
+
+        private Condition(final MovieField field, final Operator operator, final double from, final double to, final String value,
+                          final boolean ignoreCase, final String description) {
+            this.field = field;
+            this.operator = operator;
+            this.from = from;
+            this.to = to;
+            this.value = value;
+            this.ignoreCase = ignoreCase;
+            this.description = description;
+        }
+
+        /**
+         * Relative cost of evaluating the condition on a movie: comparing a number is cheapest,
+         * searching a list costs more and scanning a text for a keyword costs most.
+         */
+        int cost() {
+            switch (operator) {
+                case BETWEEN:
+                    return 1;
+                case HAS:
+                    return 2;
+                default:
+                    return 3;
+            }
+        }
+
+        /**
+         * Evaluates the condition on a movie. The planner evaluates {@link Operator#MENTIONS}
+         * conditions of all queries in one scan per text field instead, see {@link Keywords}.
+         */
+        boolean test(final Movie movie) {
+            if (operator == Operator.BETWEEN) {
+                final double number = field.number(movie);
+                return number >= from && number <= to;
+            }
+            if (operator == Operator.HAS) {
+                return field.list(movie).contains(value);
+            }
+            return mentions(field.text(movie));
+        }
+
+        private boolean mentions(final String text) {
+            if (!ignoreCase) {
+                return text.contains(value);
+            }
+            for (int i = 0; i + value.length() <= text.length(); i++) {
+                if (text.regionMatches(true, i, value, 0, value.length())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Condition)) {
+                return false;
+            }
+            final Condition other = (Condition) o;
+            return field == other.field && operator == other.operator && Double.compare(from, other.from) == 0
+                && Double.compare(to, other.to) == 0 && Objects.equals(value, other.value) && ignoreCase == other.ignoreCase;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(field, operator, from, to, value, ignoreCase);
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * A result of a query.
+     */
+    static final class Row {
+
+        /**
+         * Group of the row, null if the query is not grouped
+         */
+        final Comparable<?> group;
+
+        /**
+         * The movie of the row, for a grouped query the one with the smallest or largest value
+         * of {@link Aggregate#MIN} or {@link Aggregate#MAX}, null otherwise
+         */
+        final Movie movie;
+
+        /**
+         * The aggregate of a group, or the value of the order field of the movie, NaN if unordered
+         */
+        final double value;
+
+        Row(final Comparable<?> group, final Movie movie, final double value) {
+            this.group = group;
+            this.movie = movie;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder row = new StringBuilder();
+            if (group != null) {
+                row.append(group).append('\t');
+            }
+            if (movie != null) {
+                row.append(movie.getTitle()).append('\t');
+            }
+            return Double.isNaN(value) ? row.toString().trim() : row.append(format(value)).toString();
+        }
+    }
+
+    final String name;
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    MovieField group;
+
+    Aggregate aggregate = Aggregate.COUNT;
+
+    MovieField aggregateField;
+
+    /**
+     * Field to order movies by, null to keep them in the order of the input
+     */
+    MovieField order;
+
+    /**
+     * True to order groups by their aggregate instead of the group
+     */
+    boolean orderByValue;
+
+    boolean descending;
+
+    int limit = Integer.MAX_VALUE;
+
+    /**
+     * @param name name of the query, to label its results
+     */
+    MovieQuery(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Keeps movies with a number field between 'from' and 'to', both inclusive.
+     */
+    MovieQuery between(final MovieField field, final double from, final double to) {
+        return where(new Condition(number(field), Condition.Operator.BETWEEN, from, to, null, false,
+            field + " between " + format(from) + " and " + format(to)));
+    }
+
+    /**
+     * Keeps movies with a number field above (excluding) the value.
+     */
+    MovieQuery above(final MovieField field, final double value) {
+        return where(new Condition(number(field), Condition.Operator.BETWEEN, Math.nextUp(value), Double.POSITIVE_INFINITY, null,
+            false, field + " > " + format(value)));
+    }
+
+    /**
+     * Keeps movies with a number field below (excluding) the value.
+     */
+    MovieQuery below(final MovieField field, final double value) {
+        return where(new Condition(number(field), Condition.Operator.BETWEEN, Double.NEGATIVE_INFINITY, Math.nextDown(value), null,
+            false, field + " < " + format(value)));
+    }
+
+    /**
+     * Keeps movies with a list field containing the value, e.g. the genre "Sci-Fi".
+     */
+    MovieQuery has(final MovieField field, final String value) {
+        return where(new Condition(list(field), Condition.Operator.HAS, 0.0, 0.0, value, false, field + " has " + value));
+    }
+
+    /**
+     * Keeps movies with a text field containing the keyword, e.g. a description mentioning "Mars".
+     *
+     * @param ignoreCase true to match the keyword in any case
+     */
+    MovieQuery mentions(final MovieField field, final String keyword, final boolean ignoreCase) {
+        if (field.kind != MovieField.Kind.TEXT || keyword.isEmpty()) {
+            throw new IllegalArgumentException("Keywords are searched in text fields: " + field + " mentions '" + keyword + "'");
+        }
+        return where(new Condition(field, Condition.Operator.MENTIONS, 0.0, 0.0, keyword, ignoreCase,
+            field + " mentions \"" + keyword + '"' + (ignoreCase ? " in any case" : "")));
+    }
+
+    /**
+     * Groups the movies by a field, every distinct value of a list field being a group.
+     */
+    MovieQuery groupBy(final MovieField field) {
+        this.group = field;
+        return this;
+    }
+
+    /**
+     * Aggregates the number of movies of every group, the default.
+     */
+    MovieQuery count() {
+        return aggregate(Aggregate.COUNT, null);
+    }
+
+    MovieQuery sum(final MovieField field) {
+        return aggregate(Aggregate.SUM, number(field));
+    }
+
+    MovieQuery average(final MovieField field) {
+        return aggregate(Aggregate.AVERAGE, number(field));
+    }
+
+    /**
+     * Aggregates the smallest value of every group, the row holds the movie with it; on equal
+     * values the first movie wins.
+     */
+    MovieQuery min(final MovieField field) {
+        return aggregate(Aggregate.MIN, number(field));
+    }
+
+    /**
+     * @see #min(MovieField)
+     */
+    MovieQuery max(final MovieField field) {
+        return aggregate(Aggregate.MAX, number(field));
+    }
+
+    /**
+     * Orders the movies of a query without group by a number field, equal values in the order
+     * of the input.
+     */
+    MovieQuery orderBy(final MovieField field, final boolean descending) {
+        this.order = number(field);
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * Orders the groups by their aggregate, equal aggregates by group. Groups are ordered by
+     * group otherwise.
+     */
+    MovieQuery orderByValue(final boolean descending) {
+        this.orderByValue = true;
+        this.descending = descending;
+        return this;
+    }
+
+    MovieQuery limit(final int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @return the conditions in the order they were added
+     */
+    List<Condition> conditions() {
+        return Collections.unmodifiableList(conditions);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder query = new StringBuilder(name).append(": ");
+        query.append(conditions.isEmpty() ? "all movies" : "where " + conditions);
+        if (group != null) {
+            query.append(", group by ").append(group).append(", ").append(aggregate);
+            if (aggregateField != null) {
+                query.append(' ').append(aggregateField);
+            }
+        }
+        if (orderByValue || order != null) {
+            query.append(", order by ").append(order == null ? "value" : order).append(descending ? " descending" : "");
+        }
+        if (limit != Integer.MAX_VALUE) {
+            query.append(", limit ").append(limit);
+        }
+        return query.toString();
+    }
+
+    private MovieQuery where(final Condition condition) {
+        conditions.add(condition);
+        return this;
+    }
+
+    private MovieQuery aggregate(final Aggregate aggregate, final MovieField field) {
+        this.aggregate = aggregate;
+        this.aggregateField = field;
+        return this;
+    }
+
+    /**
+     * @return a number without fraction digits if it is whole, as float if it is one, e.g. a rating
+     */
+    static String format(final double number) {
+        if (number == Math.rint(number) && !Double.isInfinite(number)) {
+            return Long.toString((long) number);
+        }
+        return (float) number == number ? Float.toString((float) number) : Double.toString(number);
+    }
+
+    private static MovieField number(final MovieField field) {
+        if (field.kind != MovieField.Kind.NUMBER) {
+            throw new IllegalArgumentException("Not a number field: " + field);
+        }
+        return field;
+    }
+
+    private static MovieField list(final MovieField field) {
+        if (field.kind != MovieField.Kind.LIST) {
+            throw new IllegalArgumentException("Not a list field: " + field);
+        }
+        return field;
+    }
+}
@@ -1,20 +1,43 @@
 package ue_inforet_crawler;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.json.Json;
-import javax.json.JsonArray;
+import javax.json.JsonException;
 import javax.json.JsonObject;
-import javax.json.JsonReader;
-import javax.json.JsonString;
-import javax.json.JsonValue;
+import javax.json.stream.JsonParser;
 
 public final class MovieReader {
 
+    /**
+     * Number of parsed movies that may wait for {@link #readMoviesFrom(File)}
+     */
+    private static final int DEFAULT_WINDOW = 1024;
+
     private MovieReader() {
     }
 
@@ -31,93 +54,348 @@ public final class MovieReader {
      *
      * @param moviesDir
      *          The directory containing the set of JSON files, each ending with a
-     *          suffix ".json".
+     *          suffix ".json", or JSON Lines segments ending with ".jsonl".
      * @return A list of movies
-     * @throws IOException
+     * @throws IOException if the directory does not exist or a file can not be read
      */
     public static List<Movie> readMoviesFrom(final File moviesDir) throws IOException {
-        final List<Movie> movies = new ArrayList<>();
-
-        if (moviesDir == null) {
-            System.out.println("NullPointerException: No such directory.");
-            System.exit(-1);
-        }
-        if (moviesDir.listFiles() == null) {
-            System.out.println("NullPointerException: No such directory.");
-            System.exit(-1);
-        }
-
-        for (final File file : moviesDir.listFiles()) {
-            if (file.getName().endsWith(".json")) {
-                try (JsonReader reader = Json.createReader(new FileInputStream(file))) {
-                    final JsonArray movie = reader.readArray();
-                    if (movie.size() > 0) {
-                        JsonObject m = (JsonObject) movie.get(0);
-                        Movie obj = new Movie();
-                        obj.setTitle(getString(m, "title"));
-                        obj.setYear(getString(m, "year"));
-                        obj.setUrl(getString(m, "url"));
-                        obj.setGenreList(getJsonArray(m, "genreList"));
-                        obj.setCountryList(getJsonArray(m, "countryList"));
-                        obj.setDescription(getString(m, "description"));
-                        obj.setBudget(getString(m, "budget"));
-                        obj.setGross(getString(m, "gross"));
-                        obj.setRatingValue(getString(m, "ratingValue"));
-                        obj.setRatingCount(getString(m, "ratingCount"));
-                        obj.setDuration(getString(m, "duration"));
-                        obj.setCastList(getJsonArray(m, ("castList")));
-                        obj.setCharacterList(getJsonArray(m, ("characterList")));
-                        obj.setDirectorList(getJsonArray(m, "directorList"));
-                        movies.add(obj);
+        try (Stream<Movie> movies = streamMoviesFrom(moviesDir, DEFAULT_WINDOW)) {
+            return movies.collect(Collectors.toCollection(ArrayList::new));
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Streams movies from directory 'moviesDir' without loading them all into memory. The
+     * directory may hold files ending with ".json", formatted like 'example_movie_avatar.json',
+     * and JSON Lines segments ending with ".jsonl" as written by {@link MovieLogWriter}.
+     * <p>
+     * The files are parsed on one thread per core with the streaming {@link JsonParser}, no
+     * {@link JsonObject} trees are built. Parsed movies wait in a queue of 'window' entries, a
+     * full queue stops the parsers until the stream is consumed further. Movies arrive in no
+     * particular order. Movies of a segment that were written again later, see
+     * {@link MovieLogWriter}, are skipped. The stream should be closed if it is not consumed
+     * completely.
+     *
+     * @param moviesDir The directory containing the JSON files.
+     * @param window    Maximum number of parsed movies waiting to be consumed.
+     * @return A sequential stream of the movies, read errors and a missing directory are thrown
+     * as {@link UncheckedIOException}
+     */
+    public static Stream<Movie> streamMoviesFrom(final File moviesDir, final int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        final File[] files = moviesDir == null ? null : moviesDir.listFiles(
+            (dir, name) -> name.endsWith(".json") || name.endsWith(MovieLogWriter.SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new UncheckedIOException(new FileNotFoundException("No such directory: " + moviesDir));
+        }
+
+        final Set<String> superseded;
+        try {
+            superseded = MovieLogWriter.supersededLocations(moviesDir);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        final ParallelReader reader = new ParallelReader(files, window, superseded);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.NONNULL), false).onClose(reader::close);
+    }
+
+    /**
+     * Iterates over the movies of a set of files while a thread pool parses them.
+     */
+    private static final class ParallelReader implements Iterator<Movie> {
+
+        private static final Movie END = new Movie();
+
+        private final BlockingQueue<Movie> queue;
+
+        private final ExecutorService executor;
+
+        private final AtomicInteger running;
+
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        private final Set<String> superseded;
+
+        private Movie next;
+
+        private boolean finished;
+
+        private ParallelReader(final File[] files, final int window, final Set<String> superseded) {
+            this.superseded = superseded;
+            queue = new ArrayBlockingQueue<>(window);
+            running = new AtomicInteger(files.length);
+
+            final int threads = Math.max(1, Math.min(files.length, Runtime.getRuntime().availableProcessors()));
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = new Thread(runnable, "movie-reader-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            if (files.length == 0) {
+                finished = true;
+            }
+            for (final File file : files) {
+                executor.execute(() -> read(file));
+            }
+            executor.shutdown();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = queue.take();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while reading movies", e);
+                }
+                if (next == END) {
+                    next = null;
+                    finished = true;
+                }
+            }
+            if (failure.get() != null) {
+                close();
+                throw new UncheckedIOException(failure.get());
+            }
+            return next != null;
+        }
+
+        @Override
+        public Movie next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Movie movie = next;
+            next = null;
+            return movie;
+        }
+
+        private void close() {
+            finished = true;
+            executor.shutdownNow();
+        }
+
+        private void read(final File file) {
+            try {
+                if (file.getName().endsWith(MovieLogWriter.SEGMENT_SUFFIX)) {
+                    readLines(file);
+                } else {
+                    readFile(file);
+                }
+            } catch (final IOException e) {
+                failure.compareAndSet(null, e);
+            } catch (final RuntimeException e) {
+                //e.g. a field of unexpected type
+                failure.compareAndSet(null, new IOException("Can not read " + file + ": " + e, e));
+            } catch (final InterruptedException e) {
+                //stream was closed
+                Thread.currentThread().interrupt();
+            } finally {
+                if (running.decrementAndGet() == 0) {
+                    try {
+                        queue.put(END);
+                    } catch (final InterruptedException e) {
+                        //stream was closed
+                    }
+                }
+            }
+        }
+
+        /**
+         * Hands on the first movie of a JSON array file.
+         */
+        private void readFile(final File file) throws IOException, InterruptedException {
+            try (JsonParser parser = Json.createParser(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                if (parser.hasNext() && parser.next() == JsonParser.Event.START_ARRAY
+                    && parser.hasNext() && parser.next() == JsonParser.Event.START_OBJECT) {
+                    queue.put(parseMovie(parser));
+                }
+            } catch (final JsonException e) {
+                throw new IOException("Can not parse " + file + ": " + e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Hands on every current movie of a JSON Lines segment, broken lines are skipped.
+         */
+        private void readLines(final File file) throws IOException, InterruptedException {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 64 * 1024)) {
+                long offset = 0L;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final long lineOffset = offset;
+                    if (!superseded.isEmpty()) {
+                        offset += utf8Length(line) + 1;
                     }
+                    if (line.isEmpty() || !superseded.isEmpty() && superseded.contains(file.getName() + ':' + lineOffset)) {
+                        continue;
+                    }
+                    final Movie movie;
+                    try (JsonParser parser = Json.createParser(new StringReader(line))) {
+                        if (parser.next() != JsonParser.Event.START_OBJECT) {
+                            continue;
+                        }
+                        movie = parseMovie(parser);
+                    } catch (final JsonException e) {
+                        //half written line of a crashed crawl
+                        continue;
+                    }
+                    queue.put(movie);
                 }
             }
         }
-        return movies;
     }
 
     /**
-     * A helper function to parse a JSON array.
-     *
-     * @param m
-     *          The JSON object, containing an array under the attribute 'key'.
-     * @param key
-     *          The key of the array
-     * @return A list containing the Strings in the JSON object.
+     * @return number of bytes of the UTF-8 encoding of the line
      */
-    private static List<String> getJsonArray(final JsonObject m, final String key) {
-        try {
-            final JsonArray array = m.getJsonArray(key);
-            final List<String> result = new ArrayList<>();
-            for (final JsonValue v : array) {
-                result.add(((JsonString) v).getString());
+    private static int utf8Length(final String line) {
+        int length = 0;
+        for (int i = 0; i < line.length(); i++) {
+            final char c = line.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
             }
-            return result;
-        } catch (Exception e) {
-            return new ArrayList<>();
         }
+        return length;
     }
 
     /**
-     * A helper function to parse a JSON String.
-     *
-     * @param m
-     *          The JSON object, containing a String under the attribute 'key'.
-     * @param key
-     *          The key of the array
-     * @return The String in the JSON object.
+     * Reads the fields of a movie from a parser positioned right after its START_OBJECT.
+     * Unknown fields are skipped, missing ones keep the defaults of {@link Movie}.
      */
-    private static String getString(JsonObject m, String key) {
-        try {
-            Object o = m.getString(key);
-            if (o != null) {
-                return (String) o;
+    private static Movie parseMovie(final JsonParser parser) {
+        final Movie movie = new Movie();
+        String key = null;
+        while (parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+            switch (event) {
+                case KEY_NAME:
+                    key = parser.getString();
+                    break;
+                case VALUE_STRING:
+                case VALUE_NUMBER:
+                    setField(movie, key, parser.getString());
+                    break;
+                case START_ARRAY:
+                    setList(movie, key, parseStrings(parser));
+                    break;
+                case START_OBJECT:
+                    skip(parser);
+                    break;
+                case END_OBJECT:
+                    return movie;
+                default:
+                    break;
+            }
+        }
+        return movie;
+    }
+
+    private static List<String> parseStrings(final JsonParser parser) {
+        final List<String> values = new ArrayList<>();
+        while (parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.END_ARRAY) {
+                break;
+            } else if (event == JsonParser.Event.VALUE_STRING) {
+                values.add(parser.getString());
+            } else if (event == JsonParser.Event.START_ARRAY || event == JsonParser.Event.START_OBJECT) {
+                skip(parser);
             }
-        } catch (final NullPointerException np) {
-            System.out.println("NullPointerException: " + np.getMessage());
-            System.exit(-1);
-        } finally {
         }
-        return "";
+        return values;
+    }
+
+    /**
+     * Skips the rest of the array or object the parser just entered.
+     */
+    private static void skip(final JsonParser parser) {
+        int depth = 1;
+        while (depth > 0 && parser.hasNext()) {
+            final JsonParser.Event event = parser.next();
+            if (event == JsonParser.Event.START_ARRAY || event == JsonParser.Event.START_OBJECT) {
+                depth++;
+            } else if (event == JsonParser.Event.END_ARRAY || event == JsonParser.Event.END_OBJECT) {
+                depth--;
+            }
+        }
+    }
+
+    private static void setField(final Movie movie, final String key, final String value) {
+        if (key == null) {
+            return;
+        }
+        switch (key) {
+            case "title":
+                movie.setTitle(value);
+                break;
+            case "year":
+                movie.setYear(value);
+                break;
+            case "url":
+                movie.setUrl(value);
+                break;
+            case "description":
+                movie.setDescription(value);
+                break;
+            case "budget":
+                movie.setBudget(value);
+                break;
+            case "gross":
+                movie.setGross(value);
+                break;
+            case "ratingValue":
+                movie.setRatingValue(value);
+                break;
+            case "ratingCount":
+                movie.setRatingCount(value);
+                break;
+            case "duration":
+                movie.setDuration(value);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void setList(final Movie movie, final String key, final List<String> values) {
+        if (key == null) {
+            return;
+        }
+        switch (key) {
+            case "genreList":
+                movie.setGenreList(values);
+                break;
+            case "countryList":
+                movie.setCountryList(values);
+                break;
+            case "castList":
+                movie.setCastList(values);
+                break;
+            case "characterList":
+                movie.setCharacterList(values);
+                break;
+            case "directorList":
+                movie.setDirectorList(values);
+                break;
+            default:
+                break;
+        }
     }
 }
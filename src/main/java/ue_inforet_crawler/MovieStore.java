@@ -0,0 +1,399 @@
+package ue_inforet_crawler;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Read-only binary columnar store of crawled movies, written by {@link MovieStoreWriter}.
+ * <p>
+ * Every column is a section of the file that is memory-mapped on opening, so a store opens
+ * in constant time and its pages are loaded by the OS on first access:
+ * <ul>
+ * <li>year, rating value, rating count, budget and gross (in US dollars) and duration (in
+ * minutes) as primitive columns, see the typed getters of {@link Movie}</li>
+ * <li>title, description and url as UTF-8 string heaps with one offset per row</li>
+ * <li>genres, countries, directors, cast and characters as lists of int ids into a
+ * dictionary of the distinct values of the column, directors and cast share a dictionary</li>
+ * </ul>
+ * Rows are addressed by their number, 0 to {@link #size()} - 1. Apart from the methods
+ * returning Strings or a {@link Movie}, no accessor allocates, so queries can scan millions
+ * of rows without creating objects.
+ * <p>
+ * File layout, all numbers big endian:
+ * <pre>
+ * magic "IMDBSTOR", int version, int rows, {long offset, long length} for each of {@link #SECTIONS} sections,
+ * sections, each starting at a multiple of 8
+ * </pre>
+ */
+public final class MovieStore {
+
+    static final long MAGIC = 0x494d444253544f52L;
+
+    static final int VERSION = 2;
+
+    /**
+     * Primitive columns
+     */
+    static final int YEAR = 0;
+
+    static final int RATING_VALUE = 1;
+
+    static final int RATING_COUNT = 2;
+
+    static final int BUDGET = 3;
+
+    static final int GROSS = 4;
+
+    static final int DURATION = 5;
+
+    /**
+     * Every text column has an offsets and a bytes section, every list column has offsets,
+     * values, dictionary offsets and dictionary bytes sections.
+     */
+    private static final int FIRST_TEXT_SECTION = 6;
+
+    private static final int FIRST_LIST_SECTION = FIRST_TEXT_SECTION + 2 * TextColumn.values().length;
+
+    static final int SECTIONS = FIRST_LIST_SECTION + 4 * ListColumn.values().length;
+
+    static final int HEADER_BYTES = 16 + 16 * SECTIONS;
+
+    enum TextColumn {
+        TITLE,
+        DESCRIPTION,
+        URL;
+
+        int offsetsSection() {
+            return FIRST_TEXT_SECTION + 2 * ordinal();
+        }
+
+        int bytesSection() {
+            return offsetsSection() + 1;
+        }
+    }
+
+    /**
+     * Directors and cast share one dictionary of persons, so their ids can be compared.
+     */
+    enum ListColumn {
+        GENRE,
+        COUNTRY,
+        DIRECTOR,
+        CAST,
+        CHARACTER;
+
+        /**
+         * @return column whose dictionary sections hold the values of this column
+         */
+        ListColumn dictionary() {
+            return this == CAST ? DIRECTOR : this;
+        }
+
+        int offsetsSection() {
+            return FIRST_LIST_SECTION + 4 * ordinal();
+        }
+
+        int valuesSection() {
+            return offsetsSection() + 1;
+        }
+
+        int dictionaryOffsetsSection() {
+            return offsetsSection() + 2;
+        }
+
+        int dictionaryBytesSection() {
+            return offsetsSection() + 3;
+        }
+    }
+
+    private final int rows;
+
+    private final IntBuffer year;
+
+    private final FloatBuffer ratingValue;
+
+    private final LongBuffer ratingCount;
+
+    private final LongBuffer budget;
+
+    private final LongBuffer gross;
+
+    private final IntBuffer duration;
+
+    private final IntBuffer[] textOffsets = new IntBuffer[TextColumn.values().length];
+
+    private final ByteBuffer[] textBytes = new ByteBuffer[TextColumn.values().length];
+
+    private final IntBuffer[] listOffsets = new IntBuffer[ListColumn.values().length];
+
+    private final IntBuffer[] listValues = new IntBuffer[ListColumn.values().length];
+
+    private final IntBuffer[] dictionaryOffsets = new IntBuffer[ListColumn.values().length];
+
+    private final ByteBuffer[] dictionaryBytes = new ByteBuffer[ListColumn.values().length];
+
+    /**
+     * Opens and maps a store.
+     *
+     * @param file store written by {@link MovieStoreWriter}
+     * @throws IOException if the file can not be read or is no movie store
+     */
+    MovieStore(final File file) throws IOException {
+        final long[] offsets = new long[SECTIONS];
+        final long[] lengths = new long[SECTIONS];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            if (in.readLong() != MAGIC) {
+                throw new IOException(file + " is no movie store");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(file + " has version " + version + ", expected " + VERSION);
+            }
+            rows = in.readInt();
+            for (int i = 0; i < SECTIONS; i++) {
+                offsets[i] = in.readLong();
+                lengths[i] = in.readLong();
+            }
+        }
+
+        final ByteBuffer[] sections = new ByteBuffer[SECTIONS];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            for (int i = 0; i < SECTIONS; i++) {
+                if (offsets[i] + lengths[i] > channel.size() || lengths[i] > Integer.MAX_VALUE) {
+                    throw new IOException(file + " is truncated or broken, section " + i);
+                }
+                //mappings stay valid after the channel is closed
+                sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]);
+            }
+        }
+
+        year = sections[YEAR].asIntBuffer();
+        ratingValue = sections[RATING_VALUE].asFloatBuffer();
+        ratingCount = sections[RATING_COUNT].asLongBuffer();
+        budget = sections[BUDGET].asLongBuffer();
+        gross = sections[GROSS].asLongBuffer();
+        duration = sections[DURATION].asIntBuffer();
+        for (final TextColumn column : TextColumn.values()) {
+            textOffsets[column.ordinal()] = sections[column.offsetsSection()].asIntBuffer();
+            textBytes[column.ordinal()] = sections[column.bytesSection()];
+        }
+        for (final ListColumn column : ListColumn.values()) {
+            listOffsets[column.ordinal()] = sections[column.offsetsSection()].asIntBuffer();
+            listValues[column.ordinal()] = sections[column.valuesSection()].asIntBuffer();
+            dictionaryOffsets[column.ordinal()] = sections[column.dictionary().dictionaryOffsetsSection()].asIntBuffer();
+            dictionaryBytes[column.ordinal()] = sections[column.dictionary().dictionaryBytesSection()];
+        }
+    }
+
+    /**
+     * Writes all movies of a movies directory (.json files or .jsonl segments) into a store.
+     */
+    public static void main(final String[] argv) throws IOException {
+        if (argv.length != 2) {
+            System.out.println("Call with: imdb.MovieStore.jar <moviesPath> <storeFile>");
+            System.exit(0);
+        }
+
+        final long time = System.currentTimeMillis();
+        try (Stream<Movie> movies = MovieReader.streamMoviesFrom(new File(argv[0]), 1024);
+             MovieStoreWriter writer = new MovieStoreWriter(new File(argv[1]))) {
+            final Iterator<Movie> iterator = movies.iterator();
+            while (iterator.hasNext()) {
+                writer.add(iterator.next());
+            }
+            writer.finish();
+        }
+        final MovieStore store = new MovieStore(new File(argv[1]));
+        System.out.println("Stored " + store.size() + " movies in " + new File(argv[1]).length() / 1024 + " KB, time: "
+            + (System.currentTimeMillis() - time) + " ms");
+    }
+
+    /**
+     * @return number of movies
+     */
+    int size() {
+        return rows;
+    }
+
+    /**
+     * @return year of publication, 0 if unknown
+     */
+    int year(final int row) {
+        return year.get(row);
+    }
+
+    /**
+     * @return IMDB rating, 0 if not rated
+     */
+    float ratingValue(final int row) {
+        return ratingValue.get(row);
+    }
+
+    long ratingCount(final int row) {
+        return ratingCount.get(row);
+    }
+
+    /**
+     * @return budget in US dollars, 0 if unknown
+     */
+    long budget(final int row) {
+        return budget.get(row);
+    }
+
+    /**
+     * @return gross in US dollars, 0 if unknown
+     */
+    long gross(final int row) {
+        return gross.get(row);
+    }
+
+    /**
+     * @return duration in minutes, 0 if unknown
+     */
+    int duration(final int row) {
+        return duration.get(row);
+    }
+
+    String text(final TextColumn column, final int row) {
+        final IntBuffer offsets = textOffsets[column.ordinal()];
+        return decode(textBytes[column.ordinal()], offsets.get(row), offsets.get(row + 1));
+    }
+
+    /**
+     * Counts the keywords in a text of a row directly on the stored UTF-8 bytes, see
+     * {@link Keywords#count(ByteBuffer, int, int, int[])}.
+     *
+     * @return number of occurrences of every keyword
+     */
+    int[] count(final TextColumn column, final int row, final Keywords keywords) {
+        final IntBuffer offsets = textOffsets[column.ordinal()];
+        final int[] counts = new int[keywords.size()];
+        keywords.count(textBytes[column.ordinal()], offsets.get(row), offsets.get(row + 1), counts);
+        return counts;
+    }
+
+    /**
+     * @return number of values of the list of a row
+     */
+    int listSize(final ListColumn column, final int row) {
+        final IntBuffer offsets = listOffsets[column.ordinal()];
+        return offsets.get(row + 1) - offsets.get(row);
+    }
+
+    /**
+     * @return dictionary id of the index-th value of the list of a row
+     */
+    int listValue(final ListColumn column, final int row, final int index) {
+        return listValues[column.ordinal()].get(listOffsets[column.ordinal()].get(row) + index);
+    }
+
+    /**
+     * @param id dictionary id, see {@link #dictionaryId(ListColumn, String)}
+     * @return true if the list of the row contains the value
+     */
+    boolean listContains(final ListColumn column, final int row, final int id) {
+        final IntBuffer offsets = listOffsets[column.ordinal()];
+        final IntBuffer values = listValues[column.ordinal()];
+        final int end = offsets.get(row + 1);
+        for (int i = offsets.get(row); i < end; i++) {
+            if (values.get(i) == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of distinct values of the column
+     */
+    int dictionarySize(final ListColumn column) {
+        return dictionaryOffsets[column.ordinal()].limit() - 1;
+    }
+
+    String dictionaryValue(final ListColumn column, final int id) {
+        final IntBuffer offsets = dictionaryOffsets[column.ordinal()];
+        return decode(dictionaryBytes[column.ordinal()], offsets.get(id), offsets.get(id + 1));
+    }
+
+    /**
+     * Looks a value up by scanning the dictionary, meant to be called once per query.
+     *
+     * @return id of the value, -1 if no movie has it
+     */
+    int dictionaryId(final ListColumn column, final String value) {
+        final byte[] pattern = value.getBytes(StandardCharsets.UTF_8);
+        final IntBuffer offsets = dictionaryOffsets[column.ordinal()];
+        final ByteBuffer bytes = dictionaryBytes[column.ordinal()];
+        final int size = dictionarySize(column);
+        for (int id = 0; id < size; id++) {
+            final int start = offsets.get(id);
+            if (offsets.get(id + 1) - start == pattern.length) {
+                int j = 0;
+                while (j < pattern.length && bytes.get(start + j) == pattern[j]) {
+                    j++;
+                }
+                if (j == pattern.length) {
+                    return id;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return values of the list of a row
+     */
+    List<String> list(final ListColumn column, final int row) {
+        final int size = listSize(column, row);
+        final List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(dictionaryValue(column, listValue(column, row, i)));
+        }
+        return values;
+    }
+
+    /**
+     * Builds a {@link Movie} of a row, e.g. to print query results. Numbers are formatted
+     * from the parsed columns, so budget and gross are shown in US dollars.
+     */
+    Movie movie(final int row) {
+        final Movie movie = new Movie();
+        movie.setTitle(text(TextColumn.TITLE, row));
+        movie.setDescription(text(TextColumn.DESCRIPTION, row));
+        movie.setUrl(text(TextColumn.URL, row));
+        movie.setYear(year(row) == 0 ? "" : Integer.toString(year(row)));
+        movie.setRatingValue(ratingValue(row) == 0f ? "" : Float.toString(ratingValue(row)));
+        movie.setRatingCount(ratingCount(row) == 0L ? "" : String.format(Locale.US, "%,d", ratingCount(row)));
+        movie.setBudget(budget(row) == 0L ? "" : String.format(Locale.US, "$%,d", budget(row)));
+        movie.setGross(gross(row) == 0L ? "" : String.format(Locale.US, "$%,d", gross(row)));
+        movie.setDuration(Utils.formatDuration(duration(row)));
+        movie.setGenreList(list(ListColumn.GENRE, row));
+        movie.setCountryList(list(ListColumn.COUNTRY, row));
+        movie.setDirectorList(list(ListColumn.DIRECTOR, row));
+        movie.setCastList(list(ListColumn.CAST, row));
+        movie.setCharacterList(list(ListColumn.CHARACTER, row));
+        return movie;
+    }
+
+    private static String decode(final ByteBuffer bytes, final int start, final int end) {
+        final byte[] value = new byte[end - start];
+        final ByteBuffer source = bytes.duplicate();
+        source.position(start);
+        source.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,217 @@
+package ue_inforet_crawler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link MovieStore}. Movies are added one by one, every column goes to a temporary
+ * section file next to the store, so the movies never have to be in memory at once. Only the
+ * dictionaries of the list columns are kept in memory. {@link #finish()} joins the sections
+ * behind the header and moves the result to the store file atomically. Closing a writer that
+ * was not finished, e.g. after a failed {@link #add(Movie)}, only deletes the sections and
+ * leaves an existing store untouched.
+ */
+final class MovieStoreWriter implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+
+    private final File directory;
+
+    private final File[] sectionFiles = new File[MovieStore.SECTIONS];
+
+    private final DataOutputStream[] sections = new DataOutputStream[MovieStore.SECTIONS];
+
+    /**
+     * Size of every text and dictionary heap and of every list values section
+     */
+    private final long[] sizes = new long[MovieStore.SECTIONS];
+
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+
+    private int rows;
+
+    /**
+     * An add failed, some columns may hold a row more than others
+     */
+    private boolean broken;
+
+    private boolean closed;
+
+    /**
+     * @param file store to write, replaced on {@link #close()}
+     * @throws IOException if the section files can not be created
+     */
+    MovieStoreWriter(final File file) throws IOException {
+        this.file = file.getAbsoluteFile();
+        this.directory = Files.createTempDirectory(this.file.getParentFile().toPath(), file.getName() + '.').toFile();
+
+        for (int i = 0; i < MovieStore.SECTIONS; i++) {
+            sectionFiles[i] = new File(directory, Integer.toString(i));
+            sections[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(sectionFiles[i]), BUFFER_SIZE));
+        }
+        //offsets sections start with the offset of the first row or value
+        for (final MovieStore.TextColumn column : MovieStore.TextColumn.values()) {
+            sections[column.offsetsSection()].writeInt(0);
+        }
+        for (final MovieStore.ListColumn column : MovieStore.ListColumn.values()) {
+            sections[column.offsetsSection()].writeInt(0);
+            sections[column.dictionaryOffsetsSection()].writeInt(0);
+            dictionaries.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * @param movie movie to append as next row
+     * @throws IOException if a section can not be written, or an earlier add failed
+     */
+    void add(final Movie movie) throws IOException {
+        if (broken) {
+            throw new IOException("Adding a movie to " + file + " failed before, the store is incomplete");
+        }
+        //cleared once all columns have the row
+        broken = true;
+        sections[MovieStore.YEAR].writeInt(movie.getYearValue());
+        sections[MovieStore.RATING_VALUE].writeFloat(movie.getRating());
+        sections[MovieStore.RATING_COUNT].writeLong(movie.getRatingCountValue());
+        sections[MovieStore.BUDGET].writeLong(movie.getBudgetDollars());
+        sections[MovieStore.GROSS].writeLong(movie.getGrossDollars());
+        sections[MovieStore.DURATION].writeInt(movie.getDurationMinutes());
+
+        addText(MovieStore.TextColumn.TITLE, movie.getTitle());
+        addText(MovieStore.TextColumn.DESCRIPTION, movie.getDescription());
+        addText(MovieStore.TextColumn.URL, movie.getUrl());
+
+        addList(MovieStore.ListColumn.GENRE, movie.getGenreList());
+        addList(MovieStore.ListColumn.COUNTRY, movie.getCountryList());
+        addList(MovieStore.ListColumn.DIRECTOR, movie.getDirectorList());
+        addList(MovieStore.ListColumn.CAST, movie.getCastList());
+        addList(MovieStore.ListColumn.CHARACTER, movie.getCharacterList());
+
+        rows++;
+        broken = false;
+    }
+
+    /**
+     * Joins the sections behind the header and replaces the store file with the result.
+     *
+     * @throws IOException if the store can not be written, or an {@link #add(Movie)} failed before
+     */
+    void finish() throws IOException {
+        if (closed) {
+            throw new IOException("Writer of " + file + " is closed");
+        }
+        if (broken) {
+            throw new IOException("Adding a movie to " + file + " failed, the store is incomplete");
+        }
+        for (final DataOutputStream section : sections) {
+            section.close();
+        }
+
+        final File temp = new File(directory, "store");
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw"); FileChannel out = raf.getChannel()) {
+            final ByteBuffer header = ByteBuffer.allocate(MovieStore.HEADER_BYTES);
+            header.putLong(MovieStore.MAGIC).putInt(MovieStore.VERSION).putInt(rows);
+
+            long offset = align(MovieStore.HEADER_BYTES);
+            for (final File section : sectionFiles) {
+                header.putLong(offset).putLong(section.length());
+                try (FileInputStream in = new FileInputStream(section); FileChannel channel = in.getChannel()) {
+                    long position = 0;
+                    while (position < channel.size()) {
+                        position += channel.transferTo(position, channel.size() - position, out.position(offset + position));
+                    }
+                }
+                offset = align(offset + section.length());
+            }
+            //pad the last section, so trailing empty sections start within the file
+            raf.setLength(offset);
+
+            header.flip();
+            out.write(header, 0);
+            out.force(true);
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        close();
+    }
+
+    /**
+     * Deletes the sections; without {@link #finish()} nothing is written to the store file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            for (final DataOutputStream section : sections) {
+                try {
+                    section.close();
+                } catch (final IOException e) {
+                    //the section is deleted anyway
+                }
+            }
+        } finally {
+            for (final File section : sectionFiles) {
+                Files.deleteIfExists(section.toPath());
+            }
+            Files.deleteIfExists(new File(directory, "store").toPath());
+            Files.deleteIfExists(directory.toPath());
+        }
+    }
+
+    private void addText(final MovieStore.TextColumn column, final String value) throws IOException {
+        final byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        sections[column.bytesSection()].write(bytes);
+        sections[column.offsetsSection()].writeInt(grow(column.bytesSection(), bytes.length));
+    }
+
+    private void addList(final MovieStore.ListColumn column, final List<String> values) throws IOException {
+        final Map<String, Integer> dictionary = dictionaries.get(column.dictionary().ordinal());
+        for (final String value : values) {
+            Integer id = dictionary.get(value);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.put(value, id);
+                final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                sections[column.dictionary().dictionaryBytesSection()].write(bytes);
+                sections[column.dictionary().dictionaryOffsetsSection()].writeInt(grow(column.dictionary().dictionaryBytesSection(), bytes.length));
+            }
+            sections[column.valuesSection()].writeInt(id);
+        }
+        sections[column.offsetsSection()].writeInt(grow(column.valuesSection(), values.size()));
+    }
+
+    /**
+     * @return new size of the section, which is stored as an int offset
+     */
+    private int grow(final int section, final int length) throws IOException {
+        sizes[section] += length;
+        if (sizes[section] > Integer.MAX_VALUE) {
+            throw new IOException("section " + section + " of " + file + " exceeds 2 GB");
+        }
+        return (int) sizes[section];
+    }
+
+    private static long align(final long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
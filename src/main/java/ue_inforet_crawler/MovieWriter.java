@@ -41,6 +41,17 @@ public class MovieWriter {
     }
 
     public void addMovie(final Movie movie) {
+        if (objects.isEmpty()) {
+            filename = movie.getTitle().toLowerCase();
+        }
+        objects.add(toJson(movie));
+    }
+
+    /**
+     * @param movie movie to convert
+     * @return JSON object formatted according to 'example_movie_avatar.json'
+     */
+    static JsonObject toJson(final Movie movie) {
         final JsonObjectBuilder objBuilder = Json.createObjectBuilder();
 
         objBuilder.add("title", movie.getTitle());
@@ -58,19 +69,23 @@ public class MovieWriter {
         objBuilder.add("directorList", createJsonArray(movie.getDirectorList()));
         objBuilder.add("url", movie.getUrl());
 
-        if (objects.isEmpty()) {
-            filename = movie.getTitle().toLowerCase();
-        }
-        objects.add(objBuilder.build());
+        return objBuilder.build();
     }
 
     public void writeFile() {
         writeFile(this.filename);
     }
 
+    /**
+     * @return path of the file written by {@link #writeFile()}
+     */
+    public String getOutputPath() {
+        return this.directory.concat(this.filename.replaceAll("[^a-z0-9]", "")).concat(".json");
+    }
+
     private void writeFile(final String filename) {
         // final Map<String, Object> properties = new HashMap<>(1);
-        final String outPath = this.directory.concat(this.filename.replaceAll("[^a-z0-9]", "")).concat(".json");
+        final String outPath = getOutputPath();
         final File outDir = new File(directory);
 
         try {
@@ -0,0 +1,336 @@
+package ue_inforet_crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of crawled pages.
+ * <p>
+ * Every url is stored under the SHA-1 of the url: '&lt;sha1&gt;.gz' holds the gzipped body,
+ * '&lt;sha1&gt;.meta' the url, ETag, Last-Modified and the time the page was fetched or last
+ * revalidated. The total size of the bodies is capped, the least recently used entries
+ * are evicted first. Use order survives restarts via the modification time of the body file.
+ * <p>
+ * The files of a key are only written, read and deleted under the lock of its key, so a reader
+ * never sees the meta file of an entry without its body. The body is moved into place first and the
+ * meta file last, it is the commit record of an entry: a body without meta is a miss, a meta file
+ * without body is deleted when the cache is opened.
+ */
+final class PageCache {
+
+    private static final String BODY_SUFFIX = ".gz";
+
+    private static final String META_SUFFIX = ".meta";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * A cached page.
+     */
+    static final class Entry {
+
+        final String body;
+
+        final String etag;
+
+        final String lastModified;
+
+        final long fetchedAt;
+
+        private Entry(final String body, final String etag, final String lastModified, final long fetchedAt) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        /**
+         * @param maxAgeMillis time after which a page has to be revalidated
+         * @return true if the page can be served without asking the server
+         */
+        boolean isFresh(final long maxAgeMillis) {
+            return System.currentTimeMillis() - fetchedAt < maxAgeMillis;
+        }
+    }
+
+    private final File directory;
+
+    private final long maxBytes;
+
+    /**
+     * key -> size of the body file, in access order
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long totalBytes;
+
+    /**
+     * Locks of the keys, striped by the hash of the key
+     */
+    private final Object[] locks = new Object[64];
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong revalidations = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param directory directory holding the cache, created if missing
+     * @param maxBytes  maximum size of all compressed bodies
+     * @throws IOException if the directory can not be created
+     */
+    PageCache(final File directory, final long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+
+        Files.createDirectories(directory.toPath());
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+
+        //leftovers of a put interrupted by a crash, not counted by the size cap
+        final File[] temps = directory.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (temps != null) {
+            for (final File temp : temps) {
+                Files.deleteIfExists(temp.toPath());
+            }
+        }
+
+        //meta files of evicted entries, revalidated before the eviction deleted their body
+        final File[] metas = directory.listFiles((dir, name) -> name.endsWith(META_SUFFIX));
+        if (metas != null) {
+            for (final File meta : metas) {
+                final String name = meta.getName();
+                if (!new File(directory, name.substring(0, name.length() - META_SUFFIX.length()) + BODY_SUFFIX).exists()) {
+                    Files.deleteIfExists(meta.toPath());
+                }
+            }
+        }
+
+        final File[] bodies = directory.listFiles((dir, name) -> name.endsWith(BODY_SUFFIX));
+        if (bodies != null) {
+            Arrays.sort(bodies, Comparator.comparingLong(File::lastModified));
+            for (final File body : bodies) {
+                final String name = body.getName();
+                entries.put(name.substring(0, name.length() - BODY_SUFFIX.length()), body.length());
+                totalBytes += body.length();
+            }
+        }
+    }
+
+    /**
+     * @param url url of the page
+     * @return cached page or null
+     */
+    Entry get(final String url) {
+        final String key = keyOf(url);
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+
+        final File bodyFile = new File(directory, key + BODY_SUFFIX);
+        final Properties meta = new Properties();
+        synchronized (lockOf(key)) {
+            try (InputStream in = new FileInputStream(new File(directory, key + META_SUFFIX))) {
+                meta.load(in);
+                if (!url.equals(meta.getProperty("url"))) {
+                    return null;
+                }
+
+                final String body = readBody(bodyFile);
+                bodyFile.setLastModified(System.currentTimeMillis());
+                return new Entry(body, meta.getProperty("etag"), meta.getProperty("lastModified"), Long.parseLong(meta.getProperty("fetchedAt", "0")));
+            } catch (final IOException | NumberFormatException e) {
+                //broken entry, e.g. after a crash while writing: treat as miss, it will be overwritten
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Stores a freshly downloaded page.
+     *
+     * @param url          url of the page
+     * @param body         body of the page
+     * @param etag         ETag header of the response, may be null
+     * @param lastModified Last-Modified header of the response, may be null
+     * @throws IOException if the entry could not be written
+     */
+    void put(final String url, final String body, final String etag, final String lastModified) throws IOException {
+        final String key = keyOf(url);
+
+        final List<String> evicted;
+        synchronized (lockOf(key)) {
+            final Path bodyTemp = Files.createTempFile(directory.toPath(), key, TEMP_SUFFIX);
+            try {
+                try (OutputStream out = new GZIPOutputStream(new FileOutputStream(bodyTemp.toFile()))) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+                final Path bodyPath = new File(directory, key + BODY_SUFFIX).toPath();
+                Files.move(bodyTemp, bodyPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                //last: the validators of the new body must not be stored with the old one
+                writeMeta(key, url, etag, lastModified);
+
+                final long size = Files.size(bodyPath);
+                synchronized (this) {
+                    final Long previous = entries.put(key, size);
+                    totalBytes += size - (previous == null ? 0L : previous);
+                    evicted = evict();
+                }
+            } finally {
+                Files.deleteIfExists(bodyTemp);
+            }
+        }
+        //outside the lock of this key: the evicted keys are locked one by one
+        for (final String evictedKey : evicted) {
+            delete(evictedKey);
+        }
+    }
+
+    /**
+     * Marks a cached page as confirmed by the server (304 Not Modified).
+     *
+     * @param url   url of the page
+     * @param entry the cached page
+     * @throws IOException if the entry could not be updated
+     */
+    void revalidated(final String url, final Entry entry) throws IOException {
+        final String key = keyOf(url);
+        synchronized (lockOf(key)) {
+            synchronized (this) {
+                //evicted in the meantime, its body is gone or about to be deleted
+                if (!entries.containsKey(key)) {
+                    return;
+                }
+            }
+            writeMeta(key, url, entry.etag, entry.lastModified);
+        }
+    }
+
+    void countHit() {
+        hits.incrementAndGet();
+    }
+
+    void countRevalidation() {
+        revalidations.incrementAndGet();
+    }
+
+    void countMiss() {
+        misses.incrementAndGet();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "hits: " + hits.get() + ", revalidated: " + revalidations.get() + ", misses: " + misses.get() + ", entries: " + entries.size()
+            + ", size: " + totalBytes / 1024L + " KB";
+    }
+
+    private void writeMeta(final String key, final String url, final String etag, final String lastModified) throws IOException {
+        final Properties meta = new Properties();
+        meta.setProperty("url", url);
+        if (etag != null) {
+            meta.setProperty("etag", etag);
+        }
+        if (lastModified != null) {
+            meta.setProperty("lastModified", lastModified);
+        }
+        meta.setProperty("fetchedAt", Long.toString(System.currentTimeMillis()));
+
+        final Path metaTemp = Files.createTempFile(directory.toPath(), key, TEMP_SUFFIX);
+        try {
+            try (OutputStream out = new FileOutputStream(metaTemp.toFile())) {
+                meta.store(out, null);
+            }
+            Files.move(metaTemp, new File(directory, key + META_SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(metaTemp);
+        }
+    }
+
+    /**
+     * Drops the least recently used entries until the bodies fit the cap again.
+     *
+     * @return keys of the dropped entries, their files still have to be deleted
+     */
+    private List<String> evict() {
+        final List<String> evicted = new ArrayList<>();
+        final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            evicted.add(eldest.getKey());
+        }
+        return evicted;
+    }
+
+    /**
+     * Deletes the files of an evicted entry, unless it was stored again in the meantime.
+     */
+    private void delete(final String key) {
+        synchronized (lockOf(key)) {
+            synchronized (this) {
+                if (entries.containsKey(key)) {
+                    return;
+                }
+            }
+            new File(directory, key + BODY_SUFFIX).delete();
+            new File(directory, key + META_SUFFIX).delete();
+        }
+    }
+
+    private Object lockOf(final String key) {
+        return locks[(key.hashCode() & 0x7FFFFFFF) % locks.length];
+    }
+
+    private static String readBody(final File bodyFile) throws IOException {
+        try (InputStream in = new GZIPInputStream(new FileInputStream(bodyFile))) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream((int) bodyFile.length() * 4);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String keyOf(final String url) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder key = new StringBuilder(digest.length * 2);
+            for (final byte b : digest) {
+                key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return key.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            //every JVM has to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
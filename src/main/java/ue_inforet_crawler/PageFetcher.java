@@ -0,0 +1,269 @@
+package ue_inforet_crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Downloads raw pages for the crawler. Fetching is kept apart from parsing so that
+ * both can run in their own stage of the {@link CrawlPipeline}. All requests go through
+ * a {@link PolitenessScheduler}.
+ * <p>
+ * Pages are loaded with {@link HttpURLConnection}, which keeps idle connections alive in a
+ * pool per host as long as every response body is read completely and closed (never
+ * disconnected). The pool size is the system property 'http.maxConnections'. Bodies are
+ * requested gzip-compressed and read into a buffer reused by each thread. Every redirect is a
+ * request of its own, charged to the rate limit of the host it goes to.
+ * <p>
+ * With a {@link PageCache}, pages younger than 'maxAgeMillis' are served from disk without
+ * any request; older ones are revalidated with a conditional GET (If-None-Match /
+ * If-Modified-Since) and only downloaded again if the server reports a change.
+ * <p>
+ * Every request records the time to connect (name lookup and TCP/TLS handshake, close to 0
+ * for a pooled connection), to the first response byte and to read the body in the
+ * {@link CrawlMetrics}.
+ */
+final class PageFetcher {
+
+    private static final int TIMEOUT_MILLIS = 10000;
+
+    private static final int NOT_MODIFIED = 304;
+
+    /**
+     * Redirects followed per request, e.g. from http to https and to the canonical url
+     */
+    private static final int MAX_REDIRECTS = 5;
+
+    private static final ThreadLocal<ByteArrayOutputStream> BODY_BUFFER = ThreadLocal.withInitial(() -> new ByteArrayOutputStream(256 * 1024));
+
+    private static final ThreadLocal<byte[]> READ_BUFFER = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+
+    private final PolitenessScheduler scheduler;
+
+    private final PageCache cache;
+
+    private final long maxAgeMillis;
+
+    private final CrawlMetrics metrics;
+
+    /**
+     * Answer of the server.
+     */
+    private static final class Response {
+
+        private final int status;
+
+        private final String body;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        /**
+         * Target of a redirect, null otherwise
+         */
+        private final URL location;
+
+        private Response(final int status, final String body, final String etag, final String lastModified, final URL location) {
+            this.status = status;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.location = location;
+        }
+    }
+
+    /**
+     * @param scheduler    scheduler for all requests
+     * @param cache        cache for downloaded pages, null to disable caching
+     * @param maxAgeMillis time a cached page is served without revalidation
+     * @param metrics      metrics to record request timings in
+     */
+    PageFetcher(final PolitenessScheduler scheduler, final PageCache cache, final long maxAgeMillis, final CrawlMetrics metrics) {
+        this.scheduler = scheduler;
+        this.cache = cache;
+        this.maxAgeMillis = maxAgeMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param url absolute url of the page
+     * @return body of the page
+     * @throws IOException if the page could not be downloaded, retries included
+     */
+    String fetch(final String url) throws IOException {
+        if (cache == null) {
+            return load(url, null).body;
+        }
+
+        final PageCache.Entry cached = cache.get(url);
+        if (cached != null && cached.isFresh(maxAgeMillis)) {
+            cache.countHit();
+            metrics.increment("cache.hit");
+            return cached.body;
+        }
+
+        final Response response = load(url, cached);
+        if (response.status == NOT_MODIFIED && cached != null) {
+            cache.countRevalidation();
+            metrics.increment("cache.revalidated");
+            cache.revalidated(url, cached);
+            return cached.body;
+        }
+
+        cache.countMiss();
+        metrics.increment("cache.miss");
+        cache.put(url, response.body, response.etag, response.lastModified);
+        return response.body;
+    }
+
+    PolitenessScheduler getScheduler() {
+        return scheduler;
+    }
+
+    PageCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Loads a page, following redirects by hand since {@link HttpURLConnection} does not
+     * follow them from http to https. Every hop waits for the rate limit of its own host and
+     * is retried on its own.
+     *
+     * @param url    url to load
+     * @param cached cached version of the page for a conditional request, may be null
+     * @return the answer, either 2xx with body or 304 without
+     * @throws HttpStatusException for any other status, or after too many redirects
+     */
+    private Response load(final String url, final PageCache.Entry cached) throws IOException {
+        URL location = new URL(url);
+        for (int redirects = 0; ; redirects++) {
+            final URL hop = location;
+            final Response response = scheduler.execute(hop.toString(), () -> get(hop, cached));
+            if (response.location == null) {
+                return response;
+            }
+            if (redirects == MAX_REDIRECTS) {
+                throw new HttpStatusException(response.status, hop.toString());
+            }
+            location = response.location;
+            metrics.increment("http.redirect");
+        }
+    }
+
+    /**
+     * Sends a single request.
+     *
+     * @param location url to load
+     * @param cached   cached version of the page for a conditional request, may be null
+     * @return the answer, either 2xx with body, 304 without or a redirect with its target
+     * @throws HttpStatusException for any other status
+     */
+    private Response get(final URL location, final PageCache.Entry cached) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) location.openConnection();
+        connection.setConnectTimeout(TIMEOUT_MILLIS);
+        connection.setReadTimeout(TIMEOUT_MILLIS);
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (cached != null) {
+            if (cached.etag != null) {
+                connection.setRequestProperty("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.lastModified);
+            }
+        }
+
+        long time = System.nanoTime();
+        connection.connect();
+        metrics.record("http.connect", System.nanoTime() - time);
+
+        time = System.nanoTime();
+        final int status = connection.getResponseCode();
+        metrics.record("http.ttfb", System.nanoTime() - time);
+        metrics.increment("http." + status);
+
+        if (status == NOT_MODIFIED) {
+            drain(connection.getInputStream());
+            return new Response(status, null, null, null, null);
+        }
+        if (status < 200 || status >= 300) {
+            //read the redirect or error page as well, otherwise the connection can not be reused
+            drain(status >= 400 ? connection.getErrorStream() : connection.getInputStream());
+            final String target = connection.getHeaderField("Location");
+            if (!isRedirect(status) || target == null) {
+                throw new HttpStatusException(status, location.toString());
+            }
+            return new Response(status, null, null, null, new URL(location, target));
+        }
+
+        time = System.nanoTime();
+        InputStream in = connection.getInputStream();
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            in = new GZIPInputStream(in);
+        }
+        final String body = read(in, charsetOf(connection.getContentType()));
+        metrics.record("http.body", System.nanoTime() - time);
+        return new Response(status, body, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"), null);
+    }
+
+    private static boolean isRedirect(final int status) {
+        return status == 301 || status == 302 || status == 303 || status == 307 || status == 308;
+    }
+
+    private static String read(final InputStream in, final Charset charset) throws IOException {
+        final ByteArrayOutputStream body = BODY_BUFFER.get();
+        final byte[] buffer = READ_BUFFER.get();
+        body.reset();
+        try (InputStream stream = in) {
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+        }
+        try {
+            return body.toString(charset.name());
+        } catch (final UnsupportedEncodingException e) {
+            //charsetOf only returns supported charsets
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void drain(final InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        final byte[] buffer = READ_BUFFER.get();
+        try (InputStream stream = in) {
+            while (stream.read(buffer) != -1) {
+                //discard
+            }
+        }
+    }
+
+    /**
+     * @param contentType e.g. "text/html;charset=UTF-8"
+     * @return charset of the content type, UTF-8 if missing or unknown
+     */
+    private static Charset charsetOf(final String contentType) {
+        if (contentType != null) {
+            for (final String parameter : contentType.split(";")) {
+                final String trimmed = parameter.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0, 8)) {
+                    try {
+                        return Charset.forName(trimmed.substring(8).replace("\"", "").trim());
+                    } catch (final IllegalArgumentException e) {
+                        return StandardCharsets.UTF_8;
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
@@ -0,0 +1,205 @@
+package ue_inforet_crawler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Schedules requests of all crawler threads so that every host sees at most a fixed
+ * request rate (one {@link TokenBucket} per host).
+ * <p>
+ * Failed requests are retried with jittered exponential backoff. A 429 or 503 answer pauses
+ * the whole host, not only the failing thread. Retries are limited per request and by a
+ * crawl-wide budget (a fraction of all requests), so an unreachable host fails the affected
+ * titles instead of multiplying the load.
+ */
+final class PolitenessScheduler {
+
+    /**
+     * A request issued through the scheduler.
+     *
+     * @param <T> result type
+     */
+    interface Request<T> {
+
+        T execute() throws IOException;
+    }
+
+    private static final long BASE_BACKOFF_MILLIS = 500L;
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30L);
+
+    private static final int MIN_RETRY_BUDGET = 10;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final double permitsPerSecond;
+
+    private final int burst;
+
+    private final int maxAttempts;
+
+    private final double retryRatio;
+
+    private final long baseBackoffNanos;
+
+    private final long startNanos = System.nanoTime();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder retries = new LongAdder();
+
+    private final LongAdder throttled = new LongAdder();
+
+    private final LongAdder waitNanos = new LongAdder();
+
+    /**
+     * @param permitsPerSecond sustained requests per second and host
+     * @param burst            requests per host that may be issued at once after an idle period
+     * @param maxAttempts      attempts per request, including the first one
+     * @param retryRatio       retries allowed in relation to all requests, e.g. 0.1 for 10%
+     */
+    PolitenessScheduler(final double permitsPerSecond, final int burst, final int maxAttempts, final double retryRatio) {
+        this(permitsPerSecond, burst, maxAttempts, retryRatio, BASE_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param permitsPerSecond  sustained requests per second and host
+     * @param burst             requests per host that may be issued at once after an idle period
+     * @param maxAttempts       attempts per request, including the first one
+     * @param retryRatio        retries allowed in relation to all requests, e.g. 0.1 for 10%
+     * @param baseBackoffMillis backoff after the first failure, doubled with every further one
+     */
+    PolitenessScheduler(final double permitsPerSecond, final int burst, final int maxAttempts, final double retryRatio, final long baseBackoffMillis) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be positive: " + maxAttempts);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.maxAttempts = maxAttempts;
+        this.retryRatio = retryRatio;
+        this.baseBackoffNanos = TimeUnit.MILLISECONDS.toNanos(baseBackoffMillis);
+    }
+
+    /**
+     * Waits for the rate limit of the url's host and executes the request, retrying it
+     * on transient failures.
+     *
+     * @param url     url requested, used to determine the host
+     * @param request request to execute
+     * @param <T>     result type
+     * @return result of the request
+     * @throws IOException the last failure once retries are exhausted or for non transient failures
+     */
+    <T> T execute(final String url, final Request<T> request) throws IOException {
+        final TokenBucket bucket = buckets.computeIfAbsent(hostOf(url), host -> new TokenBucket(permitsPerSecond, burst));
+
+        int attempt = 0;
+        while (true) {
+            waitNanos.add(bucket.acquire());
+            requests.increment();
+            try {
+                return request.execute();
+            } catch (final IOException e) {
+                attempt++;
+                final int status = statusOf(e);
+                if (!isTransient(e, status) || attempt >= maxAttempts || !hasRetryBudget()) {
+                    throw e;
+                }
+                retries.increment();
+
+                final long backoff = backoffNanos(attempt);
+                if (status == 429 || status == 503) {
+                    throttled.increment();
+                    bucket.pause(backoff);
+                } else {
+                    sleep(backoff);
+                }
+            }
+        }
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    long getRetries() {
+        return retries.sum();
+    }
+
+    long getThrottled() {
+        return throttled.sum();
+    }
+
+    /**
+     * @return total time threads spent waiting for a rate limit, in milliseconds
+     */
+    long getWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(waitNanos.sum());
+    }
+
+    /**
+     * @return requests per second achieved since the scheduler was created
+     */
+    double getRequestsPerSecond() {
+        final double seconds = (System.nanoTime() - startNanos) / (double) TimeUnit.SECONDS.toNanos(1L);
+        return seconds > 0.0 ? requests.sum() / seconds : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests: %d, retries: %d, throttled: %d, waited: %d ms, %.2f requests/s",
+            getRequests(), getRetries(), getThrottled(), getWaitMillis(), getRequestsPerSecond());
+    }
+
+    private boolean hasRetryBudget() {
+        return retries.sum() < MIN_RETRY_BUDGET + retryRatio * requests.sum();
+    }
+
+    /**
+     * @return status code of an http error, -1 for other failures
+     */
+    private static int statusOf(final IOException e) {
+        if (e instanceof HttpStatusException) {
+            return ((HttpStatusException) e).getStatusCode();
+        }
+        return -1;
+    }
+
+    private static boolean isTransient(final IOException e, final int status) {
+        if (status == -1) {
+            //timeouts and resets are transient, a missing host or an interrupted crawl is not
+            return !(e instanceof UnknownHostException || e instanceof MalformedURLException || Thread.currentThread().isInterrupted());
+        }
+        return status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Jittered backoff: random time between half and all of an exponentially growing cap, so
+     * threads failing together do not retry together.
+     */
+    private long backoffNanos(final int attempt) {
+        final long cap = Math.min(MAX_BACKOFF_NANOS, baseBackoffNanos << Math.min(attempt - 1, 16));
+        return ThreadLocalRandom.current().nextLong(cap / 2L, cap + 1L);
+    }
+
+    private static void sleep(final long nanos) throws InterruptedIOException {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted during backoff");
+        }
+    }
+
+    private static String hostOf(final String url) throws MalformedURLException {
+        return new URL(url).getHost().toLowerCase();
+    }
+}
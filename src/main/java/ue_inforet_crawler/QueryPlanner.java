@@ -0,0 +1,417 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import ue_inforet_crawler.MovieQuery.Condition;
+import ue_inforet_crawler.MovieQuery.Row;
+
+/**
+ * Plans and runs a batch of {@link MovieQuery}s in a single pass over a list of movies.
+ * <p>
+ * The conditions of all queries are collected once; equal conditions of several queries are
+ * evaluated at most once per movie and shared. Every query evaluates its conditions cheapest
+ * first (numbers, then lists, then keywords, see {@link Condition#cost()}) and stops at the
+ * first one failing, so a description is only scanned for movies passing the year or country
+ * conditions. All keywords searched in the same text field are compiled into one
+ * {@link Keywords} automaton, which scans the text once for all queries.
+ * <p>
+ * The movies are split for a parallel stream; every split keeps its own partial results,
+ * {@link TopK}s and groups, merged in the order of the movies at the end, so results do not
+ * depend on the number of threads.
+ */
+public final class QueryPlanner {
+
+    /**
+     * Condition states of a movie, a condition is evaluated on first use
+     */
+    private static final byte UNKNOWN = 0;
+
+    private static final byte TRUE = 1;
+
+    private static final byte FALSE = 2;
+
+    /**
+     * Keywords of one text field and case sensitivity, counted in one scan.
+     */
+    private static final class KeywordScan {
+
+        final MovieField field;
+
+        final Keywords keywords;
+
+        /**
+         * Condition of every keyword
+         */
+        final int[] conditions;
+
+        KeywordScan(final MovieField field, final Keywords keywords, final int[] conditions) {
+            this.field = field;
+            this.keywords = keywords;
+            this.conditions = conditions;
+        }
+    }
+
+    /**
+     * Aggregate of a group so far.
+     */
+    private static final class Group {
+
+        long count;
+
+        double sum;
+
+        /**
+         * Smallest or largest value so far, and its movie
+         */
+        double best;
+
+        Movie movie;
+    }
+
+    private final List<MovieQuery> queries;
+
+    /**
+     * Distinct conditions of all queries
+     */
+    private final List<Condition> conditions = new ArrayList<>();
+
+    /**
+     * Per query: indexes into 'conditions', in the order of evaluation
+     */
+    private final int[][] plans;
+
+    /**
+     * Per condition: index into 'scans' of a keyword condition, -1 otherwise
+     */
+    private final int[] scanOfCondition;
+
+    private final List<KeywordScan> scans = new ArrayList<>();
+
+    /**
+     * Plans a batch of queries.
+     */
+    QueryPlanner(final List<MovieQuery> queries) {
+        this.queries = new ArrayList<>(queries);
+
+        final Map<Condition, Integer> ids = new HashMap<>();
+        plans = new int[queries.size()][];
+        for (int query = 0; query < queries.size(); query++) {
+            plans[query] = queries.get(query)
+                                  .conditions()
+                                  .stream()
+                                  .sorted(Comparator.comparingInt(Condition::cost))
+                                  .mapToInt(condition -> ids.computeIfAbsent(condition, c -> {
+                                      conditions.add(c);
+                                      return conditions.size() - 1;
+                                  }))
+                                  .distinct()
+                                  .toArray();
+        }
+
+        //one scan per text field and case sensitivity
+        scanOfCondition = new int[conditions.size()];
+        Arrays.fill(scanOfCondition, -1);
+        final Map<String, List<Integer>> keywordConditions = new LinkedHashMap<>();
+        for (int condition = 0; condition < conditions.size(); condition++) {
+            final Condition c = conditions.get(condition);
+            if (c.operator == Condition.Operator.MENTIONS) {
+                keywordConditions.computeIfAbsent(c.field + (c.ignoreCase ? " in any case" : ""), k -> new ArrayList<>()).add(condition);
+            }
+        }
+        for (final List<Integer> scan : keywordConditions.values()) {
+            final Condition first = conditions.get(scan.get(0));
+            final String[] keywords = scan.stream().map(condition -> conditions.get(condition).value).toArray(String[]::new);
+            for (final int condition : scan) {
+                scanOfCondition[condition] = scans.size();
+            }
+            scans.add(new KeywordScan(first.field, new Keywords(first.ignoreCase, keywords), scan.stream().mapToInt(i -> i).toArray()));
+        }
+    }
+
+    /**
+     * Runs the queries in one pass over the movies.
+     *
+     * @return results of every query, in the order of the queries
+     */
+    List<List<Row>> run(final Collection<Movie> movies) {
+        return movies.parallelStream().collect(Collector.of(Scan::new, Scan::accept, Scan::merge, Scan::rows));
+    }
+
+    /**
+     * @return the conditions of every query in the order they are evaluated, and the keyword scans
+     */
+    String explain() {
+        final StringBuilder explain = new StringBuilder();
+        for (int query = 0; query < queries.size(); query++) {
+            final String plan = Arrays.stream(plans[query])
+                                      .mapToObj(condition -> conditions.get(condition) + " [" + condition + ']')
+                                      .collect(Collectors.joining(", then "));
+            explain.append(queries.get(query)).append(System.lineSeparator())
+                   .append("\tevaluates ").append(plan.isEmpty() ? "no conditions" : plan).append(System.lineSeparator());
+        }
+        explain.append(conditions.size()).append(" distinct conditions, ").append(scans.size()).append(" keyword scans");
+        for (final KeywordScan scan : scans) {
+            explain.append(System.lineSeparator()).append('\t').append(scan.field).append(": ")
+                   .append(IntStream.range(0, scan.keywords.size()).mapToObj(scan.keywords::keyword).collect(Collectors.toList()));
+        }
+        return explain.toString();
+    }
+
+    /**
+     * Partial results of a part of the movies.
+     */
+    private final class Scan {
+
+        private final byte[] states = new byte[conditions.size()];
+
+        private final int[][] counts = new int[scans.size()][];
+
+        /**
+         * Per query: a TopK of movies or the groups, in order of appearance
+         */
+        private final Object[] results = new Object[queries.size()];
+
+        Scan() {
+            for (int scan = 0; scan < counts.length; scan++) {
+                counts[scan] = new int[scans.get(scan).keywords.size()];
+            }
+            for (int query = 0; query < results.length; query++) {
+                final MovieQuery q = queries.get(query);
+                results[query] = q.group == null ? new TopK<Movie>(q.limit) : new LinkedHashMap<Comparable<?>, Group>();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void accept(final Movie movie) {
+            Arrays.fill(states, UNKNOWN);
+            for (int query = 0; query < results.length; query++) {
+                if (!matches(movie, plans[query])) {
+                    continue;
+                }
+                final MovieQuery q = queries.get(query);
+                if (q.group == null) {
+                    final long key = q.order == null ? 0L : q.order.key(movie);
+                    final TopK<Movie> top = (TopK<Movie>) results[query];
+                    top.offer(q.descending ? key : -key, movie);
+                } else if (q.group.kind == MovieField.Kind.LIST) {
+                    final List<String> values = q.group.list(movie);
+                    for (int i = 0; i < values.size(); i++) {
+                        //a movie counts once per group, a list may hold a value twice
+                        if (values.indexOf(values.get(i)) == i) {
+                            add((Map<Comparable<?>, Group>) results[query], values.get(i), q, movie);
+                        }
+                    }
+                } else {
+                    add((Map<Comparable<?>, Group>) results[query], q.group.group(movie), q, movie);
+                }
+            }
+        }
+
+        private boolean matches(final Movie movie, final int[] plan) {
+            for (final int condition : plan) {
+                if (states[condition] == UNKNOWN) {
+                    evaluate(movie, condition);
+                }
+                if (states[condition] == FALSE) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void evaluate(final Movie movie, final int condition) {
+            final int scan = scanOfCondition[condition];
+            if (scan < 0) {
+                states[condition] = conditions.get(condition).test(movie) ? TRUE : FALSE;
+                return;
+            }
+            //all keywords of the field at once
+            final KeywordScan keywordScan = scans.get(scan);
+            Arrays.fill(counts[scan], 0);
+            keywordScan.keywords.count(keywordScan.field.text(movie), counts[scan]);
+            for (int keyword = 0; keyword < counts[scan].length; keyword++) {
+                states[keywordScan.conditions[keyword]] = counts[scan][keyword] > 0 ? TRUE : FALSE;
+            }
+        }
+
+        private void add(final Map<Comparable<?>, Group> groups, final Comparable<?> key, final MovieQuery query, final Movie movie) {
+            final Group group = groups.computeIfAbsent(key, k -> new Group());
+            if (query.aggregateField != null) {
+                final double value = query.aggregateField.number(movie);
+                group.sum += value;
+                if (group.count == 0 || (query.aggregate == MovieQuery.Aggregate.MIN ? value < group.best : value > group.best)) {
+                    group.best = value;
+                    group.movie = movie;
+                }
+            }
+            group.count++;
+        }
+
+        /**
+         * Adds the results of the movies following the ones of this scan.
+         */
+        @SuppressWarnings("unchecked")
+        Scan merge(final Scan later) {
+            for (int query = 0; query < results.length; query++) {
+                if (results[query] instanceof TopK) {
+                    ((TopK<Movie>) results[query]).merge((TopK<Movie>) later.results[query]);
+                    continue;
+                }
+                final MovieQuery q = queries.get(query);
+                final Map<Comparable<?>, Group> groups = (Map<Comparable<?>, Group>) results[query];
+                for (final Map.Entry<Comparable<?>, Group> entry : ((Map<Comparable<?>, Group>) later.results[query]).entrySet()) {
+                    final Group earlier = groups.get(entry.getKey());
+                    final Group group = entry.getValue();
+                    if (earlier == null) {
+                        groups.put(entry.getKey(), group);
+                        continue;
+                    }
+                    if (q.aggregateField != null
+                        && (q.aggregate == MovieQuery.Aggregate.MIN ? group.best < earlier.best : group.best > earlier.best)) {
+                        earlier.best = group.best;
+                        earlier.movie = group.movie;
+                    }
+                    earlier.count += group.count;
+                    earlier.sum += group.sum;
+                }
+            }
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<List<Row>> rows() {
+            final List<List<Row>> rows = new ArrayList<>(results.length);
+            for (int query = 0; query < results.length; query++) {
+                final MovieQuery q = queries.get(query);
+                if (results[query] instanceof TopK) {
+                    rows.add(((TopK<Movie>) results[query]).toList()
+                                                          .stream()
+                                                          .map(movie -> new Row(null, movie, q.order == null ? Double.NaN : q.order.number(movie)))
+                                                          .collect(Collectors.toList()));
+                } else {
+                    rows.add(groups(q, (Map<Comparable<?>, Group>) results[query]));
+                }
+            }
+            return rows;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Row> groups(final MovieQuery query, final Map<Comparable<?>, Group> groups) {
+        final List<Row> rows = new ArrayList<>(groups.size());
+        for (final Map.Entry<Comparable<?>, Group> entry : groups.entrySet()) {
+            final Group group = entry.getValue();
+            final double value;
+            switch (query.aggregate) {
+                case COUNT:
+                    value = group.count;
+                    break;
+                case SUM:
+                    value = group.sum;
+                    break;
+                case AVERAGE:
+                    value = group.sum / group.count;
+                    break;
+                default:
+                    value = group.best;
+            }
+            final boolean best = query.aggregate == MovieQuery.Aggregate.MIN || query.aggregate == MovieQuery.Aggregate.MAX;
+            rows.add(new Row(entry.getKey(), best ? group.movie : null, value));
+        }
+
+        //by group, then stable by value
+        rows.sort((r1, r2) -> ((Comparable) r1.group).compareTo(r2.group));
+        if (query.orderByValue) {
+            final Comparator<Row> byValue = Comparator.comparingDouble(row -> row.value);
+            rows.sort(query.descending ? byValue.reversed() : byValue);
+        } else if (query.descending) {
+            //ordered by group
+            Collections.reverse(rows);
+        }
+        return rows.size() > query.limit ? new ArrayList<>(rows.subList(0, query.limit)) : rows;
+    }
+
+    public static void main(final String[] argv) throws IOException {
+        String moviesPath = ".".concat(File.separator).concat("data").concat(File.separator);
+        if (argv.length == 1) {
+            moviesPath = argv[0];
+        } else if (argv.length != 0) {
+            System.out.println("Call with: imdb.QueryPlanner.jar <moviesPath>");
+            System.exit(0);
+        }
+
+        long time = System.currentTimeMillis();
+        final File input = new File(moviesPath);
+        final List<Movie> movies;
+        if (input.isFile()) {
+            final MovieStore store = new MovieStore(input);
+            movies = IntStream.range(0, store.size()).mapToObj(store::movie).collect(Collectors.toList());
+        } else {
+            movies = MovieReader.readMoviesFrom(input);
+        }
+        System.out.println("Loaded " + movies.size() + " movies, time: " + (System.currentTimeMillis() - time));
+
+        final List<MovieQuery> queries = Arrays.asList(
+            new MovieQuery("Under the radar").between(MovieField.YEAR, 1, 2015)
+                                             .has(MovieField.COUNTRY, "USA")
+                                             .above(MovieField.RATING, 8.0)
+                                             .between(MovieField.RATING_COUNT, 1000, Double.POSITIVE_INFINITY)
+                                             .orderBy(MovieField.BUDGET, true)
+                                             .limit(10),
+            new MovieQuery("The pillars of storytelling").mentions(MovieField.DESCRIPTION, "kill", true)
+                                                         .mentions(MovieField.DESCRIPTION, "love", true)
+                                                         .limit(10),
+            new MovieQuery("The red planet").mentions(MovieField.DESCRIPTION, "Mars", false)
+                                            .has(MovieField.GENRE, "Sci-Fi")
+                                            .orderBy(MovieField.YEAR, false),
+            new MovieQuery("Colossal failure").has(MovieField.COUNTRY, "USA")
+                                              .above(MovieField.DURATION, 120)
+                                              .above(MovieField.BUDGET, 1000000)
+                                              .between(MovieField.RATING, Math.nextUp(0.0), Math.nextDown(5.0))
+                                              .orderBy(MovieField.RATING, false),
+            new MovieQuery("Workhorse").groupBy(MovieField.CAST).count().orderByValue(true).limit(10),
+            new MovieQuery("Must see").between(MovieField.YEAR, 1990, 2010)
+                                      .above(MovieField.RATING_COUNT, 10000)
+                                      .groupBy(MovieField.YEAR)
+                                      .max(MovieField.RATING),
+            new MovieQuery("Rotten tomatoes").between(MovieField.YEAR, 1990, 2010)
+                                             .above(MovieField.RATING, 0.0)
+                                             .groupBy(MovieField.YEAR)
+                                             .min(MovieField.RATING),
+            new MovieQuery("Average rating by genre").above(MovieField.RATING, 0.0)
+                                                     .groupBy(MovieField.GENRE)
+                                                     .average(MovieField.RATING)
+                                                     .orderByValue(true),
+            new MovieQuery("Movies per year mentioning love").mentions(MovieField.DESCRIPTION, "love", true)
+                                                               .groupBy(MovieField.YEAR)
+                                                               .count());
+
+        final QueryPlanner planner = new QueryPlanner(queries);
+        System.out.println(planner.explain());
+        System.out.println("");
+
+        time = System.currentTimeMillis();
+        final List<List<Row>> results = planner.run(movies);
+        System.out.println("Time:" + (System.currentTimeMillis() - time));
+        for (int query = 0; query < queries.size(); query++) {
+            System.out.println("");
+            System.out.println(queries.get(query).name);
+            for (final Row row : results.get(query)) {
+                System.out.println("\t" + row);
+            }
+        }
+    }
+}
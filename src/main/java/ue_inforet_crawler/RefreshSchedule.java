@@ -0,0 +1,67 @@
+package ue_inforet_crawler;
+
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which crawled movies are refreshed by an update run. Ratings and grosses of new
+ * movies change quickly and settle over the years, so the refresh interval grows with the
+ * age of a movie:
+ * <ul>
+ * <li>released this or last year: every day</li>
+ * <li>released in the last 10 years: every week</li>
+ * <li>older or unknown year: every 30 days</li>
+ * </ul>
+ * A movie is due once its interval has passed since its last crawl. Movies never crawled by
+ * this journal are due at once. Due movies are ordered by how many intervals they are
+ * overdue, so a limited run refreshes the most outdated movies first.
+ */
+final class RefreshSchedule {
+
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1L);
+
+    private RefreshSchedule() {
+    }
+
+    /**
+     * @param movies    crawled movies
+     * @param crawledAt time in ms of the last crawl of a detail page url, 0 if unknown
+     * @param now       current time in ms
+     * @param limit     maximum number of movies to return
+     * @return due movies, most overdue first
+     */
+    static List<Movie> due(final List<Movie> movies, final ToLongFunction<String> crawledAt, final long now, final int limit) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        final int currentYear = calendar.get(Calendar.YEAR);
+
+        //number of refresh intervals passed since the last crawl
+        final ToDoubleFunction<Movie> overdue = movie -> (double) (now - crawledAt.applyAsLong(movie.getUrl())) / interval(movie, currentYear);
+
+        return movies.stream()
+                     .filter(movie -> movie.getUrl() != null && !movie.getUrl().isEmpty())
+                     .filter(movie -> overdue.applyAsDouble(movie) >= 1.0)
+                     .sorted(Comparator.comparingDouble(overdue).reversed())
+                     .limit(limit)
+                     .collect(Collectors.toList());
+    }
+
+    /**
+     * @return refresh interval of the movie in ms
+     */
+    static long interval(final Movie movie, final int currentYear) {
+        final int age = currentYear - movie.getYearValue();
+        if (movie.getYearValue() > 0 && age <= 1) {
+            return DAY_MILLIS;
+        }
+        if (movie.getYearValue() > 0 && age <= 10) {
+            return 7 * DAY_MILLIS;
+        }
+        return 30 * DAY_MILLIS;
+    }
+}
@@ -0,0 +1,389 @@
+package ue_inforet_crawler;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Persistent cache resolving input titles to IMDB title ids, so repeated and near-duplicate
+ * titles do not need a search request.
+ * <p>
+ * Titles are compared by a normalized key: lower case, accents and punctuation removed,
+ * "&amp;" spelled out and a leading "the" dropped, so "The Lord of the Rings: The Two Towers"
+ * and "lord of the rings the two towers" are the same title. A year in parentheses at the end
+ * of an input title, e.g. "Avatar (2009)", is matched against the year of the candidates.
+ * <p>
+ * A title is resolved in this order:
+ * <ol>
+ * <li>a title with the same key was resolved before</li>
+ * <li>a search result seen before matches closely enough, see {@link #LOCAL_MATCH}, and no
+ * other one comes close, so "Dune" with several Dunes seen before is searched again</li>
+ * <li>a search is needed: all its results are scored and the best one wins, not blindly the
+ * first, so "Avatar" resolves to Avatar and not to a documentary about it ranked higher</li>
+ * </ol>
+ * Resolutions and search results are appended to a file, one line each:
+ * <pre>
+ * Q \t key \t id            (id empty if the search had no hit)
+ * T \t id \t year \t title
+ * </pre>
+ * The file is loaded on start, later lines win; a half written last line of a crash is ignored.
+ */
+final class TitleResolver implements AutoCloseable {
+
+    /**
+     * A search result.
+     */
+    static final class Candidate {
+
+        final String id;
+
+        final String title;
+
+        /**
+         * 0 if unknown
+         */
+        final int year;
+
+        private final String key;
+
+        private final String numbers;
+
+        private final int[] bigrams;
+
+        Candidate(final String id, final String title, final int year) {
+            this.id = id;
+            this.title = title;
+            this.year = year;
+            this.key = normalize(title);
+            this.numbers = numbers(key);
+            this.bigrams = bigrams(key);
+        }
+    }
+
+    /**
+     * An input title, prepared for scoring.
+     */
+    private static final class Query {
+
+        final String key;
+
+        final String numbers;
+
+        final int[] bigrams;
+
+        final int year;
+
+        Query(final String title) {
+            final Matcher matcher = TITLE_YEAR.matcher(title);
+            key = normalize(matcher.matches() ? matcher.group(1) : title);
+            numbers = numbers(key);
+            bigrams = bigrams(key);
+            year = matcher.matches() ? Integer.parseInt(matcher.group(2)) : 0;
+        }
+
+        /**
+         * @return normalized title and year, the key of a resolution
+         */
+        String resolutionKey() {
+            return key + " (" + year + ')';
+        }
+    }
+
+    /**
+     * Minimum score of a search result seen before to resolve a title without searching
+     */
+    static final double LOCAL_MATCH = 0.9;
+
+    /**
+     * Minimum lead of a search result seen before over every other one to resolve a title without searching
+     */
+    static final double LOCAL_MARGIN = 0.05;
+
+    private static final Pattern TITLE_YEAR = Pattern.compile("^(.*?)\\s*\\((\\d{4})\\)\\s*$");
+
+    private static final Pattern TITLE_ID = Pattern.compile("tt\\d+");
+
+    /**
+     * Tokens counting as numbers: sequels differ only in them, so they have to be equal
+     */
+    private static final Pattern NUMBER = Pattern.compile("\\d+|i{1,3}|iv|vi{0,3}|ix");
+
+    private final Map<String, String> resolved = new HashMap<>();
+
+    private final Map<String, Candidate> candidates = new HashMap<>();
+
+    private final Writer writer;
+
+    private int localHits;
+
+    private int fuzzyHits;
+
+    private int searches;
+
+    /**
+     * Loads an existing cache and opens it for appending.
+     *
+     * @param file cache file, created if missing
+     * @throws IOException if the cache can not be read or opened
+     */
+    TitleResolver(final File file) throws IOException {
+        if (file.exists()) {
+            final boolean torn = Utils.terminateLastLine(file);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                while (line != null) {
+                    final String next = reader.readLine();
+                    if (next != null || !torn) {
+                        load(line.split("\t", -1));
+                    }
+                    line = next;
+                }
+            }
+        } else if (file.getAbsoluteFile().getParentFile() != null) {
+            file.getAbsoluteFile().getParentFile().mkdirs();
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Resolves a title from earlier resolutions and search results.
+     *
+     * @param title input title, optionally followed by a year like "Avatar (2009)"
+     * @return the IMDB id, empty if a search for the title had no hit, null if a search is needed
+     */
+    synchronized String lookup(final String title) {
+        final Query query = new Query(title);
+        final String id = resolved.get(query.resolutionKey());
+        if (id != null) {
+            localHits++;
+            return id;
+        }
+
+        //the best result seen before, if no other one comes close
+        Candidate best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        double secondScore = Double.NEGATIVE_INFINITY;
+        for (final Candidate candidate : candidates.values()) {
+            final double score = score(query, candidate, 0);
+            if (score > bestScore) {
+                secondScore = bestScore;
+                best = candidate;
+                bestScore = score;
+            } else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+        if (best == null || bestScore < LOCAL_MATCH || secondScore >= LOCAL_MATCH || bestScore - secondScore < LOCAL_MARGIN) {
+            return null;
+        }
+        fuzzyHits++;
+        put(query.resolutionKey(), best.id);
+        return best.id;
+    }
+
+    /**
+     * Records the results of a search and picks the best match.
+     *
+     * @param title   input title the search was made for
+     * @param results search results in the order IMDB ranked them
+     * @return id of the best matching result, empty if there are no results
+     */
+    synchronized String resolve(final String title, final List<Candidate> results) {
+        searches++;
+        for (final Candidate candidate : results) {
+            candidates.put(candidate.id, candidate);
+            write("T\t" + candidate.id + '\t' + candidate.year + '\t' + CrawlJournal.escape(candidate.title));
+        }
+        final Query query = new Query(title);
+        final Candidate best = best(query, results, true);
+        final String id = best == null ? "" : best.id;
+        put(query.resolutionKey(), id);
+        return id;
+    }
+
+    /**
+     * @return title of a known id, null if it never was a search result
+     */
+    synchronized String title(final String id) {
+        final Candidate candidate = candidates.get(id);
+        return candidate == null ? null : candidate.title;
+    }
+
+    /**
+     * @param href link of a search result, e.g. "/title/tt0499549/?ref_=fn_ft_tt_1"
+     * @return the title id, null if the link does not point to a title
+     */
+    static String titleId(final String href) {
+        final Matcher matcher = TITLE_ID.matcher(href);
+        return matcher.find() ? matcher.group() : null;
+    }
+
+    /**
+     * @return lower case letters and digits of the title separated by single spaces, without accents and a leading "the"
+     */
+    static String normalize(final String title) {
+        final String decomposed = Normalizer.normalize(title, Normalizer.Form.NFD);
+        final StringBuilder key = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                key.append(Character.toLowerCase(c));
+            } else if (c == '&') {
+                appendSpace(key);
+                key.append("and");
+                appendSpace(key);
+            } else if (c != '\'') {
+                appendSpace(key);
+            }
+        }
+        final String normalized = key.toString().trim();
+        return normalized.startsWith("the ") ? normalized.substring(4) : normalized;
+    }
+
+    /**
+     * Scores a candidate for a title: the similarity of the normalized titles (Dice coefficient
+     * of their character bigrams), adjusted by the year and the search rank. Titles with
+     * different numbers, e.g. "Spider-Man 2" and "Spider-Man 3", score 0.
+     *
+     * @param title     input title, optionally followed by a year
+     * @param candidate search result
+     * @param rank      position in the search results, 0 for the first
+     * @return about 0 to 1.1, the higher the better
+     */
+    static double score(final String title, final Candidate candidate, final int rank) {
+        return score(new Query(title), candidate, rank);
+    }
+
+    private static double score(final Query query, final Candidate candidate, final int rank) {
+        if (!query.numbers.equals(candidate.numbers)) {
+            return 0.0;
+        }
+        double score = query.key.equals(candidate.key) ? 1.0 : dice(query.bigrams, candidate.bigrams);
+
+        if (query.year > 0 && candidate.year > 0) {
+            final int difference = Math.abs(query.year - candidate.year);
+            score += difference == 0 ? 0.1 : difference == 1 ? 0.05 : -0.2;
+        }
+        return score - 0.01 * rank;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "titles: " + resolved.size() + ", search results: " + candidates.size() + ", cached: " + localHits + ", fuzzy: " + fuzzyHits
+            + ", searched: " + searches;
+    }
+
+    /**
+     * @param ranked true if the candidates are search results in their order, to prefer the higher ranked of equal matches
+     */
+    private static Candidate best(final Query query, final Iterable<Candidate> candidates, final boolean ranked) {
+        Candidate best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int rank = 0;
+        for (final Candidate candidate : candidates) {
+            final double score = score(query, candidate, ranked ? rank++ : 0);
+            if (score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    private void put(final String key, final String id) {
+        resolved.put(key, id);
+        write("Q\t" + CrawlJournal.escape(key) + '\t' + id);
+    }
+
+    private void write(final String line) {
+        try {
+            writer.write(line + '\n');
+        } catch (final IOException e) {
+            //the title is searched again next time
+            System.out.println("IOException writing title cache: " + e.getMessage());
+        }
+    }
+
+    private void load(final String[] fields) {
+        try {
+            if (fields.length == 3 && "Q".equals(fields[0]) && (fields[2].isEmpty() || TITLE_ID.matcher(fields[2]).matches())) {
+                resolved.put(CrawlJournal.unescape(fields[1]), fields[2]);
+            } else if (fields.length == 4 && "T".equals(fields[0]) && TITLE_ID.matcher(fields[1]).matches()) {
+                candidates.put(fields[1], new Candidate(fields[1], CrawlJournal.unescape(fields[3]), Integer.parseInt(fields[2])));
+            }
+        } catch (final NumberFormatException e) {
+            //broken line, e.g. half written after a crash
+        }
+    }
+
+    private static String numbers(final String key) {
+        final StringBuilder numbers = new StringBuilder();
+        for (final String token : key.split(" ")) {
+            if (NUMBER.matcher(token).matches()) {
+                numbers.append(token).append(' ');
+            }
+        }
+        return numbers.toString();
+    }
+
+    private static void appendSpace(final StringBuilder key) {
+        if (key.length() > 0 && key.charAt(key.length() - 1) != ' ') {
+            key.append(' ');
+        }
+    }
+
+    /**
+     * @return sorted character bigrams of the key, each packed into an int
+     */
+    private static int[] bigrams(final String key) {
+        if (key.length() < 2) {
+            return new int[]{key.isEmpty() ? 0 : key.charAt(0)};
+        }
+        final int[] bigrams = new int[key.length() - 1];
+        for (int i = 0; i < bigrams.length; i++) {
+            bigrams[i] = key.charAt(i) << 16 | key.charAt(i + 1);
+        }
+        Arrays.sort(bigrams);
+        return bigrams;
+    }
+
+    private static double dice(final int[] a, final int[] b) {
+        int common = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return 2.0 * common / (a.length + b.length);
+    }
+}
@@ -0,0 +1,74 @@
+package ue_inforet_crawler;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the request rate to a single host. Up to 'burst' requests may be
+ * issued at once after an idle period, afterwards requests are spread evenly at
+ * 'permitsPerSecond'.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+
+    private final double burst;
+
+    private double storedPermits;
+
+    private long nextFreeNanos;
+
+    TokenBucket(final double permitsPerSecond, final int burst) {
+        if (permitsPerSecond <= 0.0 || burst < 1) {
+            throw new IllegalArgumentException("invalid rate " + permitsPerSecond + " / burst " + burst);
+        }
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burst = burst;
+        this.storedPermits = burst;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until a request may be issued.
+     *
+     * @return nanoseconds spent waiting
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    long acquire() throws InterruptedIOException {
+        final long waitNanos = reserve();
+        if (waitNanos > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for rate limit");
+            }
+        }
+        return waitNanos;
+    }
+
+    /**
+     * Stops handing out permits for the given time, e.g. after the host answered 429.
+     *
+     * @param nanos pause in nanoseconds
+     */
+    synchronized void pause(final long nanos) {
+        nextFreeNanos = Math.max(nextFreeNanos, System.nanoTime() + nanos);
+        storedPermits = 0.0;
+    }
+
+    private synchronized long reserve() {
+        final long now = System.nanoTime();
+        if (now > nextFreeNanos) {
+            storedPermits = Math.min(burst, storedPermits + (double) (now - nextFreeNanos) / intervalNanos);
+            nextFreeNanos = now;
+        }
+
+        //the missing part of a permit is waited for now, not charged to the next request
+        final double fromStored = Math.min(1.0, storedPermits);
+        storedPermits -= fromStored;
+        nextFreeNanos += (long) ((1.0 - fromStored) * intervalNanos);
+
+        return Math.max(0L, nextFreeNanos - now);
+    }
+}
@@ -0,0 +1,210 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+
+/**
+ * Keeps the k values with the largest keys out of any number of offered values, in
+ * O(n log k) time and O(k) memory instead of sorting everything.
+ * <p>
+ * Values are ranked by a long key, larger keys first; use {@link #floatKey(float)} for float
+ * keys and negate a key to rank the smallest first. Values with equal keys keep the order in
+ * which they were offered, like a stable sort followed by a limit would. Keys and offer
+ * positions live in primitive arrays forming a min-heap with the worst kept value on top,
+ * so a value not making it into the top k is rejected by a single comparison.
+ * <p>
+ * Two instances can be merged, e.g. the partial results of a parallel stream, see
+ * {@link #collector(int, ToLongFunction)}.
+ *
+ * @param <T> type of the ranked values
+ */
+final class TopK<T> {
+
+    private final int k;
+
+    private long[] keys;
+
+    /**
+     * Position of every kept value among all offered values, breaks ties
+     */
+    private long[] positions;
+
+    private Object[] values;
+
+    private int size;
+
+    /**
+     * Number of values offered so far
+     */
+    private long offered;
+
+    /**
+     * @param k number of values to keep
+     */
+    TopK(final int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        //grows up to k, k may be far larger than the number of values, e.g. to sort all of them
+        final int capacity = Math.min(k, 16);
+        keys = new long[capacity];
+        positions = new long[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * @return true if a value with the key would be kept if offered now, to skip creating values that are rejected anyway
+     */
+    boolean accepts(final long key) {
+        return size < k || k > 0 && key > keys[0];
+    }
+
+    /**
+     * @param key   rank of the value, larger first
+     * @param value value to keep if it is among the top k
+     */
+    void offer(final long key, final T value) {
+        insert(key, offered++, value);
+    }
+
+    /**
+     * Adds the values of a top k of values offered after the ones of this top k.
+     *
+     * @param later top k of the same size, left unchanged
+     * @return this top k
+     */
+    TopK<T> merge(final TopK<T> later) {
+        for (int i = 0; i < later.size; i++) {
+            @SuppressWarnings("unchecked")
+            final T value = (T) later.values[i];
+            insert(later.keys[i], offered + later.positions[i], value);
+        }
+        offered += later.offered;
+        return this;
+    }
+
+    /**
+     * @return number of kept values
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the kept values, largest key first
+     */
+    List<T> toList() {
+        final TopK<T> heap = new TopK<>(k);
+        heap.keys = keys.clone();
+        heap.positions = positions.clone();
+        heap.values = values.clone();
+        heap.size = size;
+
+        //pop the worst value until empty, filling the result from the back
+        final List<T> result = new ArrayList<>(Collections.nCopies(size, (T) null));
+        while (heap.size > 0) {
+            @SuppressWarnings("unchecked")
+            final T value = (T) heap.values[0];
+            result.set(heap.size - 1, value);
+            heap.removeTop();
+        }
+        return result;
+    }
+
+    /**
+     * Collects the 'k' elements of a stream with the largest keys, elements with equal keys
+     * in encounter order, also for parallel streams.
+     *
+     * @return the collected elements, largest key first
+     */
+    static <T> Collector<T, TopK<T>, List<T>> collector(final int k, final ToLongFunction<? super T> key) {
+        return Collector.of(() -> new TopK<>(k), (top, value) -> top.offer(key.applyAsLong(value), value), TopK::merge, TopK::toList);
+    }
+
+    /**
+     * @return key ordering floats like {@link Float#compare(float, float)} does
+     */
+    static long floatKey(final float value) {
+        final int bits = Float.floatToIntBits(value);
+        return bits >= 0 ? bits : bits ^ Integer.MAX_VALUE;
+    }
+
+    private void insert(final long key, final long position, final T value) {
+        if (size < k) {
+            if (size == keys.length) {
+                grow();
+            }
+            keys[size] = key;
+            positions[size] = position;
+            values[size] = value;
+            siftUp(size++);
+        } else if (k > 0 && (key > keys[0] || key == keys[0] && position < positions[0])) {
+            keys[0] = key;
+            positions[0] = position;
+            values[0] = value;
+            siftDown();
+        }
+    }
+
+    private void grow() {
+        final int capacity = (int) Math.min(k, 2L * keys.length);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+
+    private void removeTop() {
+        size--;
+        keys[0] = keys[size];
+        positions[0] = positions[size];
+        values[0] = values[size];
+        values[size] = null;
+        siftDown();
+    }
+
+    /**
+     * @return true if the value at 'a' ranks below the one at 'b': a smaller key, or an equal key offered later
+     */
+    private boolean below(final int a, final int b) {
+        return keys[a] < keys[b] || keys[a] == keys[b] && positions[a] > positions[b];
+    }
+
+    private void siftUp(int index) {
+        while (index > 0 && below(index, (index - 1) / 2)) {
+            swap(index, (index - 1) / 2);
+            index = (index - 1) / 2;
+        }
+    }
+
+    private void siftDown() {
+        int index = 0;
+        while (2 * index + 1 < size) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && below(child + 1, child)) {
+                child++;
+            }
+            if (!below(child, index)) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(final int a, final int b) {
+        final long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        final long position = positions[a];
+        positions[a] = positions[b];
+        positions[b] = position;
+        final Object value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+}
@@ -0,0 +1,117 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compares sorting everything and taking the first ten with {@link TopK} on a synthetic
+ * corpus, for the rankings of the queries: movies by rating (All-rounder), movies by loss
+ * (Under the Radar) and names by frequency (Uncreative Writers, Workhorse).
+ */
+public final class TopKBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+
+    private static final int MEASURED_ROUNDS = 10;
+
+    private static final int K = 10;
+
+    private TopKBenchmark() {
+    }
+
+    public static void main(final String[] argv) {
+        int size = 1000000;
+        if (argv.length == 1) {
+            size = Integer.parseInt(argv[0]);
+        } else if (argv.length != 0) {
+            System.out.println("Call with: imdb.TopKBenchmark.jar [<movies>]");
+            System.exit(0);
+        }
+
+        final long time = System.currentTimeMillis();
+        final List<Movie> movies = corpus(size, new Random(42L));
+        final Map<String, Integer> names = new HashMap<>();
+        for (final Movie movie : movies) {
+            for (final String actor : movie.getCastList()) {
+                names.merge(actor, 1, Integer::sum);
+            }
+        }
+        final List<Map.Entry<String, Integer>> counts = new ArrayList<>(names.entrySet());
+        System.out.println("Generated " + movies.size() + " movies with " + counts.size() + " distinct actors, time: "
+            + (System.currentTimeMillis() - time) + " ms");
+
+        compare("Rating", movies, movie -> TopK.floatKey(movie.getRating()));
+        compare("Loss", movies, movie -> movie.getBudgetDollars() - movie.getGrossDollars());
+        compare("Frequency", counts, entry -> entry.getValue());
+    }
+
+    private static <T> void compare(final String ranking, final List<T> values, final ToLongFunction<T> key) {
+        final Comparator<T> descending = (o1, o2) -> Long.compare(key.applyAsLong(o2), key.applyAsLong(o1));
+        final List<T> sorted = values.stream().sorted(descending).limit(K).collect(Collectors.toList());
+        if (!sorted.equals(values.stream().collect(TopK.collector(K, key)))
+            || !sorted.equals(values.parallelStream().collect(TopK.collector(K, key)))) {
+            System.out.println("Results differ for " + ranking);
+        }
+
+        long sink = 0L;
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            sink += values.stream().sorted(descending).limit(K).count();
+            sink += values.stream().collect(TopK.collector(K, key)).size();
+            sink += values.parallelStream().collect(TopK.collector(K, key)).size();
+        }
+
+        long time = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += values.stream().sorted(descending).limit(K).collect(Collectors.toList()).size();
+        }
+        final long sortNanos = (System.nanoTime() - time) / MEASURED_ROUNDS;
+
+        time = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += values.stream().collect(TopK.collector(K, key)).size();
+        }
+        final long topKNanos = (System.nanoTime() - time) / MEASURED_ROUNDS;
+
+        time = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            sink += values.parallelStream().collect(TopK.collector(K, key)).size();
+        }
+        final long parallelNanos = (System.nanoTime() - time) / MEASURED_ROUNDS;
+
+        System.out.println(ranking + " of " + values.size() + ":");
+        System.out.println("\tSort and limit:  " + sortNanos / 1000000 + " ms");
+        System.out.println("\tTop k:           " + topKNanos / 1000000 + " ms");
+        System.out.println("\tTop k, parallel: " + parallelNanos / 1000000 + " ms");
+        System.out.println("\tSpeedup:         " + String.format("%.1f", (double) sortNanos / topKNanos) + " (" + sink + ")");
+    }
+
+    /**
+     * @return movies with random ratings, budgets, grosses and casts; ratings and casts are
+     * drawn from small ranges, so there are many ties
+     */
+    private static List<Movie> corpus(final int size, final Random random) {
+        final int actors = Math.max(1, size / 2);
+        final List<Movie> movies = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final Movie movie = new Movie();
+            movie.setTitle("Movie " + i);
+            movie.setRatingValue(Integer.toString(1 + random.nextInt(9)) + '.' + random.nextInt(10));
+            movie.setBudget("$" + 1000L * random.nextInt(300000));
+            movie.setGross("$" + 1000L * random.nextInt(900000));
+            final List<String> cast = new ArrayList<>(5);
+            for (int j = 0; j < 5; j++) {
+                //a few actors play in many movies
+                cast.add("Actor " + (random.nextInt(4) == 0 ? random.nextInt(1000) : random.nextInt(actors)));
+            }
+            movie.setCastList(cast);
+            movies.add(movie);
+        }
+        return movies;
+    }
+}
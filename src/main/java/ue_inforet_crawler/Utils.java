@@ -1,14 +1,184 @@
 package ue_inforet_crawler;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Created by lrebscher on 13.11.16.
  */
 public final class Utils {
 
+    /**
+     * Approximate US dollars per unit of the currencies IMDB shows budgets and grosses in,
+     * 2016 averages (currencies replaced by the euro at their fixed conversion rate). Good
+     * enough to compare amounts, not to do accounting.
+     */
+    private static final Map<String, Double> DOLLARS_PER_UNIT = new HashMap<>();
+
+    static {
+        DOLLARS_PER_UNIT.put("$", 1.0);
+        DOLLARS_PER_UNIT.put("USD", 1.0);
+        DOLLARS_PER_UNIT.put("\u20ac", 1.11);
+        DOLLARS_PER_UNIT.put("&euro;", 1.11);
+        DOLLARS_PER_UNIT.put("EUR", 1.11);
+        DOLLARS_PER_UNIT.put("\u00a3", 1.36);
+        DOLLARS_PER_UNIT.put("&pound;", 1.36);
+        DOLLARS_PER_UNIT.put("GBP", 1.36);
+        DOLLARS_PER_UNIT.put("AUD", 0.744);
+        DOLLARS_PER_UNIT.put("BRL", 0.287);
+        DOLLARS_PER_UNIT.put("CAD", 0.755);
+        DOLLARS_PER_UNIT.put("CHF", 1.015);
+        DOLLARS_PER_UNIT.put("CNY", 0.151);
+        DOLLARS_PER_UNIT.put("DKK", 0.149);
+        DOLLARS_PER_UNIT.put("HKD", 0.129);
+        DOLLARS_PER_UNIT.put("INR", 0.0149);
+        DOLLARS_PER_UNIT.put("JPY", 0.0092);
+        DOLLARS_PER_UNIT.put("KRW", 0.00086);
+        DOLLARS_PER_UNIT.put("MXN", 0.0537);
+        DOLLARS_PER_UNIT.put("NOK", 0.119);
+        DOLLARS_PER_UNIT.put("NZD", 0.697);
+        DOLLARS_PER_UNIT.put("PLN", 0.254);
+        DOLLARS_PER_UNIT.put("RUB", 0.0149);
+        DOLLARS_PER_UNIT.put("RUR", 0.0149);
+        DOLLARS_PER_UNIT.put("SEK", 0.117);
+        DOLLARS_PER_UNIT.put("THB", 0.0284);
+        DOLLARS_PER_UNIT.put("TRY", 0.331);
+        DOLLARS_PER_UNIT.put("TRL", 0.000000331);
+        DOLLARS_PER_UNIT.put("DEM", 1.11 / 1.95583);
+        DOLLARS_PER_UNIT.put("FRF", 1.11 / 6.55957);
+        DOLLARS_PER_UNIT.put("ITL", 1.11 / 1936.27);
+        DOLLARS_PER_UNIT.put("ESP", 1.11 / 166.386);
+        DOLLARS_PER_UNIT.put("NLG", 1.11 / 2.20371);
+        DOLLARS_PER_UNIT.put("ATS", 1.11 / 13.7603);
+        DOLLARS_PER_UNIT.put("BEF", 1.11 / 40.3399);
+        DOLLARS_PER_UNIT.put("FIM", 1.11 / 5.94573);
+        DOLLARS_PER_UNIT.put("PTE", 1.11 / 200.482);
+        DOLLARS_PER_UNIT.put("IEP", 1.11 / 0.787564);
+    }
+
     private Utils() {
     }
 
+    /**
+     * Ends a half written last line left by a crash, so the next line appended to the file
+     * starts on a line of its own instead of being lost with the broken one.
+     *
+     * @param file file of lines, may be missing
+     * @return true if the last line was half written, its content is not to be trusted
+     */
+    static boolean terminateLastLine(final File file) throws IOException {
+        if (!file.exists() || file.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 1);
+            if (raf.read() == '\n') {
+                return false;
+            }
+            raf.write('\n');
+            return true;
+        }
+    }
+
     public static Long parseNumber(final String number) {
         return Long.valueOf(number.replaceAll("[^\\d.]+", ""));
     }
+
+    /**
+     * Reads the digits of a formatted number up to a decimal point, e.g. "$237,000,000" or
+     * "900,000". Unlike {@link #parseNumber(String)} no regex and no boxing is involved.
+     *
+     * @param number formatted number, may be null
+     * @return the number, 0 if it has no digits
+     */
+    public static long parseLong(final String number) {
+        if (number == null) {
+            return 0L;
+        }
+        long value = 0L;
+        for (int i = 0; i < number.length(); i++) {
+            final char c = number.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else if (c == '.') {
+                break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param amount amount as shown by IMDB, e.g. "$237,000,000", "&euro;10,000,000" or "INR 50,000,000", may be null
+     * @return amount in US dollars, 0 if it has no digits; amounts in unknown currencies are not converted
+     */
+    public static long parseDollars(final String amount) {
+        final long value = parseLong(amount);
+        if (value == 0L) {
+            return 0L;
+        }
+
+        int digit = 0;
+        while (amount.charAt(digit) < '0' || amount.charAt(digit) > '9') {
+            digit++;
+        }
+        final Double rate = DOLLARS_PER_UNIT.get(amount.substring(0, digit).trim());
+        return rate == null ? value : Math.round(value * rate);
+    }
+
+    /**
+     * @param number decimal number like "7.8", may be null or empty
+     * @return the number, 0 if it can not be read
+     */
+    public static float parseFloat(final String number) {
+        if (number == null || number.trim().isEmpty()) {
+            return 0f;
+        }
+        try {
+            return Float.parseFloat(number.trim());
+        } catch (final NumberFormatException e) {
+            return 0f;
+        }
+    }
+
+    /**
+     * @param duration duration as shown by IMDB, e.g. "2h 42min", "2h" or "95min"
+     * @return duration in minutes, 0 if unknown
+     */
+    public static int parseDuration(final String duration) {
+        if (duration == null) {
+            return 0;
+        }
+        int minutes = 0;
+        int value = 0;
+        for (int i = 0; i < duration.length(); i++) {
+            final char c = duration.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else if (c == 'h') {
+                minutes += 60 * value;
+                value = 0;
+            } else if (c == 'm') {
+                minutes += value;
+                value = 0;
+            }
+        }
+        return minutes;
+    }
+
+    /**
+     * @param minutes duration in minutes
+     * @return duration formatted like IMDB, e.g. "2h 42min", empty if unknown
+     */
+    public static String formatDuration(final int minutes) {
+        if (minutes <= 0) {
+            return "";
+        }
+        if (minutes < 60) {
+            return minutes + "min";
+        }
+        return minutes % 60 == 0 ? minutes / 60 + "h" : minutes / 60 + "h " + minutes % 60 + "min";
+    }
 }
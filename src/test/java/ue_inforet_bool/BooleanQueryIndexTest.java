@@ -0,0 +1,172 @@
+package ue_inforet_bool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks term, phrase and AND queries against a scan of the tokenized documents, on enough
+ * documents that the parallel index build splits them into several merged segments.
+ */
+public class BooleanQueryIndexTest {
+
+    private static final String LINE = "-------------------------------------------------------------------------------";
+
+    /**
+     * Few words, so that phrases of them occur often, but not everywhere
+     */
+    private static final String[] WORDS = { "ship", "crew", "war", "star", "ring", "king", "sea" };
+
+    private static final String[] TYPE_MARKERS = { "", " (TV)", " (V)", " (VG)" };
+
+    private static final int DOCUMENTS = 5000;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A record as the index sees it.
+     */
+    private static final class Parsed {
+
+        String titleLine;
+
+        List<String> title;
+
+        List<String> plot;
+
+        String type;
+
+        String year;
+    }
+
+    @Test(timeout = 60000L)
+    public void findsWhatAScanFinds() throws IOException {
+        final Random random = new Random(5L);
+        final File plotFile = writePlotFile(random);
+        final List<Parsed> documents = parse(plotFile);
+        Assert.assertEquals(DOCUMENTS, documents.size());
+
+        final BooleanQuery bq = new BooleanQuery();
+        bq.buildIndices(plotFile.getPath());
+
+        int matched = 0;
+        for (int run = 0; run < 300; run++) {
+            final List<String> parts = new ArrayList<>();
+            for (int i = random.nextInt(3); i >= 0; i--) {
+                parts.add(randomPart(random));
+            }
+            final String query = String.join(" AND ", parts);
+
+            final Set<String> expected = new HashSet<>();
+            for (final Parsed document : documents) {
+                if (parts.stream().allMatch(part -> matches(document, part))) {
+                    expected.add(document.titleLine);
+                }
+            }
+
+            Assert.assertEquals(query, expected, bq.booleanQuery(query));
+            matched += expected.isEmpty() ? 0 : 1;
+        }
+        //not only empty results
+        Assert.assertTrue(Integer.toString(matched), matched > 100);
+    }
+
+    private File writePlotFile(final Random random) throws IOException {
+        final StringBuilder content = new StringBuilder("PLOT SUMMARIES LIST\n===================\n\n");
+        for (int i = 0; i < DOCUMENTS; i++) {
+            content.append(LINE).append('\n');
+            //a unique word keeps the title lines apart
+            content.append("MV: ").append(words(random, 1 + random.nextInt(3))).append(" m").append(i)
+                   .append(" (").append(1900 + i % 100).append(')').append(TYPE_MARKERS[random.nextInt(TYPE_MARKERS.length)]).append('\n');
+            content.append('\n');
+            for (int line = random.nextInt(3); line >= 0; line--) {
+                content.append("PL: ").append(words(random, 1 + random.nextInt(15))).append(".\n");
+            }
+            content.append('\n');
+        }
+        content.append(LINE).append('\n');
+
+        final File plotFile = folder.newFile("plot.list");
+        Files.write(plotFile.toPath(), content.toString().getBytes(StandardCharsets.ISO_8859_1));
+        return plotFile;
+    }
+
+    private static String words(final Random random, final int count) {
+        final StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            words.append(i == 0 ? "" : random.nextInt(5) == 0 ? ", " : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+
+    private static String randomPart(final Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return "plot:" + WORDS[random.nextInt(WORDS.length)];
+            case 1:
+            case 2:
+                return "plot:\"" + words(random, 2 + random.nextInt(2)) + "\"";
+            case 3:
+                return random.nextBoolean() ? "title:" + WORDS[random.nextInt(WORDS.length)] : "title:\"" + words(random, 2) + "\"";
+            case 4:
+                return "type:" + new String[] { "movie", "television", "video", "videogame" }[random.nextInt(4)];
+            default:
+                return "year:" + (1900 + random.nextInt(100));
+        }
+    }
+
+    /**
+     * @return true if the document matches the query part, scanning its tokens
+     */
+    private static boolean matches(final Parsed document, final String part) {
+        final String field = part.substring(0, part.indexOf(':'));
+        final String value = part.substring(part.indexOf(':') + 1);
+        if ("type".equals(field)) {
+            return value.equals(document.type);
+        }
+        if ("year".equals(field)) {
+            return value.equals(document.year);
+        }
+        final List<String> tokens = "plot".equals(field) ? document.plot : document.title;
+        final List<String> phrase = ParseUtils.tokenize(value.replace("\"", ""));
+        return Collections.indexOfSubList(tokens, phrase) >= 0;
+    }
+
+    private static List<Parsed> parse(final File plotFile) throws IOException {
+        final List<Parsed> documents = new ArrayList<>();
+        new PlotParser(new PlotParser.Handler() {
+
+            private Parsed document;
+
+            @Override
+            public void startRecord(final String titleLine, final String type, final String title, final String year,
+                                    final String episodeTitle) {
+                document = new Parsed();
+                document.titleLine = titleLine;
+                document.title = ParseUtils.tokenize(title);
+                document.type = type;
+                document.year = year;
+            }
+
+            @Override
+            public void endRecord(final CharSequence plot) {
+                document.plot = ParseUtils.tokenize(plot.toString());
+                documents.add(document);
+            }
+        }).parse(plotFile.getPath());
+        return documents;
+    }
+}
@@ -0,0 +1,68 @@
+package ue_inforet_bool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PlotParserTest {
+
+    private static final String LINE = "-------------------------------------------------------------------------------";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parsesRecords() throws IOException {
+        final String content = "PLOT SUMMARIES LIST\n"
+            + "===================\n"
+            + "\n"
+            + LINE + "\n"
+            + "MV: Avatar (2009)\n"
+            + "\n"
+            + "PL: A paraplegic marine\n"
+            + "PL: on Pandora.\n"
+            + "\n"
+            + "BY: someone\n"
+            + "\n"
+            + LINE + "\r\n"
+            + "MV: \"Lost\" (2004) {Pilot: Part 1 (#1.1)}\r\n"
+            + "PL: Survivors of a crash.\r\n"
+            + LINE + "\n"
+            + "MV: Pong (1972) (VG)\n"
+            + "PL: Caf\u00e9 tennis.\n"
+            //last line without line break
+            + LINE;
+        final File plotFile = folder.newFile("plot.list");
+        Files.write(plotFile.toPath(), content.getBytes(StandardCharsets.ISO_8859_1));
+
+        final List<String> records = new ArrayList<>();
+        final long bytes = new PlotParser(new PlotParser.Handler() {
+            private String start;
+
+            @Override
+            public void startRecord(final String titleLine, final String type, final String title, final String year,
+                                    final String episodeTitle) {
+                start = type + "|" + title + "|" + year + "|" + episodeTitle;
+            }
+
+            @Override
+            public void endRecord(final CharSequence plot) {
+                records.add(start + "|" + plot);
+            }
+        }).parse(plotFile.getPath());
+
+        Assert.assertEquals(plotFile.length(), bytes);
+        Assert.assertEquals(3, records.size());
+        Assert.assertEquals("movie|Avatar|2009|null| A paraplegic marine on Pandora.", records.get(0));
+        Assert.assertEquals("episode|Lost|2004|Pilot: Part 1 (#1.1)| Survivors of a crash.", records.get(1));
+        Assert.assertEquals("videogame|Pong|1972|null| Caf\u00e9 tennis.", records.get(2));
+    }
+}
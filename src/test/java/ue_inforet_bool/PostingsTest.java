@@ -0,0 +1,160 @@
+package ue_inforet_bool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PostingsTest {
+
+    @Test
+    public void decodesWhatWasAdded() {
+        final TreeMap<Integer, int[]> documents = randomDocuments(new Random(1L), 1000, 3000);
+        final Postings postings = postingsOf(documents);
+
+        Assert.assertEquals(documents.size(), postings.size());
+        Assert.assertArrayEquals(ids(documents), postings.toArray());
+        final Postings.Cursor cursor = postings.cursor();
+        for (final int docId : documents.keySet()) {
+            Assert.assertEquals(docId, cursor.next());
+            Assert.assertArrayEquals(documents.get(docId), cursor.positions());
+        }
+        Assert.assertEquals(Postings.NO_MORE_DOCS, cursor.next());
+    }
+
+    @Test
+    public void encodesLargeNumbersInSeveralBytes() {
+        final Postings postings = new Postings();
+        postings.add(0, 0);
+        postings.add(0, 127);
+        postings.add(0, 128);
+        postings.add(200_000, 1 << 21);
+        postings.add(Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1);
+        postings.trim();
+
+        final Postings.Cursor cursor = postings.cursor();
+        Assert.assertEquals(0, cursor.next());
+        Assert.assertArrayEquals(new int[] { 0, 127, 128 }, cursor.positions());
+        Assert.assertEquals(200_000, cursor.next());
+        Assert.assertArrayEquals(new int[] { 1 << 21 }, cursor.positions());
+        Assert.assertEquals(Integer.MAX_VALUE - 1, cursor.next());
+        Assert.assertArrayEquals(new int[] { Integer.MAX_VALUE - 1 }, cursor.positions());
+        //small gaps take one byte each
+        Assert.assertTrue(postings.byteSize() < 40);
+    }
+
+    @Test
+    public void advancesLikeLinearSearch() {
+        final Random random = new Random(2L);
+        final TreeMap<Integer, int[]> documents = randomDocuments(random, 5000, 100_000);
+        final Postings postings = postingsOf(documents);
+
+        for (int run = 0; run < 200; run++) {
+            final Postings.Cursor cursor = postings.cursor();
+            int target = -1;
+            while (true) {
+                //small and large jumps, over none or many blocks
+                target += 1 + (random.nextBoolean() ? random.nextInt(50) : random.nextInt(20_000));
+                final Integer expected = documents.ceilingKey(target);
+                final int found = cursor.advance(target);
+                if (expected == null) {
+                    Assert.assertEquals(Postings.NO_MORE_DOCS, found);
+                    break;
+                }
+                Assert.assertEquals(expected.intValue(), found);
+                Assert.assertArrayEquals(documents.get(expected), cursor.positions());
+                //advancing to an id at most the current one stays
+                Assert.assertEquals(found, cursor.advance(target));
+                target = found;
+            }
+        }
+    }
+
+    @Test
+    public void intersectsSortedIds() {
+        final Random random = new Random(3L);
+        final Postings postings = postingsOf(randomDocuments(random, 3000, 30_000));
+        final int[] other = ids(randomDocuments(random, 100, 40_000));
+
+        final List<Integer> expected = new ArrayList<>();
+        final int[] all = postings.toArray();
+        for (final int docId : other) {
+            if (Arrays.binarySearch(all, docId) >= 0) {
+                expected.add(docId);
+            }
+        }
+
+        Assert.assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), postings.intersect(other));
+    }
+
+    @Test
+    public void appendsLaterPostings() {
+        final TreeMap<Integer, int[]> documents = randomDocuments(new Random(4L), 500, 10_000);
+        final TreeMap<Integer, int[]> first = new TreeMap<>(documents.headMap(5000));
+        final TreeMap<Integer, int[]> second = new TreeMap<>(documents.tailMap(5000));
+
+        //starting with trimmed empty postings
+        final Postings postings = postingsOf(new TreeMap<>());
+        postings.addAll(postingsOf(first));
+        postings.addAll(postingsOf(second));
+        postings.addAll(postingsOf(new TreeMap<>()));
+        postings.trim();
+
+        Assert.assertArrayEquals(ids(documents), postings.toArray());
+        final Postings.Cursor cursor = postings.cursor();
+        for (final int docId : documents.keySet()) {
+            Assert.assertEquals(docId, cursor.advance(docId));
+            Assert.assertArrayEquals(documents.get(docId), cursor.positions());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEarlierIds() {
+        final Postings postings = new Postings();
+        postings.add(5, 0);
+        postings.add(4, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEarlierPositions() {
+        final Postings postings = new Postings();
+        postings.add(5, 3);
+        postings.add(5, 3);
+    }
+
+    /**
+     * @return 'count' documents below 'maxDocId' with a few increasing positions each
+     */
+    private static TreeMap<Integer, int[]> randomDocuments(final Random random, final int count, final int maxDocId) {
+        final TreeMap<Integer, int[]> documents = new TreeMap<>();
+        while (documents.size() < count) {
+            final int[] positions = new int[1 + random.nextInt(4)];
+            int position = random.nextInt(3) - 1;
+            for (int i = 0; i < positions.length; i++) {
+                position += 1 + random.nextInt(i == 0 ? 10 : 300);
+                positions[i] = position;
+            }
+            documents.put(random.nextInt(maxDocId), positions);
+        }
+        return documents;
+    }
+
+    private static Postings postingsOf(final TreeMap<Integer, int[]> documents) {
+        final Postings postings = new Postings();
+        documents.forEach((docId, positions) -> {
+            for (final int position : positions) {
+                postings.add(docId, position);
+            }
+        });
+        postings.trim();
+        return postings;
+    }
+
+    private static int[] ids(final TreeMap<Integer, int[]> documents) {
+        return documents.keySet().stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,120 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ActorPairsTest {
+
+    @Test
+    public void mapAddsUpValuesAcrossGrowth() {
+        final Random random = new Random(7L);
+        final LongIntMap map = new LongIntMap();
+        final Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            final long key = random.nextInt(20_000) * 0x100000001L - 5_000L;
+            final int delta = random.nextInt(10) - 3;
+            map.add(key, delta);
+            expected.merge(key, delta, Integer::sum);
+        }
+
+        Assert.assertEquals(expected.size(), map.size());
+        for (final Map.Entry<Long, Integer> entry : expected.entrySet()) {
+            Assert.assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+        }
+        Assert.assertEquals(0, map.get(123_456_789_012L));
+
+        final Map<Long, Integer> iterated = new HashMap<>();
+        map.forEach((key, value) -> Assert.assertNull(iterated.put(key, value)));
+        Assert.assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void mergeAddsBothMaps() {
+        final LongIntMap small = new LongIntMap();
+        small.add(1L, 1);
+        final LongIntMap large = new LongIntMap();
+        large.add(1L, 2);
+        large.add(2L, 5);
+
+        final LongIntMap merged = LongIntMap.merge(small, large);
+
+        Assert.assertSame(large, merged);
+        Assert.assertEquals(3, merged.get(1L));
+        Assert.assertEquals(5, merged.get(2L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyMarkerAsKey() {
+        new LongIntMap().add(LongIntMap.EMPTY, 1);
+    }
+
+    @Test
+    public void countsPairsLikeNestedLoops() {
+        final Random random = new Random(11L);
+        final int[][] casts = new int[2000][];
+        for (int movie = 0; movie < casts.length; movie++) {
+            casts[movie] = new int[random.nextInt(25)];
+            for (int i = 0; i < casts[movie].length; i++) {
+                //few actors, so pairs repeat; -1 is skipped
+                casts[movie][i] = random.nextInt(60) - 1;
+            }
+        }
+        final int maxCast = 8;
+
+        final Map<Long, Integer> expected = new HashMap<>();
+        for (final int[] cast : casts) {
+            final List<Integer> actors = new ArrayList<>();
+            for (int i = 0; i < cast.length && actors.size() < maxCast; i++) {
+                if (cast[i] >= 0 && !actors.contains(cast[i])) {
+                    actors.add(cast[i]);
+                }
+            }
+            for (final int a : actors) {
+                for (final int b : actors) {
+                    if (a < b) {
+                        expected.merge((long) a << 32 | b, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+
+        final List<ActorPairs.Couple> top = ActorPairs.top(casts.length, movie -> casts[movie], maxCast, 50);
+
+        Assert.assertEquals(50, top.size());
+        final List<Integer> counts = expected.values().stream().sorted((a, b) -> b - a).limit(50).collect(Collectors.toList());
+        Assert.assertEquals(counts, top.stream().map(couple -> couple.movies).collect(Collectors.toList()));
+        for (final ActorPairs.Couple couple : top) {
+            Assert.assertTrue(couple.first < couple.second);
+            Assert.assertEquals(expected.get((long) couple.first << 32 | couple.second).intValue(), couple.movies);
+        }
+    }
+
+    @Test
+    public void countsActorsWithSeveralRolesOnce() {
+        final int[][] casts = { { 1, 2, 1 }, { 2, 1 }, { 3, 3 } };
+
+        final List<ActorPairs.Couple> top = ActorPairs.top(casts.length, movie -> casts[movie], ActorPairs.MAX_CAST, 10);
+
+        Assert.assertEquals(1, top.size());
+        Assert.assertEquals(Arrays.asList(1, 2, 2), Arrays.asList(top.get(0).first, top.get(0).second, top.get(0).movies));
+    }
+
+    @Test
+    public void returnsPairsTiedWithTheLastPlace() {
+        final int[][] casts = { { 1, 2 }, { 1, 2 }, { 3, 4 }, { 5, 6 }, { 7, 8 } };
+
+        final List<ActorPairs.Couple> top = ActorPairs.topWithTies(casts.length, movie -> casts[movie], ActorPairs.MAX_CAST, 2);
+
+        Assert.assertEquals(Arrays.asList(2, 1, 1, 1), top.stream().map(couple -> couple.movies).collect(Collectors.toList()));
+        Assert.assertEquals(1, top.get(0).first);
+        Assert.assertEquals(2, ActorPairs.top(casts.length, movie -> casts[movie], ActorPairs.MAX_CAST, 2).size());
+    }
+}
@@ -0,0 +1,76 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CrawlJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resumesWithFailedAndNewTitles() throws IOException {
+        final File file = new File(folder.getRoot(), "crawl.journal");
+        try (CrawlJournal journal = new CrawlJournal(file)) {
+            journal.completed(task("Avatar", "http://akas.imdb.com/title/tt0499549/", "avatar.json"));
+            journal.dropped(task("No Such Movie", "", null), "resolve");
+            journal.failed(task("Gravity", "http://akas.imdb.com/title/tt1454468/", null), "fetch", new IOException("HTTP 503"));
+        }
+
+        try (CrawlJournal journal = new CrawlJournal(file)) {
+            Assert.assertTrue(journal.isFinished("Avatar"));
+            Assert.assertTrue(journal.isFinished("No Such Movie"));
+            Assert.assertFalse(journal.isFinished("Gravity"));
+            Assert.assertFalse(journal.isFinished("Dune"));
+            Assert.assertEquals("avatar.json", journal.get("Avatar").outputFile);
+            Assert.assertTrue(journal.crawledAt("http://akas.imdb.com/title/tt0499549/") > 0L);
+            Assert.assertEquals(0L, journal.crawledAt("http://akas.imdb.com/title/tt1454468/"));
+
+            //the retry succeeds, the last line of a title wins
+            journal.completed(task("Gravity", "http://akas.imdb.com/title/tt1454468/", "gravity.json"));
+        }
+
+        try (CrawlJournal journal = new CrawlJournal(file)) {
+            Assert.assertTrue(journal.isFinished("Gravity"));
+            Assert.assertEquals(CrawlJournal.Status.DONE, journal.get("Gravity").status);
+        }
+    }
+
+    @Test
+    public void skipsTornLastLine() throws IOException {
+        final File file = new File(folder.getRoot(), "crawl.journal");
+        try (CrawlJournal journal = new CrawlJournal(file)) {
+            journal.completed(task("Avatar", "http://akas.imdb.com/title/tt0499549/", "avatar.json"));
+        }
+        //a crash while writing, the cut line still has five fields
+        Files.write(file.toPath(), "Dune\tDONE\thttp://akas.imdb.com/title/tt11\tdune.json\t17".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        try (CrawlJournal journal = new CrawlJournal(file)) {
+            Assert.assertTrue(journal.isFinished("Avatar"));
+            Assert.assertFalse(journal.isFinished("Dune"));
+            journal.completed(task("Dune", "http://akas.imdb.com/title/tt1160419/", "dune.json"));
+        }
+
+        //the record appended after the crash is not lost with the torn line
+        try (CrawlJournal journal = new CrawlJournal(file)) {
+            Assert.assertTrue(journal.isFinished("Dune"));
+            Assert.assertEquals("http://akas.imdb.com/title/tt1160419/", journal.get("Dune").url);
+        }
+    }
+
+    private static CrawlTask task(final String movieName, final String url, final String outputFile) {
+        final CrawlTask task = new CrawlTask(movieName);
+        task.url = url;
+        task.outputFile = outputFile;
+        return task;
+    }
+}
@@ -0,0 +1,77 @@
+package ue_inforet_crawler;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CrawlPipelineTest {
+
+    private static final List<String> TITLES = Arrays.asList("a", "b", "c", "d", "e", "f", "g", "h");
+
+    @Test(timeout = 10000L)
+    public void passesTasksThroughAllStages() throws Exception {
+        final AtomicInteger written = new AtomicInteger();
+        final CrawlPipeline pipeline = new CrawlPipeline(2)
+            .addStage("drop", 2, task -> !"c".equals(task.movieName))
+            .addStage("fail", 2, task -> {
+                if ("d".equals(task.movieName)) {
+                    throw new IllegalStateException("broken page");
+                }
+                return true;
+            })
+            .addStage("write", 1, task -> {
+                written.incrementAndGet();
+                return true;
+            });
+
+        pipeline.run(TITLES);
+
+        Assert.assertEquals(6, written.get());
+        Assert.assertEquals(6, pipeline.getCompleted());
+        Assert.assertEquals(1, pipeline.getDropped());
+        Assert.assertEquals(1, pipeline.getFailed());
+    }
+
+    @Test(timeout = 10000L)
+    public void failingListenerDoesNotStopTheCrawl() throws Exception {
+        final CrawlPipeline pipeline = new CrawlPipeline(1)
+            .addStage("fetch", 2, task -> true)
+            .addStage("write", 1, task -> true)
+            .setListener(new CrawlPipeline.Listener() {
+
+                @Override
+                public void completed(final CrawlTask task) {
+                    throw new IllegalStateException("journal full");
+                }
+
+                @Override
+                public void dropped(final CrawlTask task, final String stage) {
+                }
+
+                @Override
+                public void failed(final CrawlTask task, final String stage, final Exception cause) {
+                }
+            });
+
+        pipeline.run(TITLES);
+
+        Assert.assertEquals(TITLES.size(), pipeline.getCompleted());
+    }
+
+    @Test(timeout = 10000L)
+    public void errorInAStageDoesNotHangTheCrawl() throws Exception {
+        final CrawlPipeline pipeline = new CrawlPipeline(1)
+            .addStage("fetch", 1, task -> true)
+            .addStage("parse", 1, task -> {
+                throw new AssertionError("parser bug");
+            })
+            .addStage("write", 1, task -> true);
+
+        pipeline.run(TITLES);
+
+        Assert.assertEquals(0, pipeline.getCompleted());
+    }
+}
@@ -0,0 +1,188 @@
+package ue_inforet_crawler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Crawls canned search and title pages served from a local server, from the movies file to
+ * the written JSON files.
+ */
+public class IMDBSpiderTest {
+
+    private static final String SEARCH_PAGE = "<html><body><table class=\"findList\">"
+        + "<tr><td class=\"result_text\"><a href=\"/title/tt1305826/?ref_=fn_ft_tt_1\">Avatar: The Last Airbender</a> (2005) (TV Series)</td></tr>"
+        + "<tr><td class=\"result_text\"><a href=\"/title/tt0499549/?ref_=fn_ft_tt_2\">Avatar</a> (2009)</td></tr>"
+        + "</table></body></html>";
+
+    private static final String GRAVITY_SEARCH_PAGE = "<html><body><table class=\"findList\">"
+        + "<tr><td class=\"result_text\"><a href=\"/title/tt1454468/?ref_=fn_ft_tt_1\">Gravity</a> (2013)</td></tr>"
+        + "</table></body></html>";
+
+    private static final String EMPTY_SEARCH_PAGE = "<html><body><h1>No results found for your search</h1></body></html>";
+
+    private static HttpServer server;
+
+    private static String host;
+
+    private static final AtomicInteger titleRequests = new AtomicInteger();
+
+    /**
+     * The Gravity page fails until this many requests were made
+     */
+    private static final AtomicInteger gravityFailures = new AtomicInteger();
+
+    private static final AtomicInteger gravityRequests = new AtomicInteger();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        final ByteArrayOutputStream titlePage = new ByteArrayOutputStream();
+        try (InputStream in = IMDBSpiderTest.class.getResourceAsStream("title.html")) {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                titlePage.write(buffer, 0, read);
+            }
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/find", exchange -> {
+            final String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+            final String page = query.startsWith("q=Avatar&") ? SEARCH_PAGE : query.startsWith("q=Gravity&") ? GRAVITY_SEARCH_PAGE : EMPTY_SEARCH_PAGE;
+            send(exchange, page.getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/title/tt0499549/", exchange -> {
+            titleRequests.incrementAndGet();
+            send(exchange, titlePage.toByteArray());
+        });
+        final byte[] gravityPage = new String(titlePage.toByteArray(), StandardCharsets.UTF_8).replace("Avatar", "Gravity").getBytes(
+            StandardCharsets.UTF_8);
+        server.createContext("/title/tt1454468/", exchange -> {
+            if (gravityRequests.incrementAndGet() <= gravityFailures.get()) {
+                //not transient, so the title fails without retries
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            send(exchange, gravityPage);
+        });
+        server.start();
+        host = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        //read once when IMDBSpider is initialized, no other test may load it before
+        System.setProperty("imdb.host", host);
+        System.setProperty("imdb.cacheDir", "");
+        System.setProperty("imdb.requestsPerSecond", "1000");
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test(timeout = 60000L)
+    public void crawlsMoviesIntoJsonFiles() throws IOException, ParseException {
+        final File movies = folder.newFile("movies.json");
+        Files.write(movies.toPath(), "[{\"movie_name\": \"Avatar\"}, {\"movie_name\": \"No Such Movie\"}]".getBytes(StandardCharsets.UTF_8));
+        final File outputDir = folder.newFolder("data");
+
+        IMDBSpider.main(new String[] { movies.getPath(), outputDir.getPath() + File.separator, "2" });
+
+        final File avatar = new File(outputDir, "avatar.json");
+        Assert.assertTrue(Arrays.toString(outputDir.list()), avatar.exists());
+        final JSONArray written;
+        try (InputStreamReader reader = new InputStreamReader(Files.newInputStream(avatar.toPath()), StandardCharsets.UTF_8)) {
+            written = (JSONArray) new JSONParser().parse(reader);
+        }
+        Assert.assertEquals(1, written.size());
+        final JSONObject json = (JSONObject) written.get(0);
+        //the search result matching the title, not the first one
+        Assert.assertEquals(host + "/title/tt0499549/", json.get("url"));
+        Assert.assertEquals("Avatar", json.get("title"));
+        Assert.assertEquals("2009", json.get("year"));
+        Assert.assertEquals(Arrays.asList("Action", "Adventure"), json.get("genreList"));
+        Assert.assertEquals(Arrays.asList("USA", "UK"), json.get("countryList"));
+        Assert.assertEquals("&euro;10,000,000", json.get("budget"));
+        Assert.assertEquals("INR 50,000,000", json.get("gross"));
+        Assert.assertEquals("7.8", json.get("ratingValue"));
+        Assert.assertEquals("900,164", json.get("ratingCount"));
+        Assert.assertEquals(Arrays.asList("Sam Worthington", "Zoe Saldana"), json.get("castList"));
+        Assert.assertEquals(Arrays.asList("Jake Sully", "Neytiri"), json.get("characterList"));
+        Assert.assertEquals(Collections.singletonList("James Cameron"), json.get("directorList"));
+
+        //no file for the title without search results
+        final List<String> jsonFiles = Arrays.asList(outputDir.list((dir, name) -> name.endsWith(".json")));
+        Assert.assertEquals(Collections.singletonList("avatar.json"), jsonFiles);
+        Assert.assertEquals(1, titleRequests.get());
+
+        //a second run resumes from the journal and fetches nothing
+        IMDBSpider.main(new String[] { movies.getPath(), outputDir.getPath() + File.separator, "2" });
+        Assert.assertEquals(1, titleRequests.get());
+    }
+
+    @Test(timeout = 60000L)
+    public void resumesFromTheJournal() throws IOException {
+        final File movies = folder.newFile("movies.json");
+        Files.write(movies.toPath(), "[{\"movie_name\": \"Avatar\"}, {\"movie_name\": \"Gravity\"}]".getBytes(StandardCharsets.UTF_8));
+        final File outputDir = folder.newFolder("data");
+        gravityFailures.set(gravityRequests.get() + 1);
+
+        IMDBSpider.main(new String[] { movies.getPath(), outputDir.getPath() + File.separator, "2" });
+
+        Assert.assertTrue(new File(outputDir, "avatar.json").exists());
+        Assert.assertFalse(new File(outputDir, "gravity.json").exists());
+
+        //a crash while writing: if the torn line was read, Gravity would count as done
+        Files.write(new File(outputDir, "crawl.journal").toPath(), "Gravity\tDONE\t\tgravity.json\t17".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+        final int avatarRequests = titleRequests.get();
+
+        //the done title is skipped, the failed one crawled again
+        IMDBSpider.main(new String[] { movies.getPath(), outputDir.getPath() + File.separator, "2" });
+
+        Assert.assertEquals(avatarRequests, titleRequests.get());
+        Assert.assertTrue(new File(outputDir, "gravity.json").exists());
+
+        //both are done now, the record after the torn line was not lost
+        final int requests = titleRequests.get() + gravityRequests.get();
+        IMDBSpider.main(new String[] { movies.getPath(), outputDir.getPath() + File.separator, "2" });
+        Assert.assertEquals(requests, titleRequests.get() + gravityRequests.get());
+    }
+
+    private static void send(final HttpExchange exchange, final byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/html;charset=UTF-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
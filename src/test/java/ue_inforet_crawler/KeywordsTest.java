@@ -0,0 +1,87 @@
+package ue_inforet_crawler;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class KeywordsTest {
+
+    @Test
+    public void countsOverlappingOccurrences() {
+        final Keywords keywords = new Keywords(false, "aa", "a", "he", "she", "hers", "his");
+
+        Assert.assertArrayEquals(new int[] { 2, 3, 0, 0, 0, 0 }, keywords.count("aaa"));
+        Assert.assertArrayEquals(new int[] { 0, 0, 2, 1, 1, 0 }, keywords.count("ushers he"));
+        Assert.assertArrayEquals(new int[] { 0, 0, 1, 0, 0, 0 }, keywords.count("He hE he"));
+    }
+
+    @Test
+    public void matchesNaiveSearch() {
+        final Random random = new Random(3L);
+        final String[] words = new String[12];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = randomText(random, 1 + random.nextInt(4));
+        }
+        final String text = randomText(random, 20_000);
+
+        for (final boolean ignoreCase : new boolean[] { false, true }) {
+            final Keywords keywords = new Keywords(ignoreCase, words);
+            final int[] expected = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                expected[i] = naiveCount(ignoreCase ? text.toLowerCase(Locale.ROOT) : text, ignoreCase ? words[i].toLowerCase(Locale.ROOT) : words[i]);
+            }
+
+            Assert.assertArrayEquals(expected, keywords.count(text));
+            final int[] byteCounts = new int[words.length];
+            keywords.count(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)), 0, text.length(), byteCounts);
+            Assert.assertArrayEquals(expected, byteCounts);
+        }
+    }
+
+    @Test
+    public void foldsNonAsciiCharacters() {
+        final Keywords keywords = new Keywords(true, "\u00fcber", "stra\u00dfe");
+
+        Assert.assertArrayEquals(new int[] { 2, 1 }, keywords.count("\u00dcBER die Stra\u00dfe, \u00fcber"));
+        Assert.assertEquals(3, Keywords.total(keywords.count("\u00dcBER die Stra\u00dfe, \u00fcber")));
+        Assert.assertFalse(Keywords.all(keywords.count("\u00dcber")));
+    }
+
+    @Test
+    public void countsOnlyTheGivenBytes() {
+        final Keywords keywords = new Keywords(true, "mars");
+        final ByteBuffer bytes = ByteBuffer.wrap("mars|MARS|mars".getBytes(StandardCharsets.US_ASCII));
+        final int[] counts = new int[1];
+
+        keywords.count(bytes, 4, 10, counts);
+
+        Assert.assertEquals(1, counts[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyKeywords() {
+        new Keywords(false, "a", "");
+    }
+
+    private static String randomText(final Random random, final int length) {
+        //small alphabet with both cases and a character outside the keywords, so matches overlap and restart
+        final String alphabet = "abAB c";
+        final StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    private static int naiveCount(final String text, final String word) {
+        int count = 0;
+        for (int i = text.indexOf(word); i >= 0; i = text.indexOf(word, i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
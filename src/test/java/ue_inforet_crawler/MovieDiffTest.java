@@ -0,0 +1,64 @@
+package ue_inforet_crawler;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MovieDiffTest {
+
+    @Test
+    public void findsNoChangesInEqualMovies() {
+        Assert.assertEquals(Collections.emptyList(), MovieDiff.changes(avatar(), avatar()));
+        Assert.assertEquals(Collections.emptyList(), MovieDiff.changes(new Movie(), new Movie()));
+    }
+
+    @Test
+    public void listsChangedFieldsInOutputOrder() {
+        final Movie after = avatar();
+        after.setUrl("http://akas.imdb.com/title/tt0499549/?ref_=fn");
+        after.setRatingCount("901,234");
+        after.setGenreList(Arrays.asList("Action", "Adventure", "Fantasy"));
+
+        Assert.assertEquals(Arrays.asList(
+            "genreList: [Action, Adventure] -> [Action, Adventure, Fantasy]",
+            "ratingCount: 900,164 -> 901,234",
+            "url: http://akas.imdb.com/title/tt0499549/ -> http://akas.imdb.com/title/tt0499549/?ref_=fn"),
+            MovieDiff.changes(avatar(), after));
+    }
+
+    @Test
+    public void abbreviatesLongValues() {
+        final Movie after = avatar();
+        after.setDescription(new String(new char[100]).replace('\0', 'b'));
+
+        final String change = MovieDiff.changes(avatar(), after).get(0);
+        Assert.assertEquals("description: " + avatar().getDescription() + " -> " + new String(new char[57]).replace('\0', 'b') + "...",
+            change);
+    }
+
+    @Test
+    public void reportsMissingValues() {
+        final Movie after = avatar();
+        after.setDirectorList(Collections.emptyList());
+        after.setRatingValue("");
+
+        //an empty rating is written as 0
+        Assert.assertEquals(Arrays.asList("ratingValue: 7.8 -> 0", "directorList: [James Cameron] -> []"),
+            MovieDiff.changes(avatar(), after));
+    }
+
+    private static Movie avatar() {
+        final Movie movie = new Movie();
+        movie.setTitle("Avatar");
+        movie.setYear("2009");
+        movie.setUrl("http://akas.imdb.com/title/tt0499549/");
+        movie.setDescription("A paraplegic marine on Pandora.");
+        movie.setGenreList(Arrays.asList("Action", "Adventure"));
+        movie.setRatingValue("7.8");
+        movie.setRatingCount("900,164");
+        movie.setDirectorList(Collections.singletonList("James Cameron"));
+        return movie;
+    }
+}
@@ -0,0 +1,53 @@
+package ue_inforet_crawler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.htmlcleaner.HtmlCleaner;
+import org.htmlcleaner.TagNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MovieExtractorTest {
+
+    @Test
+    public void extractsAllFields() throws IOException {
+        final Movie movie = new MovieExtractor().extract("http://akas.imdb.com/title/tt0499549/", page());
+
+        Assert.assertEquals("Avatar", movie.getTitle());
+        Assert.assertEquals("2009", movie.getYear());
+        Assert.assertEquals(Arrays.asList("Action", "Adventure"), movie.getGenreList());
+        Assert.assertEquals(Arrays.asList("USA", "UK"), movie.getCountryList());
+        Assert.assertTrue(movie.getDescription(), movie.getDescription().startsWith("A paraplegic marine"));
+        Assert.assertEquals("7.8", movie.getRatingValue());
+        Assert.assertEquals("900,164", movie.getRatingCount());
+        Assert.assertEquals(162, movie.getDurationMinutes());
+        Assert.assertEquals(Arrays.asList("Sam Worthington", "Zoe Saldana"), movie.getCastList());
+        Assert.assertEquals(Arrays.asList("Jake Sully", "Neytiri"), movie.getCharacterList());
+        Assert.assertEquals(Collections.singletonList("James Cameron"), movie.getDirectorList());
+    }
+
+    @Test
+    public void keepsTheCurrencyOfAmounts() throws IOException {
+        final Movie movie = new MovieExtractor().extract("http://akas.imdb.com/title/tt0499549/", page());
+
+        Assert.assertEquals("&euro;10,000,000", movie.getBudget());
+        Assert.assertEquals(11100000L, movie.getBudgetDollars());
+        Assert.assertEquals("INR 50,000,000", movie.getGross());
+        Assert.assertEquals(745000L, movie.getGrossDollars());
+    }
+
+    @Test
+    public void singlePassMatchesXPath() throws Exception {
+        final TagNode page = page();
+        Assert.assertEquals(Arrays.asList(MovieExtractor.matchXPath(page)), Arrays.asList(new MovieExtractor().match(page)));
+    }
+
+    static TagNode page() throws IOException {
+        try (InputStream in = MovieExtractorTest.class.getResourceAsStream("title.html")) {
+            return new HtmlCleaner().clean(in, "UTF-8");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MovieQueryTest {
+
+    @Test
+    public void conditionsMatchThePlanner() {
+        final List<Movie> movies = Arrays.asList(
+            movie("Mars Attacks!", 1996, "Martians from Mars invade EARTH.", "Comedy"),
+            movie("Love Actually", 2003, "Love, actually, is all around.", "Romance"),
+            movie("Total Recall", 1990, "A worker goes to mars.", "Sci-Fi"));
+        final List<MovieQuery> queries = Arrays.asList(
+            new MovieQuery("exact").mentions(MovieField.DESCRIPTION, "Mars", false),
+            new MovieQuery("any case").mentions(MovieField.DESCRIPTION, "mars", true),
+            new MovieQuery("nineties sci-fi").between(MovieField.YEAR, 1990, 1999).has(MovieField.GENRE, "Sci-Fi"));
+
+        final List<List<MovieQuery.Row>> results = new QueryPlanner(queries).run(movies);
+
+        for (int q = 0; q < queries.size(); q++) {
+            final List<String> expected = new ArrayList<>();
+            for (final Movie movie : movies) {
+                if (queries.get(q).conditions().stream().allMatch(condition -> condition.test(movie))) {
+                    expected.add(movie.getTitle());
+                }
+            }
+            final List<String> actual = new ArrayList<>();
+            for (final MovieQuery.Row row : results.get(q)) {
+                actual.add(row.movie.getTitle());
+            }
+            Assert.assertEquals(queries.get(q).name, expected, actual);
+        }
+        Assert.assertEquals(1, results.get(0).size());
+        Assert.assertEquals(2, results.get(1).size());
+        Assert.assertEquals(1, results.get(2).size());
+    }
+
+    private static Movie movie(final String title, final int year, final String description, final String genre) {
+        final Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setYear(Integer.toString(year));
+        movie.setDescription(description);
+        movie.setGenreList(Collections.singletonList(genre));
+        return movie;
+    }
+}
@@ -0,0 +1,66 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MovieReaderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsWrittenMovies() throws IOException {
+        final File dir = folder.newFolder("movies");
+        final Movie avatar = new Movie();
+        avatar.setTitle("Avatar");
+        avatar.setYear("2009");
+        avatar.setUrl("http://akas.imdb.com/title/tt0499549/");
+        avatar.setBudget("$237,000,000");
+        avatar.setRatingValue("7.8");
+        avatar.setGenreList(Arrays.asList("Action", "Adventure"));
+        avatar.setCastList(Collections.singletonList("Sam Worthington"));
+        final MovieWriter writer = new MovieWriter(dir.getPath() + File.separator);
+        writer.addMovie(avatar);
+        writer.writeFile();
+
+        final List<Movie> movies = MovieReader.readMoviesFrom(dir);
+
+        Assert.assertEquals(1, movies.size());
+        final Movie movie = movies.get(0);
+        Assert.assertEquals("Avatar", movie.getTitle());
+        Assert.assertEquals(2009, movie.getYearValue());
+        Assert.assertEquals(237000000L, movie.getBudgetDollars());
+        Assert.assertEquals(7.8f, movie.getRating(), 0.0f);
+        Assert.assertEquals(Arrays.asList("Action", "Adventure"), movie.getGenreList());
+        Assert.assertEquals(Collections.singletonList("Sam Worthington"), movie.getCastList());
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingDirectoryIsAnError() throws IOException {
+        MovieReader.readMoviesFrom(new File(folder.getRoot(), "missing"));
+    }
+
+    @Test(timeout = 10000L)
+    public void brokenFileFailsInsteadOfBlocking() throws IOException {
+        final File dir = folder.newFolder("broken");
+        Files.write(new File(dir, "broken.json").toPath(), "[{\"title\": \"Avatar\", \"year\": ".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "good.json").toPath(), "[{\"title\": \"Heat\"}]".getBytes(StandardCharsets.UTF_8));
+        try {
+            MovieReader.readMoviesFrom(dir);
+            Assert.fail("broken file read");
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("broken.json"));
+        }
+    }
+}
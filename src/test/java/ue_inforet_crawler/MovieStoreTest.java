@@ -0,0 +1,168 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MovieStoreTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsWrittenMovies() throws IOException {
+        final Movie avatar = new Movie();
+        avatar.setTitle("Avatar");
+        avatar.setYear("2009");
+        avatar.setUrl("http://akas.imdb.com/title/tt0499549/");
+        avatar.setDescription("A marine on Pandora, \u00fcber alles.");
+        avatar.setBudget("$237,000,000");
+        avatar.setGross("$760,505,847");
+        avatar.setRatingValue("7.8");
+        avatar.setRatingCount("900,164");
+        avatar.setDuration("2h 42min");
+        avatar.setGenreList(Arrays.asList("Action", "Adventure"));
+        avatar.setCountryList(Arrays.asList("USA", "UK"));
+        avatar.setDirectorList(Collections.singletonList("James Cameron"));
+        avatar.setCastList(Arrays.asList("Sam Worthington", "Zoe Saldana"));
+        avatar.setCharacterList(Arrays.asList("Jake Sully", "Neytiri"));
+        final Movie unknown = new Movie();
+        unknown.setTitle("Untitled");
+        unknown.setCastList(Collections.singletonList("James Cameron"));
+
+        final File file = folder.newFile("movies.store");
+        try (MovieStoreWriter writer = new MovieStoreWriter(file)) {
+            writer.add(avatar);
+            writer.add(unknown);
+            writer.finish();
+        }
+        final MovieStore store = new MovieStore(file);
+
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(2009, store.year(0));
+        Assert.assertEquals(7.8f, store.ratingValue(0), 0f);
+        Assert.assertEquals(900_164L, store.ratingCount(0));
+        Assert.assertEquals(237_000_000L, store.budget(0));
+        Assert.assertEquals(760_505_847L, store.gross(0));
+        Assert.assertEquals(162, store.duration(0));
+        Assert.assertEquals(avatar.getDescription(), store.text(MovieStore.TextColumn.DESCRIPTION, 0));
+        Assert.assertEquals(avatar.getCharacterList(), store.list(MovieStore.ListColumn.CHARACTER, 0));
+
+        final Movie read = store.movie(0);
+        Assert.assertEquals(avatar.getTitle(), read.getTitle());
+        Assert.assertEquals(avatar.getUrl(), read.getUrl());
+        Assert.assertEquals(avatar.getBudget(), read.getBudget());
+        Assert.assertEquals(avatar.getDuration(), read.getDuration());
+        Assert.assertEquals(avatar.getGenreList(), read.getGenreList());
+        Assert.assertEquals(avatar.getCountryList(), read.getCountryList());
+        Assert.assertEquals(avatar.getDirectorList(), read.getDirectorList());
+        Assert.assertEquals(avatar.getCastList(), read.getCastList());
+
+        //unknown values are stored as 0 and empty lists
+        Assert.assertEquals(0, store.year(1));
+        Assert.assertEquals(0L, store.budget(1));
+        Assert.assertEquals(0, store.movie(1).getYearValue());
+        Assert.assertEquals(0, store.listSize(MovieStore.ListColumn.GENRE, 1));
+    }
+
+    @Test
+    public void sharesThePersonDictionary() throws IOException {
+        final Movie first = new Movie();
+        first.setTitle("First");
+        first.setDirectorList(Collections.singletonList("Clint Eastwood"));
+        first.setDescription("Mars, mars and MARS.");
+        final Movie second = new Movie();
+        second.setTitle("Second");
+        second.setCastList(Arrays.asList("Morgan Freeman", "Clint Eastwood"));
+
+        final File file = folder.newFile("movies.store");
+        try (MovieStoreWriter writer = new MovieStoreWriter(file)) {
+            writer.add(first);
+            writer.add(second);
+            writer.finish();
+        }
+        final MovieStore store = new MovieStore(file);
+
+        final int clint = store.dictionaryId(MovieStore.ListColumn.DIRECTOR, "Clint Eastwood");
+        Assert.assertEquals(clint, store.dictionaryId(MovieStore.ListColumn.CAST, "Clint Eastwood"));
+        Assert.assertEquals(clint, store.listValue(MovieStore.ListColumn.DIRECTOR, 0, 0));
+        Assert.assertTrue(store.listContains(MovieStore.ListColumn.CAST, 1, clint));
+        Assert.assertFalse(store.listContains(MovieStore.ListColumn.CAST, 0, clint));
+        Assert.assertEquals(2, store.dictionarySize(MovieStore.ListColumn.CAST));
+        Assert.assertEquals(-1, store.dictionaryId(MovieStore.ListColumn.CAST, "Clint"));
+        Assert.assertArrayEquals(new int[] { 3 }, store.count(MovieStore.TextColumn.DESCRIPTION, 0, new Keywords(true, "mars")));
+    }
+
+    @Test
+    public void rejectsOtherFiles() throws IOException {
+        final File other = folder.newFile("other.store");
+        Files.write(other.toPath(), "no movie store, just text".getBytes(StandardCharsets.US_ASCII));
+        try {
+            new MovieStore(other);
+            Assert.fail();
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("is no movie store"));
+        }
+
+        final File truncated = folder.newFile("truncated.store");
+        try (MovieStoreWriter writer = new MovieStoreWriter(truncated)) {
+            final Movie movie = new Movie();
+            movie.setTitle("Avatar");
+            writer.add(movie);
+            writer.finish();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(truncated, "rw")) {
+            raf.setLength(raf.length() - 8);
+        }
+        try {
+            new MovieStore(truncated);
+            Assert.fail();
+        } catch (final IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("truncated"));
+        }
+    }
+
+    @Test
+    public void keepsTheStoreWithoutFinish() throws IOException {
+        final File file = folder.newFile("movies.store");
+        final Movie avatar = new Movie();
+        avatar.setTitle("Avatar");
+        try (MovieStoreWriter writer = new MovieStoreWriter(file)) {
+            writer.add(avatar);
+            writer.finish();
+        }
+        final byte[] stored = Files.readAllBytes(file.toPath());
+
+        try (MovieStoreWriter writer = new MovieStoreWriter(file)) {
+            writer.add(avatar);
+            final Movie broken = new Movie();
+            broken.setTitle("Broken");
+            broken.setGenreList(null);
+            try {
+                writer.add(broken);
+                Assert.fail();
+            } catch (final NullPointerException e) {
+                //the row is incomplete
+            }
+            try {
+                writer.finish();
+                Assert.fail();
+            } catch (final IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("incomplete"));
+            }
+        }
+
+        Assert.assertArrayEquals(stored, Files.readAllBytes(file.toPath()));
+        //no section files are left behind
+        Assert.assertEquals(1, folder.getRoot().list().length);
+    }
+}
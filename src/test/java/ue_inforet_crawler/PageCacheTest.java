@@ -0,0 +1,88 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PageCacheTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void returnsStoredPages() throws IOException {
+        final File dir = folder.newFolder("cache");
+        final PageCache cache = new PageCache(dir, 1L << 20);
+        cache.put("http://example.org/a", "<html>a</html>", "\"etag-a\"", null);
+
+        final PageCache reopened = new PageCache(dir, 1L << 20);
+        final PageCache.Entry entry = reopened.get("http://example.org/a");
+
+        Assert.assertEquals("<html>a</html>", entry.body);
+        Assert.assertEquals("\"etag-a\"", entry.etag);
+        Assert.assertNull(entry.lastModified);
+        Assert.assertTrue(entry.isFresh(60_000L));
+        Assert.assertNull(reopened.get("http://example.org/b"));
+    }
+
+    @Test
+    public void sweepsTemporaryFilesOnOpen() throws IOException {
+        final File dir = folder.newFolder("cache");
+        final File leftover = new File(dir, "0123456789abcdef0123456789abcdef01234567123.tmp");
+        Files.write(leftover.toPath(), new byte[100]);
+
+        new PageCache(dir, 1L << 20);
+
+        Assert.assertFalse(leftover.exists());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedEntries() throws IOException {
+        final File dir = folder.newFolder("cache");
+        //room for one gzipped page
+        final PageCache cache = new PageCache(dir, 50L);
+        cache.put("http://example.org/a", "<html>a</html>", null, null);
+        cache.put("http://example.org/b", "<html>b</html>", null, null);
+
+        Assert.assertNull(cache.get("http://example.org/a"));
+        //no file of the evicted entry is left
+        Assert.assertNotNull(cache.get("http://example.org/b"));
+        Assert.assertEquals(2, dir.list().length);
+    }
+
+    @Test
+    public void skipsRevalidationOfEvictedEntries() throws IOException {
+        final File dir = folder.newFolder("cache");
+        final PageCache cache = new PageCache(dir, 50L);
+        cache.put("http://example.org/a", "<html>a</html>", "\"etag-a\"", null);
+        final PageCache.Entry entry = cache.get("http://example.org/a");
+        cache.put("http://example.org/b", "<html>b</html>", null, null);
+
+        //a 304 for the evicted page arrives late
+        cache.revalidated("http://example.org/a", entry);
+
+        Assert.assertNull(cache.get("http://example.org/a"));
+        Assert.assertEquals(2, dir.list().length);
+    }
+
+    @Test
+    public void deletesMetaWithoutBodyOnOpen() throws IOException {
+        final File dir = folder.newFolder("cache");
+        final PageCache cache = new PageCache(dir, 1L << 20);
+        cache.put("http://example.org/a", "<html>a</html>", null, null);
+        final File orphan = new File(dir, "0123456789abcdef0123456789abcdef01234567.meta");
+        Files.write(orphan.toPath(), "url=http\\://example.org/b\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        final PageCache reopened = new PageCache(dir, 1L << 20);
+
+        Assert.assertFalse(orphan.exists());
+        Assert.assertNotNull(reopened.get("http://example.org/a"));
+        Assert.assertEquals(2, dir.list().length);
+    }
+}
@@ -0,0 +1,102 @@
+package ue_inforet_crawler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class PageFetcherTest {
+
+    private HttpServer server;
+
+    private String host;
+
+    private PageFetcher fetcher;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/title/tt1/", exchange -> {
+            final byte[] body = "<html>Avatar</html>".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/html;charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        redirect("/old/tt1", "/title/tt1/");
+        redirect("/older/tt1", "/old/tt1");
+        redirect("/loop", "/loop");
+        server.createContext("/choices", exchange -> {
+            exchange.sendResponseHeaders(300, -1);
+            exchange.close();
+        });
+        server.start();
+        host = "http://127.0.0.1:" + server.getAddress().getPort();
+        //the same server under another host name
+        redirect("/elsewhere/tt1", "http://localhost:" + server.getAddress().getPort() + "/title/tt1/");
+        fetcher = new PageFetcher(new PolitenessScheduler(1000.0, 10, 1, 0.0), null, 0L, new CrawlMetrics());
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void followsRedirects() throws IOException {
+        Assert.assertEquals("<html>Avatar</html>", fetcher.fetch(host + "/older/tt1"));
+    }
+
+    @Test(timeout = 10000L)
+    public void chargesEveryRedirectToItsHost() throws IOException {
+        //one request every 500 ms and host
+        final PolitenessScheduler scheduler = new PolitenessScheduler(2.0, 1, 1, 0.0);
+        final PageFetcher limited = new PageFetcher(scheduler, null, 0L, new CrawlMetrics());
+
+        Assert.assertEquals("<html>Avatar</html>", limited.fetch(host + "/old/tt1"));
+        Assert.assertEquals(2L, scheduler.getRequests());
+        Assert.assertTrue(scheduler.getWaitMillis() + " ms", scheduler.getWaitMillis() >= 400L);
+
+        final PolitenessScheduler other = new PolitenessScheduler(2.0, 1, 1, 0.0);
+        Assert.assertEquals("<html>Avatar</html>", new PageFetcher(other, null, 0L, new CrawlMetrics()).fetch(host + "/elsewhere/tt1"));
+        Assert.assertEquals(2L, other.getRequests());
+        //the second host has a permit of its own
+        Assert.assertTrue(other.getWaitMillis() + " ms", other.getWaitMillis() < 400L);
+    }
+
+    @Test
+    public void stopsAfterTooManyRedirects() throws IOException {
+        try {
+            fetcher.fetch(host + "/loop");
+            Assert.fail("redirect loop followed");
+        } catch (final HttpStatusException e) {
+            Assert.assertEquals(302, e.getStatusCode());
+        }
+    }
+
+    @Test
+    public void rejectsRedirectWithoutLocation() throws IOException {
+        try {
+            fetcher.fetch(host + "/choices");
+            Assert.fail("300 read as page");
+        } catch (final HttpStatusException e) {
+            Assert.assertEquals(300, e.getStatusCode());
+        }
+    }
+
+    private void redirect(final String path, final String target) {
+        server.createContext(path, exchange -> {
+            exchange.getResponseHeaders().set("Location", target);
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+    }
+}
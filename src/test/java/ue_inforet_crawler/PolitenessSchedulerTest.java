@@ -0,0 +1,114 @@
+package ue_inforet_crawler;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PolitenessSchedulerTest {
+
+    private static final String URL = "http://example.org/title/tt1/";
+
+    @Test(timeout = 10000L)
+    public void retriesUntilTheHostAnswers() throws IOException {
+        final PolitenessScheduler scheduler = new PolitenessScheduler(1000.0, 10, 5, 0.0, 1L);
+        final AtomicInteger calls = new AtomicInteger();
+
+        final String body = scheduler.execute(URL, () -> {
+            if (calls.incrementAndGet() <= 3) {
+                throw new HttpStatusException(503, URL);
+            }
+            return "<html>Avatar</html>";
+        });
+
+        Assert.assertEquals("<html>Avatar</html>", body);
+        Assert.assertEquals(4, calls.get());
+        Assert.assertEquals(4L, scheduler.getRequests());
+        Assert.assertEquals(3L, scheduler.getRetries());
+        //503 pauses the host
+        Assert.assertEquals(3L, scheduler.getThrottled());
+    }
+
+    @Test(timeout = 10000L)
+    public void retriesTimeoutsWithoutThrottling() throws IOException {
+        final PolitenessScheduler scheduler = new PolitenessScheduler(1000.0, 10, 5, 0.0, 1L);
+        final AtomicInteger calls = new AtomicInteger();
+
+        scheduler.execute(URL, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new SocketTimeoutException("read timed out");
+            }
+            return "";
+        });
+
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(1L, scheduler.getRetries());
+        Assert.assertEquals(0L, scheduler.getThrottled());
+    }
+
+    @Test(timeout = 10000L)
+    public void failsPermanentErrorsAtOnce() throws IOException {
+        final PolitenessScheduler scheduler = new PolitenessScheduler(1000.0, 10, 5, 0.0, 1L);
+
+        assertFails(scheduler, new HttpStatusException(404, URL), 1);
+        assertFails(scheduler, new UnknownHostException("example.org"), 1);
+        Assert.assertEquals(0L, scheduler.getRetries());
+    }
+
+    @Test(timeout = 10000L)
+    public void stopsAfterMaxAttempts() throws IOException {
+        final PolitenessScheduler scheduler = new PolitenessScheduler(1000.0, 10, 3, 1.0, 1L);
+
+        assertFails(scheduler, new HttpStatusException(502, URL), 3);
+        Assert.assertEquals(2L, scheduler.getRetries());
+    }
+
+    @Test(timeout = 10000L)
+    public void stopsWhenTheRetryBudgetIsSpent() throws IOException {
+        //no retries beyond the minimum budget of 10
+        final PolitenessScheduler scheduler = new PolitenessScheduler(1000.0, 100, 2, 0.0, 1L);
+        for (int i = 0; i < 10; i++) {
+            assertFails(scheduler, new HttpStatusException(500, URL), 2);
+        }
+
+        //the budget is crawl wide, the next request is not retried at all
+        assertFails(scheduler, new HttpStatusException(500, URL), 1);
+        Assert.assertEquals(10L, scheduler.getRetries());
+        Assert.assertEquals(21L, scheduler.getRequests());
+    }
+
+    @Test(timeout = 10000L)
+    public void growsTheBudgetWithTheRequests() throws IOException {
+        final PolitenessScheduler scheduler = new PolitenessScheduler(1000.0, 100, 2, 0.25, 1L);
+        for (int i = 0; i < 20; i++) {
+            scheduler.execute(URL, () -> "");
+        }
+
+        //10 + a quarter of all requests, retries included: 31 retries after 20 + 2 * 31 requests
+        for (int i = 0; i < 31; i++) {
+            assertFails(scheduler, new HttpStatusException(500, URL), 2);
+        }
+        assertFails(scheduler, new HttpStatusException(500, URL), 1);
+        Assert.assertEquals(31L, scheduler.getRetries());
+    }
+
+    /**
+     * Executes a request that always fails with the given exception.
+     */
+    private static void assertFails(final PolitenessScheduler scheduler, final IOException failure, final int expectedCalls) {
+        final AtomicInteger calls = new AtomicInteger();
+        try {
+            scheduler.execute(URL, () -> {
+                calls.incrementAndGet();
+                throw failure;
+            });
+            Assert.fail();
+        } catch (final IOException e) {
+            Assert.assertSame(failure, e);
+        }
+        Assert.assertEquals(expectedCalls, calls.get());
+    }
+}
@@ -0,0 +1,130 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Runs every query of {@link IMDBQueries} on the movie list, on a {@link MovieStore} and on
+ * {@link MovieColumns} of the same movies and expects the same results, ties included.
+ */
+public class QueryEnginesTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 60000L)
+    public void enginesAgree() throws IOException, URISyntaxException, ReflectiveOperationException {
+        final List<Movie> movies = MovieReader.readMoviesFrom(new File(QueryEnginesTest.class.getResource("/movies_subset").toURI()));
+        final File file = new File(folder.getRoot(), "movies.store");
+        try (MovieStoreWriter writer = new MovieStoreWriter(file)) {
+            for (final Movie movie : movies) {
+                writer.add(movie);
+            }
+            writer.finish();
+        }
+        //all engines see the movies in the same order, so ties are broken alike
+        final MovieStore store = new MovieStore(file);
+        final MovieColumns columns = MovieColumns.of(movies);
+        final MovieColumns storeColumns = MovieColumns.of(store);
+
+        final IMDBQueries queries = new IMDBQueries();
+        int compared = 0;
+        int nonEmpty = 0;
+        for (final Method columnQuery : IMDBQueries.class.getDeclaredMethods()) {
+            if (!columnQuery.getName().startsWith("query") || columnQuery.getParameterTypes()[0] != MovieColumns.class) {
+                continue;
+            }
+            final Method storeQuery = variant(columnQuery, MovieStore.class);
+            final Method listQuery = variant(columnQuery, List.class, Collection.class);
+            final Object[] arguments = arguments(columnQuery);
+
+            final String expected = describe(invoke(queries, listQuery, movies, arguments));
+            final String name = columnQuery.getName() + Arrays.toString(arguments);
+            Assert.assertEquals(name + " on the store", expected, describe(invoke(queries, storeQuery, store, arguments)));
+            Assert.assertEquals(name + " on columns", expected, describe(invoke(queries, columnQuery, columns, arguments)));
+            Assert.assertEquals(name + " on columns of the store", expected, describe(invoke(queries, columnQuery, storeColumns, arguments)));
+            compared++;
+            nonEmpty += expected.equals("null") || expected.equals("[]") ? 0 : 1;
+        }
+
+        //every query has a version for each engine and finds something in the subset
+        Assert.assertTrue(Integer.toString(compared), compared >= 11);
+        Assert.assertEquals(compared, nonEmpty);
+    }
+
+    /**
+     * @return the query of the same name and further parameters on another engine
+     */
+    private static Method variant(final Method query, final Class<?>... engines) throws NoSuchMethodException {
+        final Class<?>[] parameters = query.getParameterTypes().clone();
+        for (final Class<?> engine : engines) {
+            parameters[0] = engine;
+            try {
+                return IMDBQueries.class.getDeclaredMethod(query.getName(), parameters);
+            } catch (final NoSuchMethodException e) {
+                //try the next engine type
+            }
+        }
+        throw new NoSuchMethodException(query.getName() + " for " + Arrays.toString(engines));
+    }
+
+    /**
+     * @return the arguments of a query after the movies, as used by {@link IMDBQueries#main}
+     */
+    private static Object[] arguments(final Method query) {
+        final Class<?>[] parameters = query.getParameterTypes();
+        if (parameters.length == 1) {
+            return new Object[0];
+        }
+        if (parameters.length == 3 && parameters[1] == Keywords.class && parameters[2] == int.class) {
+            return new Object[] { new Keywords(true, "kill", "love"), 10 };
+        }
+        if (parameters.length == 3 && parameters[1] == int.class && parameters[2] == int.class) {
+            return new Object[] { 1990, 2010 };
+        }
+        throw new IllegalArgumentException("unknown parameters of " + query);
+    }
+
+    private static Object invoke(final IMDBQueries queries, final Method query, final Object engine, final Object[] arguments)
+        throws IllegalAccessException, InvocationTargetException {
+        final Object[] all = new Object[arguments.length + 1];
+        all[0] = engine;
+        System.arraycopy(arguments, 0, all, 1, arguments.length);
+        query.setAccessible(true);
+        return query.invoke(queries, all);
+    }
+
+    /**
+     * @return the result as text, movies by title, year and url
+     */
+    private static String describe(final Object result) {
+        if (result instanceof List) {
+            final List<String> described = new ArrayList<>();
+            for (final Object element : (List<?>) result) {
+                described.add(describe(element));
+            }
+            return described.toString();
+        }
+        if (result instanceof IMDBQueries.Tuple) {
+            final IMDBQueries.Tuple<?, ?> tuple = (IMDBQueries.Tuple<?, ?>) result;
+            return "(" + describe(tuple.first) + ", " + describe(tuple.second) + ")";
+        }
+        if (result instanceof Movie) {
+            final Movie movie = (Movie) result;
+            return movie.getTitle() + " (" + movie.getYear() + ") " + movie.getUrl();
+        }
+        return String.valueOf(result);
+    }
+}
@@ -0,0 +1,89 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RefreshScheduleTest {
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1L);
+
+    /**
+     * 2016-12-15 12:00 local time
+     */
+    private static final long NOW;
+
+    static {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2016, Calendar.DECEMBER, 15, 12, 0);
+        NOW = calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void refreshesNewMoviesMoreOften() {
+        Assert.assertEquals(DAY, RefreshSchedule.interval(movie("2016", null), 2016));
+        Assert.assertEquals(DAY, RefreshSchedule.interval(movie("2015", null), 2016));
+        Assert.assertEquals(7 * DAY, RefreshSchedule.interval(movie("2014", null), 2016));
+        Assert.assertEquals(7 * DAY, RefreshSchedule.interval(movie("2006", null), 2016));
+        Assert.assertEquals(30 * DAY, RefreshSchedule.interval(movie("2005", null), 2016));
+        Assert.assertEquals(30 * DAY, RefreshSchedule.interval(movie("", null), 2016));
+    }
+
+    @Test
+    public void ordersDueMoviesByOverdueIntervals() {
+        final Map<String, Long> crawledAt = new HashMap<>();
+        final List<Movie> movies = new ArrayList<>();
+        final Movie fresh = add(movies, crawledAt, movie("2016", "http://akas.imdb.com/title/tt1/"), NOW - DAY / 2);
+        final Movie daily = add(movies, crawledAt, movie("2016", "http://akas.imdb.com/title/tt2/"), NOW - DAY * 5 / 2);
+        final Movie weekly = add(movies, crawledAt, movie("2010", "http://akas.imdb.com/title/tt3/"), NOW - 14 * DAY);
+        final Movie notWeekly = add(movies, crawledAt, movie("2010", "http://akas.imdb.com/title/tt4/"), NOW - 3 * DAY);
+        final Movie old = add(movies, crawledAt, movie("1999", "http://akas.imdb.com/title/tt5/"), NOW - 90 * DAY);
+        final Movie notOld = add(movies, crawledAt, movie("1999", "http://akas.imdb.com/title/tt6/"), NOW - 20 * DAY);
+        //never crawled by this journal
+        final Movie unknown = movie("1999", "http://akas.imdb.com/title/tt7/");
+        movies.add(unknown);
+        //exactly one interval ago
+        final Movie exact = add(movies, crawledAt, movie("2005", "http://akas.imdb.com/title/tt8/"), NOW - 30 * DAY);
+        //no detail page to refresh
+        add(movies, crawledAt, movie("2016", ""), 0L);
+
+        final List<Movie> due = RefreshSchedule.due(movies, url -> crawledAt.getOrDefault(url, 0L), NOW, 100);
+
+        Assert.assertEquals(Arrays.asList(unknown, old, daily, weekly, exact), due);
+        Assert.assertFalse(due.contains(fresh));
+        Assert.assertFalse(due.contains(notWeekly));
+        Assert.assertFalse(due.contains(notOld));
+    }
+
+    @Test
+    public void limitsToTheMostOverdue() {
+        final Map<String, Long> crawledAt = new HashMap<>();
+        final List<Movie> movies = new ArrayList<>();
+        add(movies, crawledAt, movie("2016", "http://akas.imdb.com/title/tt1/"), NOW - 2 * DAY);
+        final Movie most = add(movies, crawledAt, movie("2016", "http://akas.imdb.com/title/tt2/"), NOW - 9 * DAY);
+        final Movie second = add(movies, crawledAt, movie("2016", "http://akas.imdb.com/title/tt3/"), NOW - 4 * DAY);
+
+        Assert.assertEquals(Arrays.asList(most, second), RefreshSchedule.due(movies, crawledAt::get, NOW, 2));
+    }
+
+    private static Movie movie(final String year, final String url) {
+        final Movie movie = new Movie();
+        movie.setYear(year);
+        movie.setUrl(url);
+        return movie;
+    }
+
+    private static Movie add(final List<Movie> movies, final Map<String, Long> crawledAt, final Movie movie, final long time) {
+        movies.add(movie);
+        crawledAt.put(movie.getUrl(), time);
+        return movie;
+    }
+}
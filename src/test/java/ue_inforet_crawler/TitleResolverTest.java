@@ -0,0 +1,77 @@
+package ue_inforet_crawler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TitleResolverTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void searchesAgainForAmbiguousTitles() throws IOException {
+        try (TitleResolver resolver = new TitleResolver(new File(folder.getRoot(), "titles.tsv"))) {
+            Assert.assertEquals("tt0087182", resolver.resolve("Dune (1984)", Arrays.asList(
+                new TitleResolver.Candidate("tt1160419", "Dune", 2021),
+                new TitleResolver.Candidate("tt0142032", "Dune", 2000),
+                new TitleResolver.Candidate("tt0087182", "Dune", 1984))));
+
+            //three Dunes seen before match equally well
+            Assert.assertNull(resolver.lookup("Dune"));
+            Assert.assertNull(resolver.lookup("dune"));
+            //the year decides
+            Assert.assertEquals("tt1160419", resolver.lookup("Dune (2021)"));
+            Assert.assertEquals("tt0087182", resolver.lookup("Dune (1984)"));
+        }
+    }
+
+    @Test
+    public void resolvesCloseMatchesLocally() throws IOException {
+        final File file = new File(folder.getRoot(), "titles.tsv");
+        try (TitleResolver resolver = new TitleResolver(file)) {
+            resolver.resolve("Lord of the Rings: The Two Towers", Arrays.asList(
+                new TitleResolver.Candidate("tt0167261", "The Lord of the Rings: The Two Towers", 2002),
+                new TitleResolver.Candidate("tt0120737", "The Lord of the Rings: The Fellowship of the Ring", 2001)));
+
+            Assert.assertEquals("tt0167261", resolver.lookup("the lord of the rings - the two towers (2002)"));
+        }
+
+        //resolutions survive a restart
+        try (TitleResolver resolver = new TitleResolver(file)) {
+            Assert.assertEquals("tt0167261", resolver.lookup("the lord of the rings - the two towers (2002)"));
+            Assert.assertEquals("The Lord of the Rings: The Two Towers", resolver.title("tt0167261"));
+        }
+    }
+
+    @Test
+    public void ignoresBrokenLines() throws IOException {
+        final File file = new File(folder.getRoot(), "titles.tsv");
+        Files.write(file.toPath(), ("Q\tavatar (0)\ttt0499549\n"
+            + "Q\tgravity (0)\tnot-an-id\n"
+            + "Q\tno such movie (0)\t\n"
+            //half written by a crash
+            + "Q\tdune (0)\ttt00").getBytes(StandardCharsets.UTF_8));
+
+        try (TitleResolver resolver = new TitleResolver(file)) {
+            Assert.assertEquals("tt0499549", resolver.lookup("Avatar"));
+            Assert.assertEquals("", resolver.lookup("No Such Movie"));
+            Assert.assertNull(resolver.lookup("Gravity"));
+            Assert.assertNull(resolver.lookup("Dune"));
+            resolver.resolve("Dune", Collections.singletonList(new TitleResolver.Candidate("tt1160419", "Dune", 2021)));
+        }
+
+        //the first line appended after the crash is not glued to the broken one
+        try (TitleResolver resolver = new TitleResolver(file)) {
+            Assert.assertEquals("tt1160419", resolver.lookup("Dune"));
+        }
+    }
+}
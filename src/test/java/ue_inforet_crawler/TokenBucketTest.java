@@ -0,0 +1,61 @@
+package ue_inforet_crawler;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+    @Test(timeout = 10000L)
+    public void spacesRequestsAfterTheBurst() throws IOException {
+        //a permit every 100 ms, 3 at once
+        final TokenBucket bucket = new TokenBucket(10.0, 3);
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(0L, bucket.acquire());
+        }
+        Assert.assertTrue(bucket.acquire() > 0L);
+        bucket.acquire();
+        bucket.acquire();
+
+        //three permits 100 ms apart after the burst
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assert.assertTrue(elapsed + " ms", elapsed >= 290L);
+        Assert.assertTrue(elapsed + " ms", elapsed < 2000L);
+    }
+
+    @Test(timeout = 10000L)
+    public void refillsWhileIdle() throws IOException, InterruptedException {
+        final TokenBucket bucket = new TokenBucket(20.0, 2);
+        bucket.acquire();
+        bucket.acquire();
+        Assert.assertTrue(bucket.acquire() > 0L);
+
+        //two intervals of 50 ms and some slack
+        Thread.sleep(200L);
+
+        Assert.assertEquals(0L, bucket.acquire());
+        Assert.assertEquals(0L, bucket.acquire());
+        //never more than the burst is stored
+        Assert.assertTrue(bucket.acquire() > 0L);
+    }
+
+    @Test(timeout = 10000L)
+    public void pausesTheHost() throws IOException {
+        final TokenBucket bucket = new TokenBucket(1000.0, 10);
+        bucket.pause(TimeUnit.MILLISECONDS.toNanos(200L));
+
+        //the stored burst is gone as well
+        final long waited = bucket.acquire();
+        Assert.assertTrue(waited + " ns", waited >= TimeUnit.MILLISECONDS.toNanos(150L));
+        Assert.assertTrue(bucket.acquire() <= TimeUnit.MILLISECONDS.toNanos(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyBurst() {
+        new TokenBucket(1.0, 0);
+    }
+}
@@ -0,0 +1,73 @@
+package ue_inforet_crawler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TopKTest {
+
+    @Test
+    public void keepsLargestKeysInOfferOrder() {
+        final Random random = new Random(42L);
+        final List<int[]> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            //few distinct keys, so many ties
+            values.add(new int[] { random.nextInt(20), i });
+        }
+
+        for (final int k : new int[] { 0, 1, 7, 100, 1000, 5000 }) {
+            final TopK<int[]> top = new TopK<>(k);
+            for (final int[] value : values) {
+                top.offer(value[0], value);
+            }
+
+            //stable sort followed by a limit
+            final List<int[]> expected = values.stream().sorted(Comparator.comparingInt((int[] value) -> -value[0])).limit(k).collect(
+                Collectors.toList());
+            Assert.assertEquals(expected.size(), top.size());
+            Assert.assertEquals(ids(expected), ids(top.toList()));
+        }
+    }
+
+    @Test
+    public void collectsParallelStreamsInEncounterOrder() {
+        final List<Integer> expected = IntStream.range(0, 10_000).boxed().sorted(Comparator.comparingInt(i -> -(i % 100))).limit(250).collect(
+            Collectors.toList());
+
+        final List<Integer> actual = IntStream.range(0, 10_000).boxed().parallel().collect(TopK.collector(250, i -> i % 100));
+
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void ordersFloatKeysLikeFloatCompare() {
+        final float[] floats = { -Float.MAX_VALUE, -2.5f, -0.0f, 0.0f, Float.MIN_VALUE, 1.0f, 7.8f, Float.POSITIVE_INFINITY };
+        for (int i = 1; i < floats.length; i++) {
+            Assert.assertTrue(floats[i - 1] + " < " + floats[i], TopK.floatKey(floats[i - 1]) < TopK.floatKey(floats[i]));
+        }
+    }
+
+    @Test
+    public void acceptsOnlyValuesThatWouldBeKept() {
+        final TopK<String> top = new TopK<>(2);
+        Assert.assertTrue(top.accepts(1L));
+        top.offer(5L, "five");
+        top.offer(3L, "three");
+
+        Assert.assertFalse(top.accepts(3L));
+        Assert.assertTrue(top.accepts(4L));
+        Assert.assertFalse(new TopK<String>(0).accepts(Long.MAX_VALUE));
+        Assert.assertEquals(Arrays.asList("five", "three"), top.toList());
+    }
+
+    private static List<Integer> ids(final List<int[]> values) {
+        return values.stream().map(value -> value[1]).collect(Collectors.toList());
+    }
+}